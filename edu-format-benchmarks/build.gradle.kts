@@ -0,0 +1,54 @@
+plugins {
+  alias(libs.plugins.jmhPlugin)
+}
+
+// Benchmarks for the hottest `edu-format` code paths: course archive reading and writing, json migration, yaml and encryption.
+// Run all benchmarks with `./gradlew :edu-format-benchmarks:jmh`.
+// Use `-PjmhIncludes=<regexp>` to run only some of them
+// and `-PjmhParams=<name>=<value>[,<value>];...` to override sizes of generated courses, for example,
+// `./gradlew :edu-format-benchmarks:jmh -PjmhIncludes=CourseArchiveBenchmark -PjmhParams=sections=5;fileSize=100000`
+
+// `jmh` source set is created by the JMH plugin. It's referenced by name since `jmh` is also the name of the plugin extension
+sourceSets {
+  named("jmh") {
+    java.srcDirs("src")
+  }
+}
+
+kotlin {
+  sourceSets {
+    named("jmh") {
+      kotlin.srcDirs("src")
+    }
+  }
+}
+
+dependencies {
+  jmhImplementation(project(":edu-format"))
+  jmhImplementation(libs.kotlin.stdlib)
+  jmhImplementation(libs.jackson.module.kotlin)
+  jmhImplementation(libs.jackson.dataformat.yaml)
+}
+
+jmh {
+  jmhVersion = libs.versions.jmh
+  fork = 1
+  warmupIterations = 3
+  iterations = 5
+  resultFormat = "JSON"
+
+  withProp("jmhIncludes") { includes = listOf(it) }
+  withProp("jmhParams") { params ->
+    benchmarkParameters = params.split(";").associate { param ->
+      val (name, values) = param.split("=", limit = 2)
+      name to objects.listProperty<String>().value(values.split(","))
+    }
+  }
+}
+
+fun withProp(name: String, action: (String) -> Unit) {
+  val value = providers.gradleProperty(name).orNull
+  if (value != null) {
+    action(value)
+  }
+}
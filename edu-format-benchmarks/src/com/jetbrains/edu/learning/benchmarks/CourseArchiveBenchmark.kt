@@ -0,0 +1,117 @@
+package com.jetbrains.edu.learning.benchmarks
+
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.databind.MapperFeature
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.json.JsonMapper
+import com.fasterxml.jackson.databind.node.ObjectNode
+import com.jetbrains.edu.learning.courseFormat.AnswerPlaceholder
+import com.jetbrains.edu.learning.courseFormat.Course
+import com.jetbrains.edu.learning.courseFormat.EduFormatNames.COURSE_META_FILE
+import com.jetbrains.edu.learning.json.addStudyItemMixins
+import com.jetbrains.edu.learning.json.encrypt.EncryptionModule
+import com.jetbrains.edu.learning.json.encrypt.getAesKey
+import com.jetbrains.edu.learning.json.getCourseMapper
+import com.jetbrains.edu.learning.json.migrate
+import com.jetbrains.edu.learning.json.mixins.AnswerPlaceholderWithAnswerMixin
+import com.jetbrains.edu.learning.json.readCourseJson
+import com.jetbrains.edu.learning.json.setDateFormat
+import org.openjdk.jmh.annotations.*
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.InputStreamReader
+import java.io.OutputStreamWriter
+import java.io.Reader
+import java.io.StringReader
+import java.util.concurrent.TimeUnit
+import java.util.zip.ZipEntry
+import java.util.zip.ZipInputStream
+import java.util.zip.ZipOutputStream
+
+/**
+ * Reading and writing of course archives, i.e. zip files with encrypted `course.json`,
+ * and migration of `course.json` from the oldest supported format version, see [SyntheticCourseGenerator.generateSixthVersionJson]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+open class CourseArchiveBenchmark {
+
+  @Param("4")
+  var sections: Int = 0
+
+  @Param("5")
+  var lessonsPerSection: Int = 0
+
+  @Param("10")
+  var tasksPerLesson: Int = 0
+
+  @Param("5")
+  var filesPerTask: Int = 0
+
+  @Param("1000", "20000")
+  var fileSize: Int = 0
+
+  @Param("5")
+  var binaryFilesRatio: Int = 0
+
+  private lateinit var course: Course
+  private lateinit var writeMapper: ObjectMapper
+  private lateinit var archive: ByteArray
+  private lateinit var oldCourseJsonTree: ObjectNode
+
+  @Setup
+  fun setUp() {
+    val parameters = SyntheticCourseParameters(sections, lessonsPerSection, tasksPerLesson, filesPerTask, fileSize, binaryFilesRatio)
+    course = SyntheticCourseGenerator.generate(parameters)
+    writeMapper = createWriteMapper()
+    archive = writeArchive()
+    checkNotNull(readArchive()) { "Failed to read generated course archive" }
+
+    oldCourseJsonTree = SyntheticCourseGenerator.generateSixthVersionJson(parameters)
+    val oldCourseJson = getCourseMapper().writeValueAsString(oldCourseJsonTree)
+    checkNotNull(readCourseJson { StringReader(oldCourseJson) }) { "Failed to read generated course json of the old format" }
+  }
+
+  @Benchmark
+  fun readArchive(): Course? = readCourseJson { courseJsonReader(archive) }
+
+  @Benchmark
+  fun writeArchive(): ByteArray {
+    val output = ByteArrayOutputStream()
+    ZipOutputStream(output).use { zip ->
+      zip.putNextEntry(ZipEntry(COURSE_META_FILE))
+      writeMapper.writeValue(OutputStreamWriter(zip, Charsets.UTF_8), course)
+      zip.closeEntry()
+    }
+    return output.toByteArray()
+  }
+
+  @Benchmark
+  fun migrateCourseJson(): ObjectNode = migrate(oldCourseJsonTree.deepCopy())
+
+  /**
+   * The same configuration as the one used to create course archives in the plugin
+   */
+  private fun createWriteMapper(): ObjectMapper {
+    val mapper = JsonMapper.builder()
+      .addModule(EncryptionModule(getAesKey()))
+      .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+      .addMixIn(AnswerPlaceholder::class.java, AnswerPlaceholderWithAnswerMixin::class.java)
+      .disable(MapperFeature.AUTO_DETECT_FIELDS)
+      .disable(MapperFeature.AUTO_DETECT_GETTERS)
+      .disable(MapperFeature.AUTO_DETECT_IS_GETTERS)
+      .setDateFormat()
+      .build()
+    mapper.addStudyItemMixins()
+    return mapper
+  }
+
+  private fun courseJsonReader(archive: ByteArray): Reader {
+    val zip = ZipInputStream(ByteArrayInputStream(archive))
+    while (true) {
+      val entry = zip.nextEntry ?: error("No $COURSE_META_FILE in the archive")
+      if (entry.name == COURSE_META_FILE) return InputStreamReader(zip, Charsets.UTF_8)
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.jetbrains.edu.learning.benchmarks
+
+import com.jetbrains.edu.learning.json.encrypt.AES256
+import com.jetbrains.edu.learning.json.encrypt.TEST_AES_KEY
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+/**
+ * Encryption and decryption of a single string, i.e. the cost of encryption per each task file in course archives and yaml configs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class EncryptionBenchmark {
+
+  @Param("100", "10000", "1000000")
+  var textSize: Int = 0
+
+  private lateinit var text: String
+  private lateinit var encryptedText: String
+
+  @Setup
+  fun setUp() {
+    val random = Random(42)
+    text = String(CharArray(textSize) { 'a' + random.nextInt(26) })
+    encryptedText = AES256.encrypt(text, TEST_AES_KEY)
+  }
+
+  @Benchmark
+  fun encrypt(): String = AES256.encrypt(text, TEST_AES_KEY)
+
+  @Benchmark
+  fun decrypt(): String = AES256.decrypt(encryptedText, TEST_AES_KEY)
+}
@@ -0,0 +1,209 @@
+package com.jetbrains.edu.learning.benchmarks
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.node.ObjectNode
+import com.jetbrains.edu.learning.courseFormat.*
+import com.jetbrains.edu.learning.courseFormat.tasks.EduTask
+import kotlin.random.Random
+
+/**
+ * Sizes of a course generated by [SyntheticCourseGenerator].
+ * Every [binaryFilesRatio]-th task file is binary, the others are textual. `0` means that there are no binary files
+ */
+data class SyntheticCourseParameters(
+  val sections: Int,
+  val lessonsPerSection: Int,
+  val tasksPerLesson: Int,
+  val filesPerTask: Int,
+  val fileSize: Int,
+  val binaryFilesRatio: Int = 0
+) {
+  val taskFilesCount: Int get() = sections * lessonsPerSection * tasksPerLesson * filesPerTask
+}
+
+/**
+ * Generates courses of the given size with pseudo-random but reproducible file contents,
+ * so results of different benchmark runs are comparable
+ */
+object SyntheticCourseGenerator {
+
+  private const val SEED = 42
+  private const val PLACEHOLDER_LENGTH = 16
+  private const val UPDATE_DATE = "Jan 1, 1970 3:00:00 AM"
+  private const val ADDITIONAL_MATERIALS = "Edu additional materials"
+
+  private val WORDS = listOf("fun", "val", "var", "class", "return", "if", "else", "for", "while", "println", "main", "args",
+                             "String", "Int", "listOf", "map", "filter", "value", "result", "index")
+
+  fun generate(parameters: SyntheticCourseParameters): EduCourse {
+    val random = Random(SEED)
+    val course = EduCourse()
+    course.name = "Synthetic course"
+    course.description = "Course generated for benchmarks"
+    course.languageId = "kotlin"
+    course.languageCode = "en"
+
+    var fileIndex = 0
+    for (sectionIndex in 1..parameters.sections) {
+      val section = Section()
+      section.name = "section$sectionIndex"
+      for (lessonIndex in 1..parameters.lessonsPerSection) {
+        val lesson = if (lessonIndex % 2 == 0) FrameworkLesson() else Lesson()
+        lesson.name = "lesson$lessonIndex"
+        for (taskIndex in 1..parameters.tasksPerLesson) {
+          val task = EduTask("task$taskIndex")
+          task.descriptionText = generateText(random, parameters.fileSize)
+          task.descriptionFormat = DescriptionFormat.MD
+          for (taskFileIndex in 1..parameters.filesPerTask) {
+            fileIndex++
+            val isBinary = parameters.binaryFilesRatio > 0 && fileIndex % parameters.binaryFilesRatio == 0
+            val taskFile = if (isBinary) {
+              TaskFile("src/image$taskFileIndex.png", InMemoryBinaryContents(random.nextBytes(parameters.fileSize)))
+            }
+            else {
+              TaskFile("src/File$taskFileIndex.kt", InMemoryTextualContents(generateText(random, parameters.fileSize)))
+            }
+            task.addTaskFile(taskFile)
+          }
+          lesson.addTask(task)
+        }
+        section.addLesson(lesson)
+      }
+      course.addSection(section)
+    }
+    course.init(false)
+    return course
+  }
+
+  /**
+   * Generates `course.json` of the given size in the sixth format version, the oldest one which can be migrated.
+   * The structure is the same as the one of `*_sixth_version.json` files in `testData/localCourses` used by migration tests:
+   * task, test and additional files are stored separately, file paths don't include task roots,
+   * and additional files of the course are stored in a special lesson.
+   * Every task file has a placeholder, and placeholders of framework lessons depend on the previous tasks
+   */
+  fun generateSixthVersionJson(parameters: SyntheticCourseParameters): ObjectNode {
+    val random = Random(SEED)
+    val mapper = ObjectMapper()
+    val course = mapper.createObjectNode()
+    course.put("summary", "Course generated for benchmarks")
+    course.put("title", "Synthetic course")
+    course.put("programming_language", "kotlin")
+    course.put("language", "en")
+    course.put("version", 6)
+
+    val courseItems = course.putArray("items")
+    for (sectionIndex in 1..parameters.sections) {
+      val section = courseItems.addObject()
+      section.put("title", "section$sectionIndex")
+      section.put("id", 0)
+      section.put("update_date", UPDATE_DATE)
+      val sectionItems = section.putArray("items")
+      for (lessonIndex in 1..parameters.lessonsPerSection) {
+        val isFramework = lessonIndex % 2 == 0
+        val lesson = sectionItems.addObject()
+        lesson.put("id", 0)
+        lesson.put("update_date", UPDATE_DATE)
+        lesson.put("title", "lesson$lessonIndex")
+        val tasks = lesson.putArray("task_list")
+        for (taskIndex in 1..parameters.tasksPerLesson) {
+          val dependency = if (isFramework && taskIndex > 1) {
+            mapper.createObjectNode()
+              .put("section", "section$sectionIndex")
+              .put("lesson", "lesson$lessonIndex")
+              .put("task", "task${taskIndex - 1}")
+          }
+          else {
+            null
+          }
+          tasks.add(generateSixthVersionTask(mapper, random, "task$taskIndex", parameters, dependency))
+        }
+        lesson.put("type", if (isFramework) "framework" else "lesson")
+      }
+      section.put("type", "section")
+    }
+    courseItems.add(generateSixthVersionAdditionalMaterials(mapper, random, parameters))
+    return course
+  }
+
+  private fun generateSixthVersionTask(
+    mapper: ObjectMapper,
+    random: Random,
+    name: String,
+    parameters: SyntheticCourseParameters,
+    dependency: ObjectNode?
+  ): ObjectNode {
+    val task = mapper.createObjectNode()
+    task.put("name", name)
+    task.put("stepic_id", 0)
+
+    val taskFiles = task.putObject("task_files")
+    val testFiles = task.putObject("test_files")
+    for (taskFileIndex in 1..parameters.filesPerTask) {
+      if (taskFileIndex == parameters.filesPerTask && parameters.filesPerTask > 1) {
+        testFiles.put("Tests.kt", generateText(random, parameters.fileSize))
+        continue
+      }
+      val path = "File$taskFileIndex.kt"
+      val text = generateText(random, parameters.fileSize)
+      val placeholderLength = minOf(PLACEHOLDER_LENGTH, text.length)
+      val placeholder = mapper.createObjectNode()
+      placeholder.put("offset", 0)
+      placeholder.put("length", placeholderLength)
+      if (dependency != null) {
+        placeholder.set<JsonNode>("dependency", dependency.deepCopy().put("file", path).put("placeholder", 0).put("is_visible", false))
+      }
+      placeholder.putArray("hints")
+      placeholder.put("possible_answer", text.substring(0, placeholderLength))
+      placeholder.put("placeholder_text", "TODO()")
+
+      val taskFile = taskFiles.putObject(path)
+      taskFile.put("name", path)
+      taskFile.put("text", text)
+      taskFile.putArray("placeholders").add(placeholder)
+    }
+
+    task.put("description_text", generateText(random, parameters.fileSize))
+    task.put("description_format", "md")
+    task.putObject("additional_files")
+    task.put("update_date", UPDATE_DATE)
+    task.putObject("feedback_link").put("link_type", "STEPIK")
+    task.put("task_type", "edu")
+    return task
+  }
+
+  private fun generateSixthVersionAdditionalMaterials(mapper: ObjectMapper, random: Random, parameters: SyntheticCourseParameters): ObjectNode {
+    val task = mapper.createObjectNode()
+    task.put("name", ADDITIONAL_MATERIALS)
+    task.put("stepic_id", 0)
+    val utilFile = task.putObject("task_files").putObject("util/src/testUtils.kt")
+    utilFile.put("name", "util/src/testUtils.kt")
+    utilFile.put("text", generateText(random, parameters.fileSize))
+    utilFile.putArray("placeholders")
+    task.putObject("test_files")
+    task.put("description_format", "md")
+    task.putObject("additional_files").put("build.gradle", generateText(random, parameters.fileSize))
+    task.put("update_date", UPDATE_DATE)
+    task.putObject("feedback_link").put("link_type", "STEPIK")
+    task.put("task_type", "edu")
+
+    val lesson = mapper.createObjectNode()
+    lesson.put("id", 0)
+    lesson.put("update_date", UPDATE_DATE)
+    lesson.put("title", ADDITIONAL_MATERIALS)
+    lesson.putArray("task_list").add(task)
+    lesson.put("type", "lesson")
+    return lesson
+  }
+
+  private fun generateText(random: Random, size: Int): String {
+    val text = StringBuilder(size + 16)
+    while (text.length < size) {
+      text.append(WORDS[random.nextInt(WORDS.size)])
+      text.append(if (random.nextInt(8) == 0) '\n' else ' ')
+    }
+    text.setLength(size)
+    return text.toString()
+  }
+}
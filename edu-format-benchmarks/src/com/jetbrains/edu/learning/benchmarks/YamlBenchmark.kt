@@ -0,0 +1,69 @@
+package com.jetbrains.edu.learning.benchmarks
+
+import com.jetbrains.edu.learning.courseFormat.tasks.Task
+import com.jetbrains.edu.learning.yaml.YamlDeserializer.deserializeTask
+import com.jetbrains.edu.learning.yaml.YamlMapper
+import org.openjdk.jmh.annotations.*
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Serialization and deserialization of `task-info.yaml` configs of all course tasks.
+ * Student configs are used since they contain encrypted texts of task files
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+open class YamlBenchmark {
+
+  @Param("2")
+  var sections: Int = 0
+
+  @Param("5")
+  var lessonsPerSection: Int = 0
+
+  @Param("10")
+  var tasksPerLesson: Int = 0
+
+  @Param("5")
+  var filesPerTask: Int = 0
+
+  @Param("1000", "20000")
+  var fileSize: Int = 0
+
+  private lateinit var tasks: List<Task>
+  private lateinit var configs: List<String>
+
+  @Setup
+  fun setUp() {
+    val parameters = SyntheticCourseParameters(sections, lessonsPerSection, tasksPerLesson, filesPerTask, fileSize)
+    val course = SyntheticCourseGenerator.generate(parameters)
+    tasks = mutableListOf<Task>().also { tasks -> course.visitTasks { tasks += it } }
+    configs = tasks.map { serialize(it) }
+  }
+
+  @Benchmark
+  fun serializeTasks(blackhole: Blackhole) {
+    for (task in tasks) {
+      blackhole.consume(serialize(task))
+    }
+  }
+
+  @Benchmark
+  fun deserializeTasks(blackhole: Blackhole) {
+    for (config in configs) {
+      blackhole.consume(deserialize(config))
+    }
+  }
+
+  @Benchmark
+  fun roundTrip(blackhole: Blackhole) {
+    for (task in tasks) {
+      blackhole.consume(deserialize(serialize(task)))
+    }
+  }
+
+  private fun serialize(task: Task): String = YamlMapper.STUDENT_MAPPER_WITH_ENCRYPTION.writeValueAsString(task)
+
+  private fun deserialize(config: String): Task = YamlMapper.STUDENT_MAPPER_WITH_ENCRYPTION.deserializeTask(config)
+}
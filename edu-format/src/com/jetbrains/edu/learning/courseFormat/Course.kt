@@ -3,6 +3,7 @@ package com.jetbrains.edu.learning.courseFormat
 import com.jetbrains.edu.learning.courseFormat.EduFormatNames.DEFAULT_ENVIRONMENT
 import com.jetbrains.edu.learning.courseFormat.EduFormatNames.PYCHARM
 import java.util.*
+import java.util.concurrent.atomic.AtomicLong
 
 /**
  * To introduce new course it's required to:
@@ -15,6 +16,10 @@ abstract class Course : LessonContainer() {
   var environment: String = DEFAULT_ENVIRONMENT
   var environmentSettings: Map<String, String> = mapOf() // here we store a map with keys understandable by specific course builders
   var courseMode: CourseMode = CourseMode.STUDENT //this field is used to distinguish study and course creator modes
+    set(value) {
+      field = value
+      incStructureModificationCount()
+    }
   var solutionsHidden: Boolean = false
 
   @Transient
@@ -39,6 +44,23 @@ abstract class Course : LessonContainer() {
   @Transient
   var isLocal: Boolean = false
 
+  @Transient
+  private val structureModificationCounter = AtomicLong()
+
+  /**
+   * Counts changes of the course structure: added, removed and renamed study items and files of tasks,
+   * switches of the current task in framework lessons and changes of [courseMode].
+   *
+   * Allows caching data derived from the course structure, for example, which task file corresponds to a file on disk.
+   * Such data is valid while the count stays the same
+   */
+  val structureModificationCount: Long
+    get() = structureModificationCounter.get()
+
+  internal fun incStructureModificationCount() {
+    structureModificationCounter.incrementAndGet()
+  }
+
   /**
    * Whether YAML files for tasks (task-info.yaml) should have 'text' fields with the contents of task files.
    * Normally, the file contents should not be written in YAML.
@@ -4,6 +4,16 @@ import java.util.concurrent.atomic.AtomicReference
 
 open class EduFile {
   var name: String = ""
+    set(value) {
+      field = value
+      attachedCourse?.incStructureModificationCount()
+    }
+
+  /**
+   * The course this file belongs to, or `null` if the file isn't attached to any course yet
+   */
+  internal open val attachedCourse: Course?
+    get() = null
 
   /**
    * The contents of this edu file encoded as a string.
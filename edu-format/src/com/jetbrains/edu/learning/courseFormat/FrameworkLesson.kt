@@ -17,6 +17,10 @@ class FrameworkLesson() : Lesson() {
   }
 
   var currentTaskIndex: Int = 0
+    set(value) {
+      field = value
+      structureChanged()
+    }
   var isTemplateBased: Boolean = true
 
   /**
@@ -5,6 +5,7 @@ abstract class ItemContainer : StudyItem() {
     get() = _items
     set(value) {
       _items = value.toMutableList()
+      structureChanged()
     }
 
   private var _items = mutableListOf<StudyItem>()
@@ -22,14 +23,17 @@ abstract class ItemContainer : StudyItem() {
 
   fun addItem(item: StudyItem) {
     _items.add(item)
+    structureChanged()
   }
 
   fun addItem(index: Int, item: StudyItem) {
     _items.add(index, item)
+    structureChanged()
   }
 
   fun removeItem(item: StudyItem) {
     _items.remove(item)
+    structureChanged()
   }
 
   open fun sortItems() {
@@ -19,6 +19,10 @@ abstract class StudyItem() {
   // from 1 to number of items
   var index: Int = -1
   var name: String = ""
+    set(value) {
+      field = value
+      structureChanged()
+    }
   var updateDate: Date = Date(0)
   var id: Int = 0 // id on remote resource (Stepik, CheckIO, Codeforces, Marketplace)
   var contentTags: List<String> = listOf()
@@ -49,6 +53,25 @@ abstract class StudyItem() {
 
   abstract fun init(parentItem: ItemContainer, isRestarted: Boolean)
 
+  /**
+   * The course this item belongs to, or `null` if the item isn't attached to any course yet, e.g. while it's being deserialized
+   */
+  internal val attachedCourse: Course?
+    get() {
+      var item: StudyItem = this
+      while (item !is Course) {
+        item = item._parent ?: return null
+      }
+      return item
+    }
+
+  /**
+   * Notifies the course this item belongs to about a change of its structure, see [Course.structureModificationCount]
+   */
+  internal fun structureChanged() {
+    attachedCourse?.incStructureModificationCount()
+  }
+
   fun generateId() {
     if (id == 0) {
       id = System.identityHashCode(this)
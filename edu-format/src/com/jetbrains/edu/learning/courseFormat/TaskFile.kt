@@ -30,12 +30,37 @@ class TaskFile : EduFile {
     get() = _answerPlaceholders
     set(value) {
       _answerPlaceholders = value.toMutableList()
+      placeholdersChanged()
     }
 
   private var _answerPlaceholders = mutableListOf<AnswerPlaceholder>()
+
+  /**
+   * Placeholders sorted by offset. Cached until placeholders are added or removed, or [placeholdersMoved] is called
+   */
+  @Transient
+  private var _answerPlaceholdersByOffset: List<AnswerPlaceholder>? = null
+
+  /**
+   * Incremented when placeholders are added or removed
+   */
+  @Transient
+  private var placeholdersModificationCount: Int = 0
+
+  /**
+   * Placeholders sorted by offset without changing their indices, unlike [sortAnswerPlaceholders]
+   */
+  val answerPlaceholdersByOffset: List<AnswerPlaceholder>
+    get() = _answerPlaceholdersByOffset ?: _answerPlaceholders.sortedWith(AnswerPlaceholderComparator).also {
+      _answerPlaceholdersByOffset = it
+    }
+
   @Transient
   private var _task: Task? = null
 
+  override val attachedCourse: Course?
+    get() = _task?.attachedCourse
+
   var task: Task
     get() = _task ?: error("Task is null for TaskFile $name")
     set(value) {
@@ -47,24 +72,96 @@ class TaskFile : EduFile {
     for (answerPlaceholder in _answerPlaceholders) {
       answerPlaceholder.init(this, isRestarted)
     }
+    placeholdersChanged()
 
     sortAnswerPlaceholders()
   }
 
   fun addAnswerPlaceholder(answerPlaceholder: AnswerPlaceholder) {
     _answerPlaceholders.add(answerPlaceholder)
+    placeholdersChanged()
   }
 
   fun removeAnswerPlaceholder(answerPlaceholder: AnswerPlaceholder) {
     _answerPlaceholders.remove(answerPlaceholder)
+    placeholdersChanged()
   }
 
   fun getAnswerPlaceholder(offset: Int): AnswerPlaceholder? {
     return _answerPlaceholders.firstOrNull { offset in it.offset..it.endOffset }
   }
 
+  /**
+   * Returns placeholders which intersect or touch [startOffset, endOffset] range sorted by offset.
+   * Placeholders are found with binary search, so placeholders are assumed not to overlap each other
+   */
+  fun getAnswerPlaceholders(startOffset: Int, endOffset: Int): List<AnswerPlaceholder> {
+    val placeholders = answerPlaceholdersByOffset
+    var from = placeholders.firstIndex { it.offset >= startOffset }
+    while (from > 0 && placeholders[from - 1].endOffset >= startOffset) {
+      from--
+    }
+    val to = placeholders.firstIndex { it.offset > endOffset }
+    return if (from < to) placeholders.subList(from, to) else emptyList()
+  }
+
+  /**
+   * Index of the first element of a list sorted by offset satisfying monotonic [predicate] or size of the list
+   */
+  private inline fun List<AnswerPlaceholder>.firstIndex(predicate: (AnswerPlaceholder) -> Boolean): Int {
+    var low = 0
+    var high = size
+    while (low < high) {
+      val middle = (low + high) ushr 1
+      if (predicate(this[middle])) high = middle else low = middle + 1
+    }
+    return low
+  }
+
+  /**
+   * Runs [action] which shifts placeholders along with a document change.
+   * Document changes usually keep the order of placeholders, so placeholders sorted by offset are reused after [action]:
+   * they are only checked to be still sorted and sorted again otherwise.
+   * If placeholders were added or removed by [action], the sorted list is built again on the next access
+   */
+  fun <T> movePlaceholdersKeepingOrder(action: () -> T): T {
+    val placeholdersByOffset = answerPlaceholdersByOffset
+    val modificationCount = placeholdersModificationCount
+    try {
+      return action()
+    }
+    finally {
+      _answerPlaceholdersByOffset = when {
+        placeholdersModificationCount != modificationCount -> null
+        placeholdersByOffset.isSortedByOffset() -> placeholdersByOffset
+        else -> placeholdersByOffset.sortedWith(AnswerPlaceholderComparator)
+      }
+    }
+  }
+
+  private fun List<AnswerPlaceholder>.isSortedByOffset(): Boolean {
+    for (i in 1 until size) {
+      if (AnswerPlaceholderComparator.compare(this[i - 1], this[i]) > 0) return false
+    }
+    return true
+  }
+
+  /**
+   * Should be called after offsets of placeholders are changed outside of [movePlaceholdersKeepingOrder],
+   * so placeholders are sorted by offset again on the next access
+   */
+  fun placeholdersMoved() {
+    _answerPlaceholdersByOffset = null
+  }
+
+  private fun placeholdersChanged() {
+    placeholdersModificationCount++
+    _answerPlaceholdersByOffset = null
+  }
+
   fun removeAllPlaceholders() {
     _answerPlaceholders.clear()
+    placeholdersChanged()
   }
 
   fun sortAnswerPlaceholders() {
@@ -23,6 +23,7 @@ abstract class Task : StudyItem {
     set(value) {
       require(value is LinkedHashMap<String, TaskFile>) // taskFiles is supposed to be ordered
       _taskFiles = value
+      structureChanged()
     }
 
   var feedback: CheckFeedback? = null
@@ -94,12 +95,14 @@ abstract class Task : StudyItem {
     taskFile.name = name
     taskFile.isVisible = isVisible
     _taskFiles[name] = taskFile
+    structureChanged()
     return taskFile
   }
 
   fun addTaskFile(taskFile: TaskFile) {
     taskFile.task = this
     _taskFiles[taskFile.name] = taskFile
+    structureChanged()
   }
 
   fun addTaskFile(taskFile: TaskFile, position: Int) {
@@ -120,6 +123,7 @@ abstract class Task : StudyItem {
       newTaskFileMap[taskFile.name] = taskFile
     }
     _taskFiles = newTaskFileMap
+    structureChanged()
   }
 
   //used for yaml deserialization
@@ -128,6 +132,7 @@ abstract class Task : StudyItem {
     for (taskFile in taskFiles) {
       _taskFiles[taskFile.name] = taskFile
     }
+    structureChanged()
   }
 
   fun getTaskFileValues(): Collection<TaskFile> {
@@ -135,7 +140,9 @@ abstract class Task : StudyItem {
   }
 
   fun removeTaskFile(taskFile: String): TaskFile? {
-    return _taskFiles.remove(taskFile)
+    val removedTaskFile = _taskFiles.remove(taskFile)
+    structureChanged()
+    return removedTaskFile
   }
 
   fun taskFileIndex(taskFile: String): Int? {
@@ -2,6 +2,7 @@
 
 package com.jetbrains.edu.learning.json
 
+import com.fasterxml.jackson.core.JsonParser
 import com.fasterxml.jackson.core.JsonToken
 import com.fasterxml.jackson.databind.DeserializationFeature
 import com.fasterxml.jackson.databind.MapperFeature
@@ -34,15 +35,22 @@ private class CourseJsonParsingException(message: String): Exception(message)
 fun readCourseJson(reader: () -> Reader): Course? {
   return try {
     val courseMapper = getCourseMapper()
-    val isArchiveEncrypted = reader().use { currentReader ->
-      isArchiveEncrypted(currentReader, courseMapper)
+    val (version, courseType) = reader().use { currentReader ->
+      getFormatVersionAndCourseTypeFromJson(currentReader, courseMapper)
     }
-    courseMapper.configureCourseMapper(isArchiveEncrypted)
-    var courseNode = reader().use { currentReader ->
-      courseMapper.readTree(currentReader) as ObjectNode
+    courseMapper.configureCourseMapper(isArchiveEncrypted(version, courseType))
+    if (isMigrationNeeded(version, JSON_FORMAT_VERSION)) {
+      var courseNode = reader().use { currentReader ->
+        courseMapper.readTree(currentReader) as ObjectNode
+      }
+      courseNode = migrate(courseNode)
+      courseMapper.treeToValue<Course>(courseNode)
     }
-    courseNode = migrate(courseNode)
-    courseMapper.treeToValue(courseNode)
+    else {
+      reader().use { currentReader ->
+        readCourseJsonWithoutMigration(currentReader, courseMapper, courseType)
+      }
+    }.also { it.checkFileTexts() }
   }
   catch (e: IOException) {
     LOG.severe("Failed to read course json: ${e.message}")
@@ -54,14 +62,82 @@ fun readCourseJson(reader: () -> Reader): Course? {
   }
 }
 
-@Throws(IOException::class, CourseJsonParsingException::class)
-private fun isArchiveEncrypted(reader: Reader, courseMapper: ObjectMapper): Boolean {
-  val (version, courseType) = getFormatVersionAndCourseTypeFromJson(reader, courseMapper)
+/**
+ * Reads only the course structure from `course.json` without texts of course files.
+ * It's enough to show the course info, and it doesn't require decrypting and keeping in memory contents of all files.
+ * Contents of files are loaded with [reader] on access, see [bindFileContentsToCourseJson],
+ * so the source of `course.json` should be available as long as the course is used.
+ *
+ * If `course.json` requires migration or contains tasks which can't be read, the course is read completely
+ */
+fun readCourseJsonSkeleton(reader: () -> Reader): Course? {
+  return try {
+    val courseMapper = getCourseMapper()
+    val (version, courseType) = reader().use { currentReader ->
+      getFormatVersionAndCourseTypeFromJson(currentReader, courseMapper)
+    }
+    if (isMigrationNeeded(version, JSON_FORMAT_VERSION)) return readCourseJson(reader)
 
+    courseMapper.configureCourseMapper(isArchiveEncrypted(version, courseType))
+    val filter = CourseSkeletonFilter()
+    val course = reader().use { currentReader ->
+      val parser = skipFileTexts(courseMapper.createParser(currentReader), filter)
+      readCourseJsonWithoutMigration(parser, courseMapper, courseType)
+    }
+    // files are located in `course.json` by positions of their tasks, so they can't be found if some tasks were skipped
+    var taskCount = 0
+    course.visitTasks { taskCount++ }
+    if (filter.taskCount != taskCount) return readCourseJson(reader)
+    bindFileContentsToCourseJson(course, courseMapper, reader)
+    course
+  }
+  catch (e: IOException) {
+    LOG.severe("Failed to read course json: ${e.message}")
+    null
+  }
+  catch (e: CourseJsonParsingException) {
+    LOG.severe("Course json format error: ${e.message}")
+    null
+  }
+}
+
+/**
+ * Texts of files are skipped only by [readCourseJsonSkeleton], so a file without text means that `course.json` is corrupted
+ */
+@Throws(CourseJsonParsingException::class)
+private fun Course.checkFileTexts() {
+  val files = additionalFiles.toMutableList<EduFile>()
+  visitTasks { task -> files += task.taskFiles.values }
+  val file = files.firstOrNull { it.isTextMissing } ?: return
+  throw CourseJsonParsingException("Text of file `${file.name}` is missing")
+}
+
+private fun isArchiveEncrypted(version: Int, courseType: String?): Boolean {
   if (version >= 12) return true
   return courseType == MARKETPLACE
 }
 
+/**
+ * Deserializes course directly from the token stream of [reader].
+ * Unlike [CourseDeserializer], it doesn't build json tree for the whole course since course type is already known,
+ * so the memory consumption doesn't include the tree for the whole `course.json`.
+ *
+ * Should be used only if the course json doesn't need migration
+ */
+@Throws(IOException::class)
+private fun readCourseJsonWithoutMigration(reader: Reader, courseMapper: ObjectMapper, courseType: String?): Course {
+  return readCourseJsonWithoutMigration(courseMapper.createParser(reader), courseMapper, courseType)
+}
+
+@Throws(IOException::class)
+private fun readCourseJsonWithoutMigration(parser: JsonParser, courseMapper: ObjectMapper, courseType: String?): Course {
+  val course = courseMapper.readValue(parser, EduCourse::class.java)
+  if (courseType == MARKETPLACE) {
+    course.isMarketplace = true
+  }
+  return course
+}
+
 @Throws(IOException::class, CourseJsonParsingException::class)
 private fun getFormatVersionAndCourseTypeFromJson(
   reader: Reader,
@@ -105,28 +181,37 @@ fun migrate(jsonObject: ObjectNode): ObjectNode {
 
 @VisibleForTesting
 fun migrate(node: ObjectNode, maxVersion: Int): ObjectNode {
-  var jsonObject = node
-  val jsonVersion = jsonObject.get(VERSION)
-  var version = jsonVersion?.asInt() ?: 1
-
-  while (version < maxVersion) {
-    var converter: JsonLocalCourseConverter? = null
-    when (version) {
-      6 -> converter = ToSeventhVersionLocalCourseConverter()
-      7 -> converter = To8VersionLocalCourseConverter()
-      8 -> converter = To9VersionLocalCourseConverter()
-      9 -> converter = To10VersionLocalCourseConverter()
-      10 -> converter = To11VersionLocalCourseConverter()
-      11 -> converter = To12VersionLocalCourseConverter()
-    }
-    if (converter != null) {
-      jsonObject = converter.convert(jsonObject)
-    }
-    version++
+  val version = node.get(VERSION)?.asInt() ?: 1
+  val converters = getConverters(version, maxVersion)
+  if (converters.isEmpty()) return node
+  return FusedLocalCourseConverter(converters).convert(node)
+}
+
+/**
+ * Returns converters which should be applied one by one to migrate course json from [version] to [maxVersion]
+ */
+@VisibleForTesting
+fun getConverters(version: Int, maxVersion: Int): List<JsonLocalCourseConverter> {
+  return (version until maxVersion).mapNotNull { getConverter(it) }
+}
+
+/**
+ * Returns converter from [version] to the next one or `null` if json format doesn't require any changes
+ */
+private fun getConverter(version: Int): JsonLocalCourseConverter? {
+  return when (version) {
+    6 -> ToSeventhVersionLocalCourseConverter()
+    7 -> To8VersionLocalCourseConverter()
+    8 -> To9VersionLocalCourseConverter()
+    9 -> To10VersionLocalCourseConverter()
+    10 -> To11VersionLocalCourseConverter()
+    11 -> To12VersionLocalCourseConverter()
+    else -> null
   }
-  return jsonObject
 }
 
+private fun isMigrationNeeded(version: Int, maxVersion: Int): Boolean = getConverters(version, maxVersion).isNotEmpty()
+
 fun getCourseMapper(): ObjectMapper {
   return JsonMapper.builder()
     .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
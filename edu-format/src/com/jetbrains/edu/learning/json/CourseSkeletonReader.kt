@@ -0,0 +1,177 @@
+package com.jetbrains.edu.learning.json
+
+import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonPointer
+import com.fasterxml.jackson.core.JsonToken
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate
+import com.fasterxml.jackson.core.filter.TokenFilter
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.jetbrains.edu.learning.courseFormat.*
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.ADDITIONAL_FILES
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.FILES
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.ITEMS
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.TASK_LIST
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.TEXT
+import com.jetbrains.edu.learning.json.mixins.isTextMissing
+import java.io.Reader
+import java.lang.ref.SoftReference
+
+/**
+ * Wraps [parser] to skip texts of course files, i.e. task files and additional files.
+ * Skipped texts are neither decrypted nor decoded.
+ * Tasks met in the json are counted by [filter], so it's possible to check that all of them were read
+ */
+internal fun skipFileTexts(parser: JsonParser, filter: CourseSkeletonFilter): JsonParser {
+  return FilteringParserDelegate(parser, filter, TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true)
+}
+
+/**
+ * Replaces contents of all course files with contents loaded from `course.json` provided by [reader] on access.
+ * Every file is located in `course.json` by its json pointer, e.g. `/items/0/task_list/1/files/Main.kt`,
+ * so file locations are valid only if [course] contains all the tasks of `course.json` in the same order.
+ *
+ * Contents of all files are read at once by [courseMapper] on the first access to any of them,
+ * and they are kept only while there is enough memory.
+ * Contents released by GC are read again on the next access
+ */
+internal fun bindFileContentsToCourseJson(course: Course, courseMapper: ObjectMapper, reader: () -> Reader) {
+  val files = course.collectFileLocations()
+  val source = CourseJsonFileContents(courseMapper, reader, files.keys)
+  for ((location, file) in files) {
+    file.contents = when (file.contents) {
+      is TextualContents -> TextualContentsFromCourseJson(source, location)
+      is BinaryContents -> BinaryContentsFromCourseJson(source, location)
+      is UndeterminedContents -> UndeterminedContentsFromCourseJson(source, location)
+    }
+  }
+}
+
+/**
+ * All course files by their json pointers in `course.json`
+ */
+private fun Course.collectFileLocations(): Map<String, EduFile> {
+  val files = LinkedHashMap<String, EduFile>()
+  for ((index, file) in additionalFiles.withIndex()) {
+    files["".property(ADDITIONAL_FILES).element(index)] = file
+  }
+
+  fun collectLessonFiles(lesson: Lesson, lessonLocation: String) {
+    for ((taskIndex, task) in lesson.taskList.withIndex()) {
+      val filesLocation = lessonLocation.property(TASK_LIST).element(taskIndex).property(FILES)
+      for ((name, taskFile) in task.taskFiles) {
+        files[filesLocation.property(name)] = taskFile
+      }
+    }
+  }
+
+  for ((index, item) in items.withIndex()) {
+    val itemLocation = "".property(ITEMS).element(index)
+    when (item) {
+      is Section -> {
+        for ((lessonIndex, lesson) in item.lessons.withIndex()) {
+          collectLessonFiles(lesson, itemLocation.property(ITEMS).element(lessonIndex))
+        }
+      }
+      is Lesson -> collectLessonFiles(item, itemLocation)
+    }
+  }
+  return files
+}
+
+/**
+ * Appends a property segment escaped the same way as [JsonPointer] does it
+ */
+private fun String.property(name: String): String = "$this/${name.replace("~", "~0").replace("/", "~1")}"
+
+private fun String.element(index: Int): String = "$this/$index"
+
+private class CourseJsonFileContents(
+  private val courseMapper: ObjectMapper,
+  private val reader: () -> Reader,
+  private val locations: Set<String>
+) {
+
+  private var contents: SoftReference<Map<String, FileContents>>? = null
+
+  @Synchronized
+  operator fun get(location: String): FileContents {
+    val allContents = contents?.get() ?: readContents().also { contents = SoftReference(it) }
+    return allContents[location] ?: error("Failed to read contents of course file $location")
+  }
+
+  /**
+   * Reads contents of all course files in a single pass without building json tree for the whole course
+   */
+  private fun readContents(): Map<String, FileContents> {
+    val allContents = HashMap<String, FileContents>(locations.size)
+    reader().use { currentReader ->
+      courseMapper.createParser(currentReader).use { parser ->
+        while (parser.nextToken() != null) {
+          if (!parser.hasToken(JsonToken.START_OBJECT)) continue
+          // a file object is a value of the `files` object or an element of the `additional_files` array
+          val location = parser.parsingContext.parent?.pathAsPointer()?.toString() ?: continue
+          if (location !in locations) continue
+          val file = courseMapper.readValue(parser, EduFile::class.java)
+          if (file.isTextMissing) error("Text of course file $location is missing")
+          allContents[location] = file.contents
+        }
+      }
+    }
+    return allContents
+  }
+}
+
+private class TextualContentsFromCourseJson(private val source: CourseJsonFileContents, private val location: String) : TextualContents {
+  override val text: String
+    get() = (source[location] as TextualContents).text
+}
+
+private class BinaryContentsFromCourseJson(private val source: CourseJsonFileContents, private val location: String) : BinaryContents {
+  override val bytes: ByteArray
+    get() = (source[location] as BinaryContents).bytes
+}
+
+private class UndeterminedContentsFromCourseJson(private val source: CourseJsonFileContents, private val location: String) : UndeterminedContents {
+  override val textualRepresentation: String
+    get() = source[location].textualRepresentation
+}
+
+/**
+ * Filters of `course.json` tokens follow the structure of a course down to files:
+ * course -> sections -> lessons -> tasks -> task files, and course -> additional files.
+ * Everything outside of this path is included as is
+ */
+internal class CourseSkeletonFilter : TokenFilter() {
+
+  /**
+   * Number of tasks in `course.json`, including ones which can't be read
+   */
+  var taskCount: Int = 0
+    private set
+
+  private val taskListFilter = object : TokenFilter() {
+    override fun includeElement(index: Int): TokenFilter {
+      taskCount++
+      return this@CourseSkeletonFilter
+    }
+  }
+
+  override fun includeProperty(name: String): TokenFilter = when (name) {
+    ITEMS -> this
+    TASK_LIST -> taskListFilter
+    FILES, ADDITIONAL_FILES -> FilesFilter
+    else -> INCLUDE_ALL
+  }
+}
+
+private object FilesFilter : TokenFilter() {
+  // task files are stored as a map from names to files
+  override fun includeProperty(name: String): TokenFilter = FileFilter
+
+  // additional files are stored as a list
+  override fun includeElement(index: Int): TokenFilter = FileFilter
+}
+
+private object FileFilter : TokenFilter() {
+  override fun includeProperty(name: String): TokenFilter? = if (name == TEXT) null else INCLUDE_ALL
+}
@@ -2,12 +2,13 @@ package com.jetbrains.edu.learning.json.encrypt
 
 import com.fasterxml.jackson.core.JsonGenerator
 import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
 import com.fasterxml.jackson.core.Version
 import com.fasterxml.jackson.databind.*
 import com.fasterxml.jackson.databind.introspect.Annotated
 import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector
-import com.fasterxml.jackson.databind.node.TextNode
 import com.jetbrains.edu.learning.courseFormat.logger
+import java.nio.ByteBuffer
 import java.util.*
 import javax.crypto.Cipher
 import javax.crypto.spec.IvParameterSpec
@@ -62,9 +63,12 @@ private class EncryptedJsonSerializer(private val aesKey: String) : JsonSerializ
 }
 
 private class EncryptedJsonDeserializer(private val aesKey: String) : JsonDeserializer<String>() {
-  override fun deserialize(parser: JsonParser, context: DeserializationContext?): String {
-    val node: TextNode = parser.readValueAsTree()
-    return AES256.decrypt(node.asText(), aesKey)
+  override fun deserialize(parser: JsonParser, context: DeserializationContext): String {
+    if (parser.currentToken != JsonToken.VALUE_STRING) {
+      return context.handleUnexpectedToken(String::class.java, parser) as String
+    }
+    // decrypt straight from the parser buffer without creating an intermediate string or tree node
+    return AES256.decrypt(parser.textCharacters, parser.textOffset, parser.textLength, aesKey)
   }
 }
 
@@ -72,23 +76,91 @@ object AES256 {
   private val encoder = Base64.getEncoder()
   private val decoder = Base64.getDecoder()
 
-  private fun cipher(opmode: Int, secretKey: String): Cipher {
-    require(secretKey.length == 32) { "SecretKey length is not 32 chars" }
-    val cipher = Cipher.getInstance("AES/CBC/PKCS5Padding")
-    val secretKeySpec = SecretKeySpec(secretKey.toByteArray(Charsets.UTF_8), "AES")
-    val iv = IvParameterSpec(secretKey.substring(0, 16).toByteArray(Charsets.UTF_8))
-    cipher.init(opmode, secretKeySpec, iv)
-    return cipher
-  }
+  /**
+   * Creating and initializing of a cipher is much more expensive than encryption of a short string,
+   * and there is an encrypted string per each task file, so ciphers are cached per thread and reused
+   */
+  private val ciphers: ThreadLocal<CipherCache> = ThreadLocal.withInitial { CipherCache() }
 
   fun encrypt(str: String, secretKey: String): String {
-    val encrypted = cipher(Cipher.ENCRYPT_MODE, secretKey).doFinal(str.toByteArray(Charsets.UTF_8))
-    return String(encoder.encode(encrypted), Charsets.UTF_8)
+    val encrypted = ciphers.get().cipher(Cipher.ENCRYPT_MODE, secretKey).doFinal(str.toByteArray(Charsets.UTF_8))
+    return encoder.encodeToString(encrypted)
   }
 
   fun decrypt(str: String, secretKey: String): String {
-    val byteStr = decoder.decode(str.toByteArray(Charsets.UTF_8))
-    return String(cipher(Cipher.DECRYPT_MODE, secretKey).doFinal(byteStr), Charsets.UTF_8)
+    val chars = str.toCharArray()
+    return decrypt(chars, 0, chars.size, secretKey)
+  }
+
+  /**
+   * Decrypts base64 encoded text stored in [chars] from [offset] to [offset] + [length]
+   */
+  fun decrypt(chars: CharArray, offset: Int, length: Int, secretKey: String): String {
+    val cache = ciphers.get()
+    val encoded = cache.buffer(CipherCache.ENCODED, length)
+    for (i in 0 until length) {
+      val char = chars[offset + i]
+      require(char.code < 128) { "Illegal base64 character ${char.code.toString(16)}" }
+      encoded[i] = char.code.toByte()
+    }
+    val bytes = decoder.decode(ByteBuffer.wrap(encoded, 0, length))
+
+    val cipher = cache.cipher(Cipher.DECRYPT_MODE, secretKey)
+    val decrypted = cache.buffer(CipherCache.DECRYPTED, cipher.getOutputSize(bytes.remaining()))
+    val decryptedLength = cipher.doFinal(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), decrypted, 0)
+    return String(decrypted, 0, decryptedLength, Charsets.UTF_8)
+  }
+
+  /**
+   * Ciphers initialized with the last used key and buffers reused between calls in a thread.
+   * `doFinal` resets a cipher to the initialized state, so it can be used again with the same key and iv
+   */
+  private class CipherCache {
+    private var secretKey: String? = null
+    private var encryptCipher: Cipher? = null
+    private var decryptCipher: Cipher? = null
+    private val buffers = arrayOfNulls<ByteArray>(2)
+
+    fun cipher(opmode: Int, secretKey: String): Cipher {
+      if (secretKey != this.secretKey) {
+        encryptCipher = null
+        decryptCipher = null
+        this.secretKey = secretKey
+      }
+      return if (opmode == Cipher.ENCRYPT_MODE) {
+        encryptCipher ?: createCipher(opmode, secretKey).also { encryptCipher = it }
+      }
+      else {
+        decryptCipher ?: createCipher(opmode, secretKey).also { decryptCipher = it }
+      }
+    }
+
+    /**
+     * Returns a buffer of at least [size] bytes. Buffers larger than [MAX_CACHED_BUFFER_SIZE] are not kept
+     */
+    fun buffer(kind: Int, size: Int): ByteArray {
+      val buffer = buffers[kind]
+      if (buffer != null && buffer.size >= size) return buffer
+      val newBuffer = ByteArray(size)
+      buffers[kind] = if (size <= MAX_CACHED_BUFFER_SIZE) newBuffer else null
+      return newBuffer
+    }
+
+    private fun createCipher(opmode: Int, secretKey: String): Cipher {
+      require(secretKey.length == 32) { "SecretKey length is not 32 chars" }
+      val cipher = Cipher.getInstance("AES/CBC/PKCS5Padding")
+      val secretKeySpec = SecretKeySpec(secretKey.toByteArray(Charsets.UTF_8), "AES")
+      val iv = IvParameterSpec(secretKey.substring(0, 16).toByteArray(Charsets.UTF_8))
+      cipher.init(opmode, secretKeySpec, iv)
+      return cipher
+    }
+
+    companion object {
+      const val ENCODED = 0
+      const val DECRYPTED = 1
+
+      private const val MAX_CACHED_BUFFER_SIZE = 1024 * 1024
+    }
   }
 }
 
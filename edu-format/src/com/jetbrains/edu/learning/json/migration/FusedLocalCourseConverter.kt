@@ -0,0 +1,95 @@
+package com.jetbrains.edu.learning.json.migration
+
+import com.fasterxml.jackson.databind.node.ObjectNode
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.FRAMEWORK_TYPE
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.ITEMS
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.ITEM_TYPE
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.LESSON
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.SECTION
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.TASK_LIST
+
+/**
+ * Applies [converters] one after another, but traverses course items only once per group of converters
+ * instead of once per converter, so the migration cost doesn't grow with the number of format versions to migrate through.
+ *
+ * The result is the same as the result of sequential [JsonLocalCourseConverter.convert] calls:
+ * - course objects are converted in the same order, and each converter gets the language it would get in sequential mode;
+ * - each study item is converted by all converters of a group in the same order;
+ * - a converter whose course conversion depends on items ([JsonLocalCourseConverterBase.isCourseConversionDependentOnItems])
+ * starts a new group, so all items are already converted by previous converters when it's applied.
+ * Converters which are not [JsonLocalCourseConverterBase] are applied as is.
+ */
+class FusedLocalCourseConverter(private val converters: List<JsonLocalCourseConverter>) : JsonLocalCourseConverter {
+
+  override fun convert(localCourse: ObjectNode): ObjectNode {
+    var course = localCourse
+    for (group in splitIntoGroups()) {
+      course = when (group) {
+        is ConverterGroup.Single -> group.converter.convert(course)
+        is ConverterGroup.Fused -> group.convert(course)
+      }
+    }
+    return course
+  }
+
+  private fun splitIntoGroups(): List<ConverterGroup> {
+    val groups = mutableListOf<ConverterGroup>()
+    var current: MutableList<JsonLocalCourseConverterBase>? = null
+    for (converter in converters) {
+      if (converter !is JsonLocalCourseConverterBase) {
+        current = null
+        groups += ConverterGroup.Single(converter)
+        continue
+      }
+      if (current == null || converter.isCourseConversionDependentOnItems) {
+        current = mutableListOf()
+        groups += ConverterGroup.Fused(current)
+      }
+      current += converter
+    }
+    return groups
+  }
+
+  private sealed class ConverterGroup {
+    class Single(val converter: JsonLocalCourseConverter) : ConverterGroup()
+
+    class Fused(private val converters: List<JsonLocalCourseConverterBase>) : ConverterGroup() {
+
+      fun convert(localCourse: ObjectNode): ObjectNode {
+        // Course object conversions of the group don't depend on items, so they can be applied before items are converted.
+        // Language is remembered for each converter since the next converters may change it
+        val languages = converters.map { converter ->
+          converter.convertCourseObject(localCourse)
+          converter.getCourseLanguage(localCourse)
+        }
+
+        for (item in localCourse.getObjectList(ITEMS)) {
+          when (item.get(ITEM_TYPE)?.asText()) {
+            null, LESSON, FRAMEWORK_TYPE -> convertLesson(item, languages)
+            SECTION -> convertSection(item, languages)
+          }
+        }
+        return localCourse
+      }
+
+      private fun convertSection(sectionObject: ObjectNode, languages: List<String>) {
+        converters.forEachIndexed { i, converter -> converter.convertSectionObject(sectionObject, languages[i]) }
+        for (lesson in sectionObject.getObjectList(ITEMS)) {
+          convertLesson(lesson, languages)
+        }
+      }
+
+      private fun convertLesson(lessonObject: ObjectNode, languages: List<String>) {
+        converters.forEachIndexed { i, converter -> converter.convertLessonObject(lessonObject, languages[i]) }
+        for (task in lessonObject.getObjectList(TASK_LIST)) {
+          converters.forEachIndexed { i, converter -> converter.convertTaskObject(task, languages[i]) }
+        }
+      }
+
+      private fun ObjectNode.getObjectList(name: String): List<ObjectNode> {
+        val array = get(name) ?: return emptyList()
+        return array.filterIsInstance<ObjectNode>()
+      }
+    }
+  }
+}
@@ -10,10 +10,23 @@ import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.PROGRAMMING_LANGUAG
 import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.SECTION
 import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.TASK_LIST
 
+/**
+ * Base class for converters which convert course object itself via [convertCourseObject]
+ * and then each study item via [convertSectionObject], [convertLessonObject] and [convertTaskObject].
+ *
+ * Such converters can be combined by [FusedLocalCourseConverter] to traverse course items only once
+ */
 abstract class JsonLocalCourseConverterBase : JsonLocalCourseConverter {
 
+  /**
+   * `true` if [convertCourseObject] reads or modifies study items of the course.
+   * In this case, all previous conversions should be finished before [convertCourseObject] is called
+   */
+  open val isCourseConversionDependentOnItems: Boolean get() = false
+
   override fun convert(localCourse: ObjectNode): ObjectNode {
-    val language = localCourse.get(PROGRAMMING_LANGUAGE)?.asText() ?: ""
+    convertCourseObject(localCourse)
+    val language = getCourseLanguage(localCourse)
 
     for (item in localCourse.getJsonObjectList(ITEMS)) {
       val type = item.get(ITEM_TYPE)?.asText()
@@ -26,6 +39,8 @@ abstract class JsonLocalCourseConverterBase : JsonLocalCourseConverter {
     return localCourse
   }
 
+  fun getCourseLanguage(courseObject: ObjectNode): String = courseObject.get(PROGRAMMING_LANGUAGE)?.asText() ?: ""
+
   protected fun convertSection(sectionObject: ObjectNode, language: String) {
     convertSectionObject(sectionObject, language)
     for (lesson in sectionObject.getJsonObjectList(ITEMS)) {
@@ -40,9 +55,10 @@ abstract class JsonLocalCourseConverterBase : JsonLocalCourseConverter {
     }
   }
 
-  protected open fun convertSectionObject(sectionObject: ObjectNode, language: String) {}
-  protected open fun convertLessonObject(lessonObject: ObjectNode, language: String) {}
-  protected open fun convertTaskObject(taskObject: ObjectNode, language: String) {}
+  open fun convertCourseObject(courseObject: ObjectNode) {}
+  open fun convertSectionObject(sectionObject: ObjectNode, language: String) {}
+  open fun convertLessonObject(lessonObject: ObjectNode, language: String) {}
+  open fun convertTaskObject(taskObject: ObjectNode, language: String) {}
 
   protected fun ObjectNode.getJsonObjectList(name: String): List<ObjectNode> {
     val array = get(name) ?: return emptyList()
@@ -15,9 +15,11 @@ import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.TITLE
 
 class To10VersionLocalCourseConverter : JsonLocalCourseConverterBase() {
 
-  override fun convert(localCourse: ObjectNode): ObjectNode {
-    convertAdditionalFiles(localCourse)
-    return super.convert(localCourse)
+  // Additional files are collected from task files of the special lesson, so they should be already converted
+  override val isCourseConversionDependentOnItems: Boolean get() = true
+
+  override fun convertCourseObject(courseObject: ObjectNode) {
+    convertAdditionalFiles(courseObject)
   }
 
   private fun convertAdditionalFiles(localCourse: ObjectNode) {
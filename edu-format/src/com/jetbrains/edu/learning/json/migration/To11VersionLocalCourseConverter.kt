@@ -8,12 +8,11 @@ import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.ENVIRONMENT
 
 class To11VersionLocalCourseConverter : JsonLocalCourseConverterBase() {
 
-  override fun convert(localCourse: ObjectNode): ObjectNode {
-    val courseType = localCourse.get(COURSE_TYPE)?.asText() ?: EduFormatNames.PYCHARM
+  override fun convertCourseObject(courseObject: ObjectNode) {
+    val courseType = courseObject.get(COURSE_TYPE)?.asText() ?: EduFormatNames.PYCHARM
     if (courseType == ANDROID) {
-      localCourse.put(ENVIRONMENT, ANDROID)
-      localCourse.put(COURSE_TYPE, EduFormatNames.PYCHARM)
+      courseObject.put(ENVIRONMENT, ANDROID)
+      courseObject.put(COURSE_TYPE, EduFormatNames.PYCHARM)
     }
-    return localCourse
   }
 }
@@ -7,17 +7,15 @@ import com.jetbrains.edu.learning.json.migration.MigrationNames.KOTLIN
 import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.COURSE_TYPE
 import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.PROGRAMMING_LANGUAGE
 
-class To8VersionLocalCourseConverter : JsonLocalCourseConverter {
+class To8VersionLocalCourseConverter : JsonLocalCourseConverterBase() {
 
-  override fun convert(localCourse: ObjectNode): ObjectNode {
-    val language = localCourse.get(PROGRAMMING_LANGUAGE)?.asText() ?: ""
-    var courseType = localCourse.get(COURSE_TYPE)?.asText() ?: EduFormatNames.PYCHARM
+  override fun convertCourseObject(courseObject: ObjectNode) {
+    val language = courseObject.get(PROGRAMMING_LANGUAGE)?.asText() ?: ""
+    var courseType = courseObject.get(COURSE_TYPE)?.asText() ?: EduFormatNames.PYCHARM
     if ("edu-android" == language) {
-      localCourse.put(PROGRAMMING_LANGUAGE, KOTLIN)
+      courseObject.put(PROGRAMMING_LANGUAGE, KOTLIN)
       courseType = ANDROID
     }
-    localCourse.put(COURSE_TYPE, courseType)
-
-    return localCourse
+    courseObject.put(COURSE_TYPE, courseType)
   }
 }
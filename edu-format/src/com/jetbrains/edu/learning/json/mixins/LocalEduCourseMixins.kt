@@ -7,7 +7,9 @@ import com.fasterxml.jackson.annotation.JsonInclude
 import com.fasterxml.jackson.annotation.JsonProperty
 import com.fasterxml.jackson.annotation.JsonPropertyOrder
 import com.fasterxml.jackson.core.JsonParser
+import com.fasterxml.jackson.core.JsonToken
 import com.fasterxml.jackson.core.ObjectCodec
+import com.fasterxml.jackson.core.util.JsonParserSequence
 import com.fasterxml.jackson.databind.DeserializationContext
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder
@@ -15,6 +17,7 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer
 import com.fasterxml.jackson.databind.node.ObjectNode
 import com.fasterxml.jackson.databind.util.StdConverter
+import com.fasterxml.jackson.databind.util.TokenBuffer
 import com.jetbrains.edu.learning.courseFormat.*
 import com.jetbrains.edu.learning.courseFormat.EduFormatNames.MARKETPLACE
 import com.jetbrains.edu.learning.courseFormat.tasks.*
@@ -406,48 +409,91 @@ class CourseDeserializer : StdDeserializer<Course>(Course::class.java) {
   }
 }
 
+/**
+ * Deserializes study items of any type without building json tree for them.
+ *
+ * The type of item is defined by [TASK_TYPE] or [ITEM_TYPE] field.
+ * Tokens of fields before the type field are kept in [TokenBuffer] and then replayed together with the rest of the item.
+ * The buffer keeps only tokens and references to parsed strings, so it's much lighter than json tree,
+ * but in `course.json` written by [LocalEduCourseMixin] the type field is the last one, so tokens of the whole item are buffered
+ */
 class StudyItemDeserializer : StdDeserializer<StudyItem>(StudyItem::class.java) {
-  override fun deserialize(jp: JsonParser, ctxt: DeserializationContext?): StudyItem? {
-    val node: ObjectNode = jp.codec.readTree(jp) as ObjectNode
-    return deserializeItem(node, jp.codec)
-  }
+  override fun deserialize(jp: JsonParser, ctxt: DeserializationContext): StudyItem? {
+    val buffer = TokenBuffer(jp, ctxt)
+    buffer.writeStartObject()
+
+    var token = if (jp.hasToken(JsonToken.START_OBJECT)) jp.nextToken() else jp.currentToken
+    var taskClass: Class<out Task>? = null
+    var itemType: String? = null
+    while (token == JsonToken.FIELD_NAME) {
+      val fieldName = jp.currentName
+      jp.nextToken()
+      buffer.writeFieldName(fieldName)
+      buffer.copyCurrentStructure(jp)
+
+      if (fieldName == TASK_TYPE) {
+        // `task_type` takes precedence over `type`, so the rest of the task can be read directly
+        taskClass = taskClass(jp.text)
+        if (taskClass == null) {
+          skipRestOfObject(jp)
+          return null
+        }
+        break
+      }
+      if (fieldName == ITEM_TYPE) {
+        itemType = jp.text
+      }
+      token = jp.nextToken()
+    }
 
-  private fun deserializeItem(jsonObject: ObjectNode, codec: ObjectCodec): StudyItem? {
-    if (jsonObject.has(TASK_TYPE)) {
-      val taskType = jsonObject.get(TASK_TYPE).asText()
-      return deserializeTask(jsonObject, taskType, codec)
+    val itemClass = taskClass ?: itemType?.let { itemClass(it) } ?: Lesson::class.java
+    if (jp.hasToken(JsonToken.END_OBJECT)) {
+      buffer.writeEndObject()
+      return readItem(buffer.asParser(jp), ctxt, itemClass)
     }
+    return readItem(JsonParserSequence.createFlattened(false, buffer.asParser(jp), jp), ctxt, itemClass)
+  }
 
-    return if (!jsonObject.has(ITEM_TYPE)) {
-      codec.treeToValue(jsonObject, Lesson::class.java)
+  private fun readItem(parser: JsonParser, ctxt: DeserializationContext, itemClass: Class<out StudyItem>): StudyItem {
+    parser.nextToken()
+    return ctxt.readValue(parser, itemClass)
+  }
+
+  private fun skipRestOfObject(jp: JsonParser) {
+    while (jp.nextToken() == JsonToken.FIELD_NAME) {
+      jp.nextToken()
+      jp.skipChildren()
     }
-    else {
-      val itemType = jsonObject.get(ITEM_TYPE).asText()
-      when (itemType) {
-        LESSON -> codec.treeToValue(jsonObject, Lesson::class.java)
-        FRAMEWORK_TYPE -> codec.treeToValue(jsonObject, FrameworkLesson::class.java)
-        SECTION -> codec.treeToValue(jsonObject, Section::class.java)
-        else -> throw IllegalArgumentException("Unsupported item type: $itemType")
-      }
+  }
+
+  private fun itemClass(itemType: String): Class<out StudyItem> {
+    return when (itemType) {
+      LESSON -> Lesson::class.java
+      FRAMEWORK_TYPE -> FrameworkLesson::class.java
+      SECTION -> Section::class.java
+      else -> throw IllegalArgumentException("Unsupported item type: $itemType")
     }
   }
 }
 
 fun deserializeTask(node: ObjectNode, taskType: String, objectMapper: ObjectCodec): Task? {
+  val taskClass = taskClass(taskType) ?: return null
+  return objectMapper.treeToValue(node, taskClass)
+}
+
+private fun taskClass(taskType: String): Class<out Task>? {
   return when (taskType) {
-    IdeTask.IDE_TASK_TYPE -> objectMapper.treeToValue(node, IdeTask::class.java)
-    ChoiceTask.CHOICE_TASK_TYPE -> objectMapper.treeToValue(node, ChoiceTask::class.java)
-    TheoryTask.THEORY_TASK_TYPE -> objectMapper.treeToValue(node, TheoryTask::class.java)
-    CodeTask.CODE_TASK_TYPE -> objectMapper.treeToValue(node, CodeTask::class.java)
+    IdeTask.IDE_TASK_TYPE -> IdeTask::class.java
+    ChoiceTask.CHOICE_TASK_TYPE -> ChoiceTask::class.java
+    TheoryTask.THEORY_TASK_TYPE -> TheoryTask::class.java
+    CodeTask.CODE_TASK_TYPE -> CodeTask::class.java
     // deprecated: old courses have pycharm tasks
-    EduTask.EDU_TASK_TYPE, EduTask.PYCHARM_TASK_TYPE -> {
-      objectMapper.treeToValue(node, EduTask::class.java)
-    }
-    OutputTask.OUTPUT_TASK_TYPE -> objectMapper.treeToValue(node, OutputTask::class.java)
-    MatchingTask.MATCHING_TASK_TYPE -> objectMapper.treeToValue(node, MatchingTask::class.java)
-    RemoteEduTask.REMOTE_EDU_TASK_TYPE -> objectMapper.treeToValue(node, RemoteEduTask::class.java)
-    SortingTask.SORTING_TASK_TYPE -> objectMapper.treeToValue(node, SortingTask::class.java)
-    UnsupportedTask.UNSUPPORTED_TASK_TYPE -> objectMapper.treeToValue(node, UnsupportedTask::class.java)
+    EduTask.EDU_TASK_TYPE, EduTask.PYCHARM_TASK_TYPE -> EduTask::class.java
+    OutputTask.OUTPUT_TASK_TYPE -> OutputTask::class.java
+    MatchingTask.MATCHING_TASK_TYPE -> MatchingTask::class.java
+    RemoteEduTask.REMOTE_EDU_TASK_TYPE -> RemoteEduTask::class.java
+    SortingTask.SORTING_TASK_TYPE -> SortingTask::class.java
+    UnsupportedTask.UNSUPPORTED_TASK_TYPE -> UnsupportedTask::class.java
     else -> {
       LOG.warning("Unsupported task type $taskType")
       null
@@ -469,9 +515,10 @@ private open class EduFileBuilder {
 
   @JsonProperty(IS_VISIBLE)
   var isVisible: Boolean = true
+  // text is skipped when only the course structure is read, see `readCourseJsonSkeleton`
   @JsonProperty(TEXT)
   @Encrypt
-  lateinit var text: String
+  var text: String? = null
   @JsonProperty(IS_BINARY)
   var isBinary: Boolean? = null
   @JsonProperty(IS_EDITABLE)
@@ -494,14 +541,37 @@ private open class EduFileBuilder {
     result.isEditable = isEditable
     result.isPropagatable = isPropagatable
     result.errorHighlightLevel = errorHighlightLevel
+    val text = text
     result.contents = when (isBinary) {
-      true -> InMemoryBinaryContents.parseBase64Encoding(text)
-      false -> InMemoryTextualContents(text)
-      null -> InMemoryUndeterminedContents(text)
+      true -> if (text != null) InMemoryBinaryContents.parseBase64Encoding(text) else MissingBinaryContents
+      false -> if (text != null) InMemoryTextualContents(text) else MissingTextualContents
+      null -> if (text != null) InMemoryUndeterminedContents(text) else MissingUndeterminedContents
     }
   }
 }
 
+/**
+ * Whether the file was read from `course.json` without text.
+ * It's expected only if texts are skipped on purpose, otherwise `course.json` is corrupted
+ */
+internal val EduFile.isTextMissing: Boolean
+  get() = contents.let { it == MissingTextualContents || it == MissingBinaryContents || it == MissingUndeterminedContents }
+
+private object MissingTextualContents : TextualContents {
+  override val text: String
+    get() = error("Text is missing in course.json")
+}
+
+private object MissingBinaryContents : BinaryContents {
+  override val bytes: ByteArray
+    get() = error("Text is missing in course.json")
+}
+
+private object MissingUndeterminedContents : UndeterminedContents {
+  override val textualRepresentation: String
+    get() = error("Text is missing in course.json")
+}
+
 @JsonPOJOBuilder(withPrefix = "")
 private class TaskFileBuilder : EduFileBuilder() {
 
@@ -11,7 +11,7 @@ import com.jetbrains.edu.learning.isUnitTestMode
 class StudioGradleCourseRefresher : GradleCourseRefresher {
   override fun isAvailable(): Boolean = EduUtilsKt.isAndroidStudio()
 
-  override fun refresh(project: Project, cause: RefreshCause) {
+  override fun refresh(project: Project, cause: RefreshCause, force: Boolean) {
     if (cause == RefreshCause.PROJECT_CREATED && !isUnitTestMode) return
 
     val request = GradleSyncInvoker.Request(GradleSyncStats.Trigger.TRIGGER_PROJECT_MODIFIED)
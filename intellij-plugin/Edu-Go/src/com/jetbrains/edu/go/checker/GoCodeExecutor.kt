@@ -9,8 +9,11 @@ import com.intellij.openapi.project.Project
 import com.intellij.psi.PsiFile
 import com.jetbrains.edu.go.checker.GoEduTaskChecker.Companion.GO_RUN_WITH_PTY
 import com.jetbrains.edu.go.codeforces.GoCodeforcesRunConfiguration
+import com.jetbrains.edu.learning.Err
+import com.jetbrains.edu.learning.Ok
 import com.jetbrains.edu.learning.Result
 import com.jetbrains.edu.learning.checker.DefaultCodeExecutor
+import com.jetbrains.edu.learning.checker.PreparedCodeExecution
 import com.jetbrains.edu.learning.codeforces.run.CodeforcesRunConfiguration
 import com.jetbrains.edu.learning.courseFormat.CheckResult
 import com.jetbrains.edu.learning.courseFormat.ext.getDocument
@@ -24,8 +27,17 @@ class GoCodeExecutor : DefaultCodeExecutor() {
     return ConfigurationContext(psiFile).configuration
   }
 
-  override fun execute(project: Project, task: Task, indicator: ProgressIndicator, input: String?): Result<String, CheckResult> {
-    return withRegistryKeyOff(GO_RUN_WITH_PTY) { super.execute(project, task, indicator, input) }
+  override fun prepareExecution(project: Project, task: Task): Result<PreparedCodeExecution, CheckResult> {
+    val execution = when (val result = super.prepareExecution(project, task)) {
+      is Ok -> result.value
+      is Err -> return result
+    }
+    // `GO_RUN_WITH_PTY` is a global registry value, so runs are not concurrent
+    return Ok(object : PreparedCodeExecution {
+      override fun execute(indicator: ProgressIndicator, input: String?): Result<String, CheckResult> {
+        return withRegistryKeyOff(GO_RUN_WITH_PTY) { execution.execute(indicator, input) }
+      }
+    })
   }
 
   override fun createCodeforcesConfiguration(project: Project, factory: ConfigurationFactory): CodeforcesRunConfiguration {
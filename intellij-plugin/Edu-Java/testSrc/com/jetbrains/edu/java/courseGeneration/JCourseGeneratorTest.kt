@@ -46,6 +46,7 @@ class JCourseGeneratorTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt", "lesson1/task1\nlesson1/task2\nlesson2/task1\n")
     }
     expectedFileTree.assertEquals(rootDir)
   }
@@ -69,6 +70,7 @@ class JCourseGeneratorTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt")
     }
 
     expectedFileTree.assertEquals(rootDir)
@@ -111,6 +113,7 @@ class JCourseGeneratorTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt")
     }
     expectedFileTree.assertEquals(rootDir)
   }
@@ -54,6 +54,7 @@ class KtCourseBuilderTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt")
     }
     expectedFileTree.assertEquals(rootDir)
   }
@@ -82,6 +83,7 @@ class KtCourseBuilderTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt")
     }
 
     expectedFileTree.assertEquals(rootDir)
@@ -130,6 +132,7 @@ class KtCourseBuilderTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt")
     }
     expectedFileTree.assertEquals(rootDir)
   }
@@ -34,6 +34,7 @@ class ScalaGradleCourseBuilderTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt")
     }
     expectedFileTree.assertEquals(rootDir)
   }
@@ -57,6 +58,7 @@ class ScalaGradleCourseBuilderTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt")
     }
 
     expectedFileTree.assertEquals(rootDir)
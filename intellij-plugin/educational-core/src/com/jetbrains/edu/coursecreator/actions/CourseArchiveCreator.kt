@@ -20,6 +20,7 @@ import com.intellij.openapi.fileEditor.FileEditorManager
 import com.intellij.openapi.progress.ProcessCanceledException
 import com.intellij.openapi.progress.ProgressManager
 import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.Disposer
 import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.openapi.vfs.VirtualFileManager
 import com.jetbrains.edu.coursecreator.AdditionalFilesUtils
@@ -120,23 +121,41 @@ class CourseArchiveCreator(
     val courseDir = project.courseDir
     courseArchiveIndicator.init(courseDir, courseCopy, ProgressManager.getInstance().progressIndicator)
 
-    ZipOutputStream(FileOutputStream(location)).use { outputStream ->
-      outputStream.withNewEntry(COURSE_META_FILE) {
-        val writer = OutputStreamWriter(outputStream, UTF_8)
-        generateJson(writer, courseCopy)
-      }
+    val filesPipeline = CourseArchiveFilesPipeline(aesKey)
+    try {
+      filesPipeline.install(courseCopy.filesInSerializationOrder())
+      ZipOutputStream(BufferedOutputStream(FileOutputStream(location))).use { outputStream ->
+        outputStream.withNewEntry(COURSE_META_FILE) {
+          val writer = OutputStreamWriter(outputStream, UTF_8)
+          generateJson(writer, courseCopy, filesPipeline)
+        }
 
-      val iconFile = courseDir.findChild(EduFormatNames.COURSE_ICON_FILE)
-      iconFile?.inputStream?.use { iconInputStream ->
-        outputStream.withNewEntry(EduFormatNames.COURSE_ICON_FILE) {
-          iconInputStream.copyTo(outputStream)
+        val iconFile = courseDir.findChild(EduFormatNames.COURSE_ICON_FILE)
+        iconFile?.inputStream?.use { iconInputStream ->
+          outputStream.withNewEntry(EduFormatNames.COURSE_ICON_FILE) {
+            iconInputStream.copyTo(outputStream)
+          }
         }
       }
     }
+    finally {
+      filesPipeline.uninstall()
+      Disposer.dispose(filesPipeline)
+    }
 
     synchronize(project)
   }
 
+  /**
+   * Files are written to `course.json` as task files of all tasks followed by additional files of the course
+   */
+  private fun Course.filesInSerializationOrder(): List<EduFile> {
+    val files = mutableListOf<EduFile>()
+    visitTasks { task -> files += task.taskFiles.values }
+    files += additionalFiles
+    return files
+  }
+
   @Throws(IOException::class)
   private fun ZipOutputStream.withNewEntry(name: String, action: () -> Unit) {
     try {
@@ -162,19 +181,20 @@ class CourseArchiveCreator(
     ProjectView.getInstance(project).refresh()
   }
 
-  private fun generateJson(out: Writer, course: Course) {
-    val mapper = getMapper(course)
+  private fun generateJson(out: Writer, course: Course, filesPipeline: CourseArchiveFilesPipeline? = null) {
+    val mapper = getMapper(course, filesPipeline)
     mapper.writer(printer).writeValue(out, course)
   }
 
   @VisibleForTesting
-  fun getMapper(course: Course): ObjectMapper {
+  fun getMapper(course: Course, filesPipeline: CourseArchiveFilesPipeline? = null): ObjectMapper {
     val module = SimpleModule()
       .addSerializer(EduCourse::class.java, EduCoursePluginVersionSerializer())
 
     val mapper = JsonMapper.builder()
       .addModule(module)
       .addModule(EncryptionModule(aesKey))
+      .addModules(listOfNotNull(filesPipeline?.encryptionModule))
       .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
       .commonMapperSetup(course)
       .setDateFormat()
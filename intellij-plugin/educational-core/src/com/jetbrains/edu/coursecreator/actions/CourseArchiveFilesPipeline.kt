@@ -0,0 +1,196 @@
+package com.jetbrains.edu.coursecreator.actions
+
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.core.Version
+import com.fasterxml.jackson.databind.JsonSerializer
+import com.fasterxml.jackson.databind.Module
+import com.fasterxml.jackson.databind.SerializerProvider
+import com.fasterxml.jackson.databind.introspect.Annotated
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.progress.ProgressIndicator
+import com.intellij.openapi.progress.ProgressManager
+import com.intellij.openapi.progress.SensitiveProgressWrapper
+import com.intellij.util.concurrency.AppExecutorUtil
+import com.jetbrains.edu.learning.courseFormat.*
+import com.jetbrains.edu.learning.json.encrypt.AES256
+import com.jetbrains.edu.learning.json.encrypt.Encrypt
+import com.jetbrains.edu.learning.json.encrypt.EncryptionModule
+import java.util.*
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Future
+
+/**
+ * Prepares contents of course files for `course.json` in parallel: reads them from disk, base64-encodes binary contents
+ * and encrypts the resulting text.
+ *
+ * Files are prepared in the order they are written to `course.json`, and at most [window] files are prepared ahead of the file
+ * that is being serialized now, so only a bounded number of files are kept in memory at once.
+ * [install] replaces contents of the files with contents that wait for the prepared results,
+ * and [encryptionModule] makes the serializer write already encrypted texts as is.
+ *
+ * Files are prepared under the progress indicator of the serializing thread,
+ * so cancellation makes the preparation fail and the serializer waiting for it is woken up.
+ */
+class CourseArchiveFilesPipeline(
+  private val aesKey: String?,
+  parallelism: Int = DEFAULT_PARALLELISM,
+  private val window: Int = parallelism * 2
+) : Disposable {
+
+  private val executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Course Archive Files Preparation", parallelism)
+
+  private var files: List<EduFile> = emptyList()
+  private var initialContents: List<FileContents> = emptyList()
+  private val preparedFiles = mutableMapOf<Int, Future<PreparedContents>>()
+  private var nextToSubmit = 0
+
+  /**
+   * Texts handed to the serializer mapped to their encrypted form.
+   * Identity is used since only the exact string returned by the prepared contents is encrypted in advance
+   */
+  private val encryptedTexts = Collections.synchronizedMap(IdentityHashMap<String, String>())
+
+  /**
+   * Jackson module which writes texts encrypted by the pipeline as is. It takes precedence over [EncryptionModule],
+   * which still handles deserialization
+   */
+  val encryptionModule: Module = PreparedEncryptionModule()
+
+  /**
+   * [files] must be listed in the order of serialization, otherwise files are still prepared correctly but with less parallelism
+   */
+  fun install(files: List<EduFile>) {
+    this.files = files
+    initialContents = files.map { it.contents }
+    for ((index, file) in files.withIndex()) {
+      file.contents = when (val contents = file.contents) {
+        is TextualContents -> PreparedTextualContents(index)
+        is BinaryContents -> PreparedBinaryContents(index, contents)
+        is UndeterminedContents -> PreparedUndeterminedContents(index)
+      }
+    }
+  }
+
+  /**
+   * Returns the initial contents to the files, so the pipeline doesn't outlive archive creation
+   */
+  fun uninstall() {
+    for ((index, file) in files.withIndex()) {
+      file.contents = initialContents[index]
+    }
+  }
+
+  private fun textualRepresentation(index: Int): String {
+    val prepared = synchronized(this) {
+      submitUpTo(index + window)
+      preparedFiles.remove(index) ?: submit(index)
+    }
+    val contents = await(prepared)
+    if (contents.encrypted != null) {
+      encryptedTexts[contents.text] = contents.encrypted
+    }
+    return contents.text
+  }
+
+  private fun submitUpTo(limit: Int) {
+    while (nextToSubmit < files.size && nextToSubmit <= limit) {
+      preparedFiles[nextToSubmit] = submit(nextToSubmit)
+      nextToSubmit++
+    }
+  }
+
+  private fun submit(index: Int): Future<PreparedContents> {
+    val indicator = ProgressManager.getInstance().progressIndicator
+    return executor.submit<PreparedContents> {
+      runWithIndicator(indicator) {
+        ProgressManager.checkCanceled()
+        val text = initialContents[index].textualRepresentation
+        val encrypted = if (aesKey != null && text.isNotEmpty()) AES256.encrypt(text, aesKey) else null
+        PreparedContents(text, encrypted)
+      }
+    }
+  }
+
+  private fun <T> runWithIndicator(indicator: ProgressIndicator?, action: () -> T): T {
+    if (indicator == null) return action()
+    val fileIndicator = SensitiveProgressWrapper(indicator)
+    return ProgressManager.getInstance().runProcess<T>(action, fileIndicator)
+  }
+
+  /**
+   * Blocks until [future] is done. The preparation is cancelled together with the serializer, so the wait is not endless
+   */
+  private fun await(future: Future<PreparedContents>): PreparedContents {
+    try {
+      return future.get()
+    }
+    catch (e: ExecutionException) {
+      throw e.cause ?: e
+    }
+  }
+
+  override fun dispose() {
+    synchronized(this) {
+      preparedFiles.values.forEach { it.cancel(false) }
+      preparedFiles.clear()
+    }
+    executor.shutdownNow()
+  }
+
+  private class PreparedContents(val text: String, val encrypted: String?)
+
+  private inner class PreparedEncryptionModule : Module() {
+    override fun getModuleName(): String = "edu-course-archive-encryption-module"
+
+    override fun version(): Version = Version(1, 0, 0, null, null as String?, null as String?)
+
+    override fun setupModule(setupContext: SetupContext) {
+      if (aesKey != null) {
+        setupContext.insertAnnotationIntrospector(PreparedEncryptionIntrospector(aesKey))
+      }
+    }
+  }
+
+  private inner class PreparedEncryptionIntrospector(private val aesKey: String) : NopAnnotationIntrospector() {
+    override fun findSerializer(am: Annotated): Any? {
+      if (am.getAnnotation(Encrypt::class.java) != null) {
+        return PreparedEncryptionSerializer(aesKey)
+      }
+      return null
+    }
+  }
+
+  private inner class PreparedEncryptionSerializer(private val aesKey: String) : JsonSerializer<Any>() {
+    override fun serialize(value: Any, jsonGenerator: JsonGenerator, serializerProvider: SerializerProvider) {
+      if (value is String) {
+        jsonGenerator.writeString(encryptedTexts.remove(value) ?: AES256.encrypt(value, aesKey))
+      }
+      else {
+        serializerProvider.defaultSerializeValue(value, jsonGenerator)
+      }
+    }
+  }
+
+  private inner class PreparedTextualContents(private val index: Int) : TextualContents {
+    override val text: String
+      get() = textualRepresentation(index)
+  }
+
+  private inner class PreparedBinaryContents(private val index: Int, private val contents: BinaryContents) : BinaryContents {
+    override val bytes: ByteArray
+      get() = contents.bytes
+
+    override val textualRepresentation: String
+      get() = textualRepresentation(index)
+  }
+
+  private inner class PreparedUndeterminedContents(private val index: Int) : UndeterminedContents {
+    override val textualRepresentation: String
+      get() = textualRepresentation(index)
+  }
+
+  companion object {
+    private val DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors().coerceIn(1, 8)
+  }
+}
@@ -27,6 +27,10 @@ class CourseArchiveIndicator {
     filesCount = taskFilesCount + additionalFilesCount
   }
 
+  /**
+   * Files may be read from several threads when course archive files are prepared in parallel
+   */
+  @Synchronized
   fun readFile(file: VirtualFile) {
     indicator?.checkCanceled()
 
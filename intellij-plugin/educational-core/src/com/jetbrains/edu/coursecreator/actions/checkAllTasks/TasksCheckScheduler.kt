@@ -0,0 +1,197 @@
+package com.jetbrains.edu.coursecreator.actions.checkAllTasks
+
+import com.intellij.concurrency.SensitiveProgressWrapper
+import com.intellij.openapi.diagnostic.logger
+import com.intellij.openapi.progress.ProcessCanceledException
+import com.intellij.openapi.progress.ProgressIndicator
+import com.intellij.openapi.progress.ProgressManager
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.registry.Registry
+import com.intellij.util.concurrency.AppExecutorUtil
+import com.jetbrains.edu.learning.courseFormat.Course
+import com.jetbrains.edu.learning.courseFormat.FrameworkLesson
+import com.jetbrains.edu.learning.courseFormat.tasks.Task
+import com.jetbrains.edu.learning.messages.EduCoreBundle
+import org.jetbrains.annotations.NonNls
+import org.jetbrains.annotations.TestOnly
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Result of checking of a single task by [TasksCheckScheduler]
+ *
+ * @param isSolved whether the task was checked successfully
+ * @param durationMs time spent on checking of the task
+ * @param error exception thrown by the checker, if any
+ */
+class TaskCheckReport(val task: Task, val isSolved: Boolean, val durationMs: Long, val error: Throwable? = null)
+
+/**
+ * Checks tasks of a course with at most [parallelism] tasks being checked at the same time.
+ *
+ * Tasks of framework lessons share state between each other, so they are always checked one by one in their order.
+ * All other tasks are independent: each of them is checked by its own checker with its own run configurations,
+ * so they are checked concurrently on a bounded pool.
+ *
+ * The overall progress is shown with [indicator], while each checker gets its own wrapper of [indicator],
+ * so checkers running at the same time don't overwrite texts of each other, but all of them are cancelled together.
+ */
+class TasksCheckScheduler @TestOnly internal constructor(
+  private val indicator: ProgressIndicator,
+  private val parallelism: Int,
+  private val taskChecker: (Task, ProgressIndicator) -> Boolean
+) {
+
+  constructor(
+    project: Project,
+    course: Course,
+    indicator: ProgressIndicator,
+    parallelism: Int = checkAllTasksParallelism()
+  ) : this(indicator, parallelism, { task, taskIndicator -> checkTask(project, course, task, taskIndicator) })
+
+  private val checkedTasks = AtomicInteger()
+
+  /**
+   * @return reports in the order of [tasks], or `null` if checking was cancelled
+   */
+  fun check(tasks: List<Task>): List<TaskCheckReport>? {
+    if (tasks.isEmpty()) return emptyList()
+    indicator.isIndeterminate = false
+
+    val reports = if (parallelism <= 1) {
+      tasks.map { task ->
+        if (indicator.isCanceled) return null
+        indicator.text2 = EduCoreBundle.message("progress.text.checking.task", task.name)
+        checkTask(task, indicator, tasks.size)
+      }
+    }
+    else {
+      checkConcurrently(tasks) ?: return null
+    }
+    if (indicator.isCanceled) return null
+
+    logReports(reports)
+    return reports
+  }
+
+  /**
+   * Tasks of framework lessons are checked one by one as a single job of the pool,
+   * so at most [parallelism] tasks are checked at the same time
+   */
+  private fun checkConcurrently(tasks: List<Task>): List<TaskCheckReport>? {
+    val (sequentialTasks, concurrentTasks) = tasks.partition { it.lesson is FrameworkLesson }
+
+    val executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Check All Tasks", parallelism)
+    try {
+      val sequentialFuture = if (sequentialTasks.isNotEmpty()) {
+        executor.submit<List<TaskCheckReport>> {
+          runWithTaskIndicator { taskIndicator ->
+            sequentialTasks.map { task ->
+              taskIndicator.checkCanceled()
+              checkTask(task, taskIndicator, tasks.size)
+            }
+          }
+        }
+      }
+      else {
+        null
+      }
+      val futures: Map<Task, Future<TaskCheckReport>> = concurrentTasks.associateWith { task ->
+        executor.submit<TaskCheckReport> {
+          runWithTaskIndicator { taskIndicator ->
+            taskIndicator.checkCanceled()
+            checkTask(task, taskIndicator, tasks.size)
+          }
+        }
+      }
+
+      val reports = mutableMapOf<Task, TaskCheckReport>()
+      if (sequentialFuture != null) {
+        for (report in awaitReports(sequentialTasks, sequentialFuture) ?: return null) {
+          reports[report.task] = report
+        }
+      }
+      for ((task, future) in futures) {
+        reports[task] = awaitReport(task, future) ?: return null
+      }
+      if (indicator.isCanceled) return null
+      return tasks.map { reports.getValue(it) }
+    }
+    finally {
+      executor.shutdownNow()
+    }
+  }
+
+  /**
+   * Each job gets its own wrapper of [indicator], so it can be cancelled without affecting other jobs
+   */
+  private fun <T> runWithTaskIndicator(action: (ProgressIndicator) -> T): T {
+    val taskIndicator = SensitiveProgressWrapper(indicator)
+    return ProgressManager.getInstance().runProcess<T>({ action(taskIndicator) }, taskIndicator)
+  }
+
+  private fun awaitReports(tasks: List<Task>, future: Future<List<TaskCheckReport>>): List<TaskCheckReport>? {
+    return try {
+      future.get()
+    }
+    catch (e: ExecutionException) {
+      val cause = e.cause
+      if (cause is ProcessCanceledException) return null
+      tasks.map { TaskCheckReport(it, false, 0, cause) }
+    }
+  }
+
+  private fun awaitReport(task: Task, future: Future<TaskCheckReport>): TaskCheckReport? {
+    return try {
+      future.get()
+    }
+    catch (e: ExecutionException) {
+      val cause = e.cause
+      if (cause is ProcessCanceledException) return null
+      TaskCheckReport(task, false, 0, cause)
+    }
+  }
+
+  private fun checkTask(task: Task, taskIndicator: ProgressIndicator, tasksNum: Int): TaskCheckReport {
+    val start = System.currentTimeMillis()
+    val report = try {
+      val isSolved = taskChecker(task, taskIndicator)
+      TaskCheckReport(task, isSolved, System.currentTimeMillis() - start)
+    }
+    catch (e: ProcessCanceledException) {
+      throw e
+    }
+    catch (e: Exception) {
+      LOG.warn("Failed to check task `${task.name}`", e)
+      TaskCheckReport(task, false, System.currentTimeMillis() - start, e)
+    }
+
+    val checked = checkedTasks.incrementAndGet()
+    indicator.fraction = checked * 1.0 / tasksNum
+    return report
+  }
+
+  private fun logReports(reports: List<TaskCheckReport>) {
+    if (!LOG.isDebugEnabled) return
+    val failed = reports.count { !it.isSolved }
+    LOG.debug("Checked ${reports.size} tasks with parallelism $parallelism, $failed failed, " +
+              "total checking time ${reports.sumOf { it.durationMs }} ms")
+    for (report in reports.sortedByDescending { it.durationMs }) {
+      LOG.debug("${report.task.name}: ${if (report.isSolved) "solved" else "failed"} in ${report.durationMs} ms" +
+                (report.error?.let { ", ${it.message}" } ?: ""))
+    }
+  }
+
+  companion object {
+    private val LOG = logger<TasksCheckScheduler>()
+
+    @NonNls
+    const val PARALLELISM_REGISTRY_KEY = "edu.course.creator.check.all.parallelism"
+
+    /**
+     * Checkers of some languages share resources, e.g. build directories of Gradle projects, so tasks are checked one by one by default
+     */
+    fun checkAllTasksParallelism(): Int = Registry.intValue(PARALLELISM_REGISTRY_KEY, 1).coerceAtLeast(1)
+  }
+}
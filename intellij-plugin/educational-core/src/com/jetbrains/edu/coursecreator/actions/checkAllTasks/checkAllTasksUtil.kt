@@ -23,7 +23,7 @@ import javax.swing.event.HyperlinkEvent
  * Checks all tasks that are in [studyItems] and returns a list of failed tasks
  */
 /*
- * Important note: we deliberately start with checking sections, then check lessons, and then individual tasks.
+ * Important note: we deliberately start with collecting tasks of sections, then of lessons, and then individual tasks.
  * Why? Because a person can choose out a separate task as a task located in the selected lesson / section.
  * We don't want to check such tasks twice, and that’s why we have such order of checking.
  */
@@ -33,37 +33,27 @@ fun checkAllStudyItems(
   studyItems: List<StudyItem>,
   indicator: ProgressIndicator
 ): List<Task>? {
-  val failedTasks = mutableListOf<Task>()
-
-  val (tasks, lessons, sections) = splitStudyItems(studyItems)
-
   val selectedCourse = studyItems.find { it is Course }
   if (selectedCourse != null) {
     return checkAllTasksInItemContainer(project, course, selectedCourse as Course, indicator)
   }
 
+  val (tasks, lessons, sections) = splitStudyItems(studyItems)
+  val tasksToCheck = mutableListOf<Task>()
   for (section in sections) {
-    failedTasks += checkAllTasksInItemContainer(project, course, section, indicator) ?: return null
+    getVisitItemContainerFunc(section).invoke { tasksToCheck += it }
   }
-
   for (lesson in lessons) {
     if (lesson.section in sections) continue
-    failedTasks += checkAllTasksInItemContainer(project, course, lesson, indicator) ?: return null
+    getVisitItemContainerFunc(lesson).invoke { tasksToCheck += it }
   }
-
   for (task in tasks) {
     if (task.lesson in lessons || task.lesson.section in sections) continue
-    indicator.isIndeterminate = true
-    indicator.text = EduCoreBundle.message("progress.text.checking.task", task.name)
-    if (!checkTask(project, course, task, indicator)) {
-      failedTasks.add(task)
-    }
-    indicator.isIndeterminate = false
-    if (indicator.isCanceled) {
-      return null
-    }
+    tasksToCheck += task
   }
-  return failedTasks
+
+  indicator.text = EduCoreBundle.message("progress.title.checking.tasks")
+  return checkTasks(project, course, tasksToCheck, indicator)
 }
 
 /**
@@ -94,25 +84,25 @@ fun checkAllTasksInItemContainer(
   itemContainer: ItemContainer,
   indicator: ProgressIndicator
 ): List<Task>? {
-  val failedTasks = mutableListOf<Task>()
-  var curTask = 0
-  val tasksNum = getNumberOfTasks(itemContainer)
-  val itemContainerVisitFunc = getVisitItemContainerFunc(itemContainer)
+  val tasks = mutableListOf<Task>()
+  getVisitItemContainerFunc(itemContainer).invoke { tasks += it }
   indicator.text = EduCoreBundle.message("progress.text.checking.tasks.in.container", itemContainer.name)
-  itemContainerVisitFunc.invoke {
-    if (indicator.isCanceled) {
-      return@invoke
-    }
-    curTask++
-    indicator.fraction = curTask * 1.0 / tasksNum
-    if (!checkTask(project, course, it, indicator)) {
-      failedTasks.add(it)
-    }
-  }
-  if (indicator.isCanceled) {
-    return null
-  }
-  return failedTasks
+  return checkTasks(project, course, tasks, indicator)
+}
+
+/**
+ * Checks [tasks] with [TasksCheckScheduler] and returns list of failed tasks in the order of [tasks]
+ *
+ * @return List of failed tasks, null if the indicator was cancelled
+ */
+fun checkTasks(
+  project: Project,
+  course: Course,
+  tasks: List<Task>,
+  indicator: ProgressIndicator
+): List<Task>? {
+  val reports = TasksCheckScheduler(project, course, indicator).check(tasks) ?: return null
+  return reports.filter { !it.isSolved }.map { it.task }
 }
 
 fun checkTask(
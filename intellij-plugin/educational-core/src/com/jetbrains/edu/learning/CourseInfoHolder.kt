@@ -27,7 +27,7 @@ sealed interface CourseInfoHolder<T : Course?> {
   }
 }
 
-private class ProjectCourseInfoHolder(private val project: Project) : CourseInfoHolder<Course?> {
+private class ProjectCourseInfoHolder(val project: Project) : CourseInfoHolder<Course?> {
   override val course: Course?
     get() = project.course
   override val courseDir: VirtualFile
@@ -38,3 +38,9 @@ private class ProjectCourseInfoHolder(private val project: Project) : CourseInfo
 private class CourseInfoHolderImpl<T : Course>(override val course: T, override val courseDir: VirtualFile) : CourseInfoHolder<T>
 
 fun Project.toCourseInfoHolder(): CourseInfoHolder<Course?> = CourseInfoHolder.fromProject(this)
+
+/**
+ * Project the holder is created from, or `null` if the holder is created from a course
+ */
+val CourseInfoHolder<*>.project: Project?
+  get() = (this as? ProjectCourseInfoHolder)?.project
@@ -7,7 +7,6 @@ import com.intellij.openapi.editor.event.DocumentEvent
 import com.intellij.openapi.editor.impl.event.DocumentEventImpl
 import com.intellij.openapi.fileEditor.FileDocumentManager
 import com.intellij.openapi.project.Project
-import com.intellij.openapi.util.Pair
 import com.intellij.openapi.vfs.VirtualFile
 import com.jetbrains.edu.coursecreator.framework.SyncChangesStateManager
 import com.jetbrains.edu.learning.courseFormat.AnswerPlaceholder
@@ -74,62 +73,56 @@ class EduDocumentListener private constructor(
     val fragment = e.getNewFragment()
     val oldFragment = e.getOldFragment()
 
-    for (placeholder in taskFile.answerPlaceholders) {
-      var placeholderStart = placeholder.offset
-      var placeholderEnd = placeholder.endOffset
-
-      val changes = getChangeForOffsets(offset, change, placeholder)
-      val changeForStartOffset = changes.getFirst()
-      val changeForEndOffset = changes.getSecond()
-
-      placeholderStart += changeForStartOffset
-      placeholderEnd += changeForEndOffset
-
-      if (placeholderStart - 1 == offset && fragment.toString().isEmpty() && oldFragment.toString().startsWith("\n")) {
-        placeholderStart -= 1
-      }
-
-      if (placeholderStart == offset && oldFragment.toString().isEmpty() && fragment.toString().startsWith("\n")) {
-        placeholderStart += 1
+    // placeholders ending before the change are not affected by it, so only the following ones are updated
+    var isChanged = false
+    taskFile.movePlaceholdersKeepingOrder {
+      for (placeholder in taskFile.getAnswerPlaceholders(offset, Int.MAX_VALUE)) {
+        var placeholderStart = placeholder.offset
+        var placeholderEnd = placeholder.endOffset
+
+        placeholderStart += getChangeForStartOffset(offset, change, placeholder)
+        placeholderEnd += getChangeForEndOffset(offset, change, placeholder)
+
+        if (placeholderStart - 1 == offset && fragment.isEmpty() && oldFragment.startsWith("\n")) {
+          placeholderStart -= 1
+        }
+
+        if (placeholderStart == offset && oldFragment.isEmpty() && fragment.startsWith("\n")) {
+          placeholderStart += 1
+        }
+
+        val length = placeholderEnd - placeholderStart
+        assert(length >= 0)
+        assert(placeholderStart >= 0)
+        if (placeholder.offset != placeholderStart || placeholder.length != length) {
+          placeholder.offset = placeholderStart
+          placeholder.length = length
+          isChanged = true
+        }
       }
+    }
 
-      val length = placeholderEnd - placeholderStart
-      assert(length >= 0)
-      assert(placeholderStart >= 0)
-      updatePlaceholder(placeholder, placeholderStart, length)
+    if (isChanged && updateYaml) {
+      YamlFormatSynchronizer.saveItem(taskFile.task)
     }
   }
 
-  private fun getChangeForOffsets(offset: Int, change: Int, placeholder: AnswerPlaceholder): Pair<Int, Int> {
+  private fun getChangeForStartOffset(offset: Int, change: Int, placeholder: AnswerPlaceholder): Int {
     val placeholderStart = placeholder.offset
-    val placeholderEnd = placeholder.endOffset
-    var start = 0
-    var end = change
-    if (offset > placeholderEnd) {
-      return Pair.create(0, 0)
-    }
+    if (offset >= placeholderStart) return 0
 
-    if (offset < placeholderStart) {
-      start = change
-
-      if (change < 0 && offset - change > placeholderStart) {  // delete part of placeholder start
-        start = offset - placeholderStart
-      }
-    }
-
-    if (change < 0 && offset - change > placeholderEnd) {   // delete part of placeholder end
-      end = offset - placeholderEnd
+    if (change < 0 && offset - change > placeholderStart) {  // delete part of placeholder start
+      return offset - placeholderStart
     }
-
-    return Pair.create(start, end)
+    return change
   }
 
-  private fun updatePlaceholder(answerPlaceholder: AnswerPlaceholder, start: Int, length: Int) {
-    answerPlaceholder.offset = start
-    answerPlaceholder.length = length
-    if (updateYaml) {
-      YamlFormatSynchronizer.saveItem(answerPlaceholder.taskFile.task)
+  private fun getChangeForEndOffset(offset: Int, change: Int, placeholder: AnswerPlaceholder): Int {
+    val placeholderEnd = placeholder.endOffset
+    if (change < 0 && offset - change > placeholderEnd) {   // delete part of placeholder end
+      return offset - placeholderEnd
     }
+    return change
   }
 
   private val DocumentEvent.taskFile: TaskFile? get() {
@@ -34,6 +34,7 @@ import com.jetbrains.edu.learning.json.getCourseMapper
 import com.jetbrains.edu.learning.json.migrate
 import com.jetbrains.edu.learning.json.mixins.LocalEduCourseMixin
 import com.jetbrains.edu.learning.json.readCourseJson
+import com.jetbrains.edu.learning.json.readCourseJsonSkeleton
 import com.jetbrains.edu.learning.newproject.CourseProjectGenerator
 import com.jetbrains.edu.learning.projectView.ProgressUtil.updateCourseProgress
 import com.jetbrains.edu.learning.taskToolWindow.ui.EduBrowserHyperlinkListener
@@ -44,6 +45,7 @@ import org.intellij.markdown.html.HtmlGenerator
 import org.intellij.markdown.parser.MarkdownParser
 import org.jsoup.Jsoup
 import java.io.IOException
+import java.io.InputStreamReader
 import java.io.Reader
 import java.nio.charset.StandardCharsets
 import java.util.concurrent.Callable
@@ -122,6 +124,40 @@ object EduUtilsKt {
     return null
   }
 
+  /**
+   * Reads only the course structure from the archive, see [readCourseJsonSkeleton].
+   * Contents of course files are read from the archive on the first access,
+   * so the archive should exist as long as the course is used
+   */
+  fun getLocalCourseSkeleton(zipFilePath: String): Course? {
+    return readCourseJsonSkeleton { courseJsonReader(zipFilePath) }?.cutOutHeader()
+  }
+
+  /**
+   * Opens `course.json` of the archive. The archive is closed together with the returned reader
+   */
+  @Throws(IOException::class)
+  private fun courseJsonReader(zipFilePath: String): Reader {
+    val zipFile = ZipFile(zipFilePath)
+    try {
+      val entry = zipFile.getEntry(COURSE_META_FILE) ?: throw IOException("No $COURSE_META_FILE in $zipFilePath")
+      return object : InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8) {
+        override fun close() {
+          try {
+            super.close()
+          }
+          finally {
+            zipFile.close()
+          }
+        }
+      }
+    }
+    catch (e: IOException) {
+      zipFile.close()
+      throw e
+    }
+  }
+
   //TODO: remove when all Marketplace courses cut headers
   private fun Course.cutOutHeader(): Course {
     this.visitTasks {
@@ -97,6 +97,7 @@ abstract class SolutionLoaderBase(protected val project: Project) : Disposable {
     progressIndicator?.isIndeterminate = false
     cancelUnfinishedTasks()
     val tasksToUpdate = tasks.filter { task -> task.hasSolutions() }
+    prefetchSolutions(tasksToUpdate, submissions)
     var finishedTaskCount = 0
     val futures = HashMap<Int, Future<Boolean>>(tasks.size)
     for (task in tasksToUpdate) {
@@ -245,6 +246,11 @@ abstract class SolutionLoaderBase(protected val project: Project) : Disposable {
 
   protected abstract fun loadSolution(task: Task, submissions: List<Submission>): TaskSolutions
 
+  /**
+   * Called before solutions of [tasks] are loaded one by one with [loadSolution], so their content can be loaded in advance
+   */
+  protected open fun prefetchSolutions(tasks: List<Task>, submissions: List<Submission>) {}
+
   companion object {
 
     private val LOG = Logger.getInstance(SolutionLoaderBase::class.java)
@@ -262,6 +268,7 @@ abstract class SolutionLoaderBase(protected val project: Project) : Disposable {
         answerPlaceholder.length = updatedPlaceholder.length
         answerPlaceholder.selected = updatedPlaceholder.selected
       }
+      taskFile.placeholdersMoved()
     }
 
     private fun Task.modificationDate(project: Project): Date {
@@ -0,0 +1,162 @@
+package com.jetbrains.edu.learning
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.components.service
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.io.FileUtil
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.openapi.vfs.VirtualFileManager
+import com.intellij.openapi.vfs.VirtualFileWithId
+import com.intellij.openapi.vfs.newvfs.BulkFileListener
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent
+import com.jetbrains.edu.learning.courseFormat.Course
+import com.jetbrains.edu.learning.courseFormat.TaskFile
+import com.jetbrains.edu.learning.courseFormat.tasks.Task
+import org.jetbrains.annotations.TestOnly
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Caches resolution of project files to their tasks and task files by file id,
+ * since [getTaskFile] and [getContainingTask] are called on every document change, highlighting pass, project view update, etc.
+ *
+ * Cached results are valid while the course of the project, its structure (see [Course.structureModificationCount])
+ * and the location of files in the course directory (any VFS event under it except content changes) stay the same.
+ * Otherwise, all of them are dropped, and files are resolved again by walking up the directories.
+ */
+@Service(Service.Level.PROJECT)
+class TaskFileIndex(private val project: Project) : Disposable {
+
+  @Volatile
+  private var cache: Cache? = null
+
+  /**
+   * Incremented before and after each VFS event which may change location of files in the course directory
+   */
+  private val vfsModificationCount = AtomicLong()
+
+  private val hits = AtomicLong()
+  private val misses = AtomicLong()
+
+  val hitCount: Long get() = hits.get()
+  val missCount: Long get() = misses.get()
+
+  init {
+    val connection = project.messageBus.connect(this)
+    connection.subscribe(VirtualFileManager.VFS_CHANGES, object : BulkFileListener {
+      override fun before(events: List<VFileEvent>) = filesChanged(events)
+      override fun after(events: List<VFileEvent>) = filesChanged(events)
+    })
+    connection.subscribe(StudyTaskManager.COURSE_SET, object : CourseSetListener {
+      override fun courseSet(course: Course) {
+        cache = null
+      }
+    })
+  }
+
+  fun getTaskFile(file: VirtualFile): TaskFile? = getEntry(file).taskFile
+
+  fun getContainingTask(file: VirtualFile): Task? = getEntry(file).task
+
+  private fun getEntry(file: VirtualFile): Entry {
+    val holder = project.toCourseInfoHolder()
+    val course = holder.course
+    if (course == null) {
+      cache = null
+      return computeEntry(file, holder)
+    }
+    if (file !is VirtualFileWithId) {
+      return computeEntry(file, holder)
+    }
+
+    val entries = getCache(course).entries
+    val id = file.id
+    val entry = entries[id]
+    if (entry != null) {
+      hits.incrementAndGet()
+      return entry
+    }
+
+    misses.incrementAndGet()
+    val newEntry = computeEntry(file, holder)
+    entries[id] = newEntry
+    return newEntry
+  }
+
+  /**
+   * Modification counts are taken before files are resolved,
+   * so results computed during a change are dropped with the cache on the next lookup
+   */
+  private fun getCache(course: Course): Cache {
+    val structureModificationCount = course.structureModificationCount
+    val vfsModificationCount = vfsModificationCount.get()
+    val cache = cache
+    if (cache != null && cache.isValid(course, structureModificationCount, vfsModificationCount)) {
+      return cache
+    }
+    return Cache(course, structureModificationCount, vfsModificationCount).also { this.cache = it }
+  }
+
+  private fun computeEntry(file: VirtualFile, holder: CourseInfoHolder<out Course?>): Entry {
+    val task = file.computeContainingTask(holder)
+    val taskFile = task?.getTaskFile(file.pathRelativeToTask(holder))
+    return Entry(task, taskFile)
+  }
+
+  private fun filesChanged(events: List<VFileEvent>) {
+    if (events.all { it is VFileContentChangeEvent }) return
+    val courseDirPath = project.guessCourseDir()?.path
+    if (courseDirPath != null && events.none { it.affects(courseDirPath) }) return
+    vfsModificationCount.incrementAndGet()
+  }
+
+  /**
+   * Events of the course directory itself or of its parents change locations of all course files as well
+   */
+  private fun VFileEvent.affects(courseDirPath: String): Boolean {
+    if (this is VFileContentChangeEvent) return false
+    val paths = when (this) {
+      is VFileMoveEvent -> listOf(oldPath, newPath)
+      is VFilePropertyChangeEvent -> listOf(oldPath, newPath)
+      else -> listOf(path)
+    }
+    return paths.any { FileUtil.isAncestor(courseDirPath, it, false) || FileUtil.isAncestor(it, courseDirPath, false) }
+  }
+
+  @TestOnly
+  fun resetCounters() {
+    hits.set(0)
+    misses.set(0)
+  }
+
+  override fun dispose() {
+    cache = null
+  }
+
+  /**
+   * Results resolved for [course] while its structure and file locations stay the same
+   */
+  private class Cache(
+    private val course: Course,
+    private val structureModificationCount: Long,
+    private val vfsModificationCount: Long
+  ) {
+    val entries = ConcurrentHashMap<Int, Entry>()
+
+    fun isValid(course: Course, structureModificationCount: Long, vfsModificationCount: Long): Boolean {
+      return this.course === course &&
+             this.structureModificationCount == structureModificationCount &&
+             this.vfsModificationCount == vfsModificationCount
+    }
+  }
+
+  private class Entry(val task: Task?, val taskFile: TaskFile?)
+
+  companion object {
+    fun getInstance(project: Project): TaskFileIndex = project.service()
+  }
+}
@@ -115,6 +115,17 @@ fun VirtualFile.getContainingTask(project: Project): Task? {
 }
 
 fun VirtualFile.getContainingTask(holder: CourseInfoHolder<out Course?>): Task? {
+  val project = holder.project
+  if (project != null && !project.isDisposed) {
+    return TaskFileIndex.getInstance(project).getContainingTask(this)
+  }
+  return computeContainingTask(holder)
+}
+
+/**
+ * Finds the task containing the file walking up the directories. Prefer [getContainingTask] which caches results for projects
+ */
+internal fun VirtualFile.computeContainingTask(holder: CourseInfoHolder<out Course?>): Task? {
   val course = holder.course ?: return null
   val taskDir = getTaskDir(holder) ?: return null
   val lessonDir = taskDir.parent ?: return null
@@ -250,7 +261,11 @@ fun VirtualFile.getTaskFile(project: Project): TaskFile? {
 }
 
 fun VirtualFile.getTaskFile(holder: CourseInfoHolder<out Course?>): TaskFile? {
-  val task = getContainingTask(holder)
+  val project = holder.project
+  if (project != null && !project.isDisposed) {
+    return TaskFileIndex.getInstance(project).getTaskFile(this)
+  }
+  val task = computeContainingTask(holder)
   return task?.getTaskFile(pathRelativeToTask(holder))
 }
 
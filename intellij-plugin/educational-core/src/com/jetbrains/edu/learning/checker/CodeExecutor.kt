@@ -5,6 +5,7 @@ import com.intellij.execution.configurations.ConfigurationFactory
 import com.intellij.openapi.progress.ProgressIndicator
 import com.intellij.openapi.project.Project
 import com.jetbrains.edu.learning.Err
+import com.jetbrains.edu.learning.Ok
 import com.jetbrains.edu.learning.Result
 import com.jetbrains.edu.learning.codeforces.run.CodeforcesRunConfiguration
 import com.jetbrains.edu.learning.codeforces.run.EmptyCodeforcesRunConfiguration
@@ -31,6 +32,19 @@ interface CodeExecutor {
     input: String? = null
   ): Result<String, CheckResult>
 
+  /**
+   * Prepares the code of [task] to be executed several times with different inputs, e.g. once for each test of an output task,
+   * so expensive preparation steps like creation of run configuration are done only once.
+   *
+   * By default, each run of the prepared execution is just an [execute] call
+   */
+  fun prepareExecution(project: Project, task: Task): Result<PreparedCodeExecution, CheckResult> {
+    return Ok(object : PreparedCodeExecution {
+      override fun execute(indicator: ProgressIndicator, input: String?): Result<String, CheckResult> =
+        this@CodeExecutor.execute(project, task, indicator, input)
+    })
+  }
+
   fun createRunConfiguration(
     project: Project,
     task: Task
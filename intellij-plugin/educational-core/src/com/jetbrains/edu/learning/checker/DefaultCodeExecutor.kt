@@ -2,6 +2,9 @@ package com.jetbrains.edu.learning.checker
 
 import com.intellij.execution.ExecutionListener
 import com.intellij.execution.OutputListener
+import com.intellij.execution.RunManagerEx
+import com.intellij.execution.RunnerAndConfigurationSettings
+import com.intellij.execution.configurations.RunConfigurationBase
 import com.intellij.execution.configurations.RuntimeConfigurationException
 import com.intellij.execution.process.ProcessHandler
 import com.intellij.execution.runners.ExecutionEnvironment
@@ -26,11 +29,13 @@ import java.nio.charset.StandardCharsets
 
 open class DefaultCodeExecutor : CodeExecutor {
   override fun execute(project: Project, task: Task, indicator: ProgressIndicator, input: String?): Result<String, CheckResult> {
-    fun logAndQuit(error: String): Err<CheckResult> {
-      LOG.warn(error)
-      return resultUnchecked(error)
+    return when (val execution = prepareExecution(project, task)) {
+      is Ok -> execution.value.execute(indicator, input)
+      is Err -> execution
     }
+  }
 
+  override fun prepareExecution(project: Project, task: Task): Result<PreparedCodeExecution, CheckResult> {
     val configuration = runReadActionInSmartMode(project) { createRunConfiguration(project, task) }
     if (configuration == null) {
       LOG.warn("Failed to launch checking. Run configuration is null")
@@ -46,49 +51,83 @@ open class DefaultCodeExecutor : CodeExecutor {
     }
 
     configuration.isActivateToolWindowBeforeRun = false
+    return Ok(RunConfigurationExecution(project, configuration))
+  }
+
+  /**
+   * Runs the same [configuration] for each input.
+   * Several processes of the configuration can be run at the same time only if the configuration allows it
+   */
+  private inner class RunConfigurationExecution(
+    private val project: Project,
+    private val configuration: RunnerAndConfigurationSettings
+  ) : PreparedCodeExecution {
+
+    /**
+     * Configurations stored in the project are left as is,
+     * while configurations created only for this execution are allowed to run in parallel.
+     *
+     * Before-run tasks, e.g. builds, are executed before every run,
+     * so configurations with such tasks are never run in parallel not to start several builds of the same code at once
+     */
+    override val isConcurrent: Boolean by lazy {
+      val runConfiguration = configuration.configuration as? RunConfigurationBase<*> ?: return@lazy false
+      val runManager = RunManagerEx.getInstanceEx(project)
+      if (runManager.getBeforeRunTasks(runConfiguration).any { it.isEnabled }) return@lazy false
+      if (configuration in runManager.allSettings) return@lazy runConfiguration.isAllowRunningInParallel
+      runConfiguration.isAllowRunningInParallel = true
+      true
+    }
 
-    var processNotStarted = false
-    val executionListener = object : ExecutionListener {
-      override fun processNotStarted(executorId: String, e: ExecutionEnvironment) {
-        processNotStarted = true
+    override fun execute(indicator: ProgressIndicator, input: String?): Result<String, CheckResult> {
+      fun logAndQuit(error: String): Err<CheckResult> {
+        LOG.warn(error)
+        return resultUnchecked(error)
       }
 
-      override fun processStarted(executorId: String, env: ExecutionEnvironment, handler: ProcessHandler) {
-        if (input != null) {
-          try {
-            val out = BufferedWriter(OutputStreamWriter(handler.processInput!!, StandardCharsets.UTF_8))
-            out.write(input)
-            out.write("\n")
-            out.flush()
-          }
-          catch (e: IOException) {
-            LOG.warn("Failed to write input", e)
+      var processNotStarted = false
+      val executionListener = object : ExecutionListener {
+        override fun processNotStarted(executorId: String, e: ExecutionEnvironment) {
+          processNotStarted = true
+        }
+
+        override fun processStarted(executorId: String, env: ExecutionEnvironment, handler: ProcessHandler) {
+          if (input != null) {
+            try {
+              val out = BufferedWriter(OutputStreamWriter(handler.processInput!!, StandardCharsets.UTF_8))
+              out.write(input)
+              out.write("\n")
+              out.flush()
+            }
+            catch (e: IOException) {
+              LOG.warn("Failed to write input", e)
+            }
           }
         }
       }
-    }
 
-    val processListener = OutputListener()
+      val processListener = OutputListener()
 
-    if (!CheckUtils.executeRunConfigurations(project, listOf(configuration), indicator, executionListener, processListener))
-      return logAndQuit(EduCoreBundle.message("error.execution.failed"))
+      if (!CheckUtils.executeRunConfigurations(project, listOf(configuration), indicator, executionListener, processListener))
+        return logAndQuit(EduCoreBundle.message("error.execution.failed"))
 
-    if (indicator.isCanceled) return logAndQuit(EduCoreBundle.message("error.execution.canceled"))
-    if (processNotStarted) return logAndQuit(EduCoreBundle.message("error.execution.failed"))
+      if (indicator.isCanceled) return logAndQuit(EduCoreBundle.message("error.execution.canceled"))
+      if (processNotStarted) return logAndQuit(EduCoreBundle.message("error.execution.failed"))
 
-    val output = processListener.output
-    val errorOutput = output.stderr
+      val output = processListener.output
+      val errorOutput = output.stderr
 
-    if (output.exitCode != 0) {
-      val err = tryToExtractCheckResultError(errorOutput) ?: CheckResult(CheckStatus.Failed, EXECUTION_ERROR_MESSAGE, errorOutput)
-      return Err(err)
-    }
+      if (output.exitCode != 0) {
+        val err = tryToExtractCheckResultError(errorOutput) ?: CheckResult(CheckStatus.Failed, EXECUTION_ERROR_MESSAGE, errorOutput)
+        return Err(err)
+      }
 
-    var outputString = output.stdout
-    if (outputString.isEmpty()) {
-      outputString = NO_OUTPUT
+      var outputString = output.stdout
+      if (outputString.isEmpty()) {
+        outputString = NO_OUTPUT
+      }
+      return Ok(outputString)
     }
-    return Ok(outputString)
   }
 
   override fun tryToExtractCheckResultError(errorOutput: String): CheckResult? = null
@@ -30,7 +30,7 @@ import com.jetbrains.edu.learning.courseFormat.tasks.EduTask
 import com.jetbrains.edu.learning.messages.EduCoreBundle
 import com.jetbrains.edu.learning.runReadActionInSmartMode
 
-abstract class EduTaskCheckerBase(task: EduTask, private val envChecker: EnvironmentChecker, project: Project) :
+abstract class EduTaskCheckerBase(task: EduTask, protected val envChecker: EnvironmentChecker, project: Project) :
   TaskChecker<EduTask>(task, project) {
 
   var activateRunToolWindow: Boolean = !task.course.isStudy
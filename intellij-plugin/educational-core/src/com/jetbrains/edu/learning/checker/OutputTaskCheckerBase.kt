@@ -1,11 +1,15 @@
 package com.jetbrains.edu.learning.checker
 
+import com.intellij.concurrency.SensitiveProgressWrapper
 import com.intellij.openapi.application.runReadAction
 import com.intellij.openapi.editor.Document
 import com.intellij.openapi.fileEditor.FileDocumentManager
 import com.intellij.openapi.progress.ProgressIndicator
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils
 import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.registry.Registry
 import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.util.concurrency.AppExecutorUtil
 import com.jetbrains.edu.learning.Err
 import com.jetbrains.edu.learning.Ok
 import com.jetbrains.edu.learning.courseFormat.CheckResult
@@ -14,6 +18,8 @@ import com.jetbrains.edu.learning.courseFormat.CheckStatus
 import com.jetbrains.edu.learning.courseFormat.tasks.OutputTaskBase
 import com.jetbrains.edu.learning.messages.EduCoreBundle
 import com.jetbrains.edu.learning.withRegistryKeyOff
+import org.jetbrains.annotations.NonNls
+import java.util.concurrent.atomic.AtomicInteger
 
 abstract class OutputTaskCheckerBase<T: OutputTaskBase>(
   task: T,
@@ -41,7 +47,27 @@ abstract class OutputTaskCheckerBase<T: OutputTaskBase>(
     }
 
     val testFolders = getTestFolders(project, task)
+    val testCases = collectTestCases(testFolders)
+    if (testCases.isEmpty()) {
+      return processCorrectCheckResult()
+    }
+
+    val execution = when (val result = codeExecutor.prepareExecution(project, task)) {
+      is Ok -> result.value
+      is Err -> return result.error
+    }
+    val parallelism = testsParallelism()
+    val failure = if (parallelism > 1 && testCases.size > 1 && execution.isConcurrent) {
+      runTestCasesConcurrently(execution, testCases, testFolders.size, parallelism, indicator)
+    }
+    else {
+      runTestCases(execution, testCases, testFolders.size, indicator)
+    }
+    return failure ?: processCorrectCheckResult()
+  }
 
+  private fun collectTestCases(testFolders: Array<out VirtualFile>): List<TestCase> {
+    val testCases = mutableListOf<TestCase>()
     for ((index, testFolder) in testFolders.withIndex()) {
       val inputVirtualFile = testFolder.findChild(task.inputFileName)
       if (inputVirtualFile == null) LOG.info("No \"input.txt\" file found for task ${task.name}")
@@ -55,36 +81,125 @@ abstract class OutputTaskCheckerBase<T: OutputTaskBase>(
       val inputDocument = inputVirtualFile?.let { getDocument(it) }
       val input = runReadAction { inputDocument?.text }
 
-      val outputDocument = getDocument(outputVirtualFile)
+      testCases += TestCase(index + 1, testFolder, input, getDocument(outputVirtualFile))
+    }
+    return testCases
+  }
 
-      val testNumber = index + 1
-      indicator.text2 = EduCoreBundle.message("progress.details.codeforces.running.test", testNumber, testFolders.size)
+  private fun runTestCases(
+    execution: PreparedCodeExecution,
+    testCases: List<TestCase>,
+    testsNum: Int,
+    indicator: ProgressIndicator
+  ): CheckResult? {
+    for (testCase in testCases) {
+      indicator.text2 = EduCoreBundle.message("progress.details.codeforces.running.test", testCase.number, testsNum)
+      val outcome = runTestCase(execution, testCase, indicator)
+      val failure = processOutcome(testCase, outcome)
+      if (failure != null) return failure
+    }
+    return null
+  }
 
-      val result = withRegistryKeyOff(RUN_WITH_PTY) {
-        codeExecutor.execute(project, task, indicator, input)
+  /**
+   * Runs up to [parallelism] test cases at the same time.
+   *
+   * Outcomes are processed in the order of test cases, so the reported failure is always the failure of the first failed test case,
+   * no matter which test case fails first in time.
+   * Test cases after the first known failure are not started, and the running ones are cancelled as soon as the result is known.
+   * [indicator] is updated only by the calling thread.
+   */
+  private fun runTestCasesConcurrently(
+    execution: PreparedCodeExecution,
+    testCases: List<TestCase>,
+    testsNum: Int,
+    parallelism: Int,
+    indicator: ProgressIndicator
+  ): CheckResult? {
+    val testsIndicator = SensitiveProgressWrapper(indicator)
+    val firstFailedIndex = AtomicInteger(Int.MAX_VALUE)
+
+    val executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Output Task Tests", parallelism)
+    try {
+      val futures = testCases.mapIndexed { index, testCase ->
+        executor.submit<TestCaseOutcome?> {
+          if (index > firstFailedIndex.get() || testsIndicator.isCanceled) return@submit null
+          val outcome = runTestCase(execution, testCase, SensitiveProgressWrapper(testsIndicator))
+          if (outcome.isFailed) {
+            firstFailedIndex.accumulateAndGet(index) { a, b -> minOf(a, b) }
+          }
+          outcome
+        }
       }
 
-      val actualOutput = when (result) {
-        is Ok -> CheckUtils.postProcessOutput(result.value)
-        is Err -> return result.error
+      for ((index, testCase) in testCases.withIndex()) {
+        indicator.text2 = EduCoreBundle.message("progress.details.codeforces.running.test", testCase.number, testsNum)
+        val outcome = ProgressIndicatorUtils.awaitWithCheckCanceled(futures[index], indicator) ?: break
+        val failure = processOutcome(testCase, outcome)
+        if (failure != null) return failure
       }
-      createLatestOutputFile(testFolder, actualOutput)
+      // test cases are skipped without a preceding failure only if checking is cancelled
+      return if (indicator.isCanceled) CheckResult(CheckStatus.Unchecked, EduCoreBundle.message("error.execution.canceled")) else null
+    }
+    finally {
+      testsIndicator.cancel()
+      executor.shutdownNow()
+    }
+  }
 
-      val expectedOutput = runReadAction { outputDocument.text }
-      if (compareOutputs(expectedOutput, actualOutput)) {
-        val diff = CheckResultDiff(expected = expectedOutput, actual = actualOutput)
-        return CheckResult(CheckStatus.Failed, getIncorrectMessage(testFolder.name), diff = diff)
-      }
+  /**
+   * Processes started with pseudo-terminal may mix output with input,
+   * so the corresponding registry key is turned off only while a test case is running
+   */
+  private fun runTestCase(execution: PreparedCodeExecution, testCase: TestCase, indicator: ProgressIndicator): TestCaseOutcome {
+    val result = withRegistryKeyOff(RUN_WITH_PTY) { execution.execute(indicator, testCase.input) }
+    val actualOutput = when (result) {
+      is Ok -> CheckUtils.postProcessOutput(result.value)
+      is Err -> return TestCaseOutcome(null, null, result.error)
+    }
+    val expectedOutput = runReadAction { testCase.outputDocument.text }
+    return TestCaseOutcome(actualOutput, expectedOutput, null)
+  }
+
+  /**
+   * @return check result of the failed test case or `null` if [outcome] is successful
+   */
+  private fun processOutcome(testCase: TestCase, outcome: TestCaseOutcome): CheckResult? {
+    if (outcome.error != null) return outcome.error
+    val actualOutput = outcome.actualOutput ?: return null
+    val expectedOutput = outcome.expectedOutput ?: return null
+    createLatestOutputFile(testCase.folder, actualOutput)
+
+    if (compareOutputs(expectedOutput, actualOutput)) {
+      val diff = CheckResultDiff(expected = expectedOutput, actual = actualOutput)
+      return CheckResult(CheckStatus.Failed, getIncorrectMessage(testCase.folder.name), diff = diff)
     }
-    return processCorrectCheckResult()
+    return null
   }
 
+  private val TestCaseOutcome.isFailed: Boolean
+    get() = error != null || compareOutputs(expectedOutput.orEmpty(), actualOutput.orEmpty())
+
   private fun getDocument(virtualFile: VirtualFile): Document {
     return runReadAction { FileDocumentManager.getInstance().getDocument(virtualFile) }
     ?: error("Can't get document of ${virtualFile.name} file - ${virtualFile.path}")
   }
 
+  private class TestCase(val number: Int, val folder: VirtualFile, val input: String?, val outputDocument: Document)
+
+  private class TestCaseOutcome(val actualOutput: String?, val expectedOutput: String?, val error: CheckResult?)
+
   companion object {
     const val RUN_WITH_PTY = "run.processes.with.pty"
+
+    @NonNls
+    const val TESTS_PARALLELISM_REGISTRY_KEY = "edu.output.checker.tests.parallelism"
+
+    /**
+     * Should be the same as the default value of [TESTS_PARALLELISM_REGISTRY_KEY] in `educational-core.xml`
+     */
+    private const val DEFAULT_TESTS_PARALLELISM = 4
+
+    private fun testsParallelism(): Int = Registry.intValue(TESTS_PARALLELISM_REGISTRY_KEY, DEFAULT_TESTS_PARALLELISM).coerceAtLeast(1)
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package com.jetbrains.edu.learning.checker
+
+import com.intellij.openapi.progress.ProgressIndicator
+import com.jetbrains.edu.learning.Result
+import com.jetbrains.edu.learning.courseFormat.CheckResult
+
+/**
+ * Code of a task prepared by [CodeExecutor.prepareExecution] to be run with different inputs
+ */
+interface PreparedCodeExecution {
+  /**
+   * Whether [execute] may be called from several threads at the same time
+   */
+  val isConcurrent: Boolean get() = false
+
+  /**
+   * @see CodeExecutor.execute
+   */
+  fun execute(indicator: ProgressIndicator, input: String? = null): Result<String, CheckResult>
+}
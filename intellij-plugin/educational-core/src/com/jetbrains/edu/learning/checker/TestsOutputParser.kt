@@ -8,32 +8,52 @@ import com.jetbrains.edu.learning.courseFormat.CheckStatus
 import com.jetbrains.edu.learning.xmlEscaped
 import org.jetbrains.annotations.Nls
 import org.jetbrains.annotations.VisibleForTesting
-import java.util.regex.Pattern
 
+/**
+ * Parses output of tests line by line.
+ *
+ * Lines can be passed as soon as they are printed with [accept], so the result is known while tests are still running,
+ * or all at once with [getCheckResult].
+ * Failed messages are retained only up to [MAX_FAILED_MESSAGE_LENGTH] characters, so huge assertion messages don't blow up memory
+ */
 class TestsOutputParser {
 
   private var pendingFailedTestMessage: StringBuilder = StringBuilder()
+  private var isPendingFailedTestMessageTruncated: Boolean = false
   private var lastFailedMessage: TestMessage.Failed? = null
   private var congratulations: String = CONGRATULATIONS
 
-  fun getCheckResult(messages: List<String>, needEscapeResult: Boolean): CheckResult {
-    val processor: (TestMessage) -> Unit = { message ->
-      when (message) {
-        is TestMessage.Congrats -> {
-            congratulations = message.congratulations
-        }
-        is TestMessage.Failed -> {
-          lastFailedMessage = message
-        }
-        else -> Unit
+  private val resultProcessor: (TestMessage) -> Unit = { message ->
+    when (message) {
+      is TestMessage.Congrats -> {
+        congratulations = message.congratulations
+      }
+      is TestMessage.Failed -> {
+        lastFailedMessage = message
       }
+      else -> Unit
     }
+  }
 
-    for (message in messages) {
-      processMessage(message, processor)
-      if (lastFailedMessage != null) break
-    }
-    processPendingFailedMessage(processor)
+  /**
+   * `true` if a failed test is already found, so the status of the check result is known
+   */
+  val isFailed: Boolean get() = lastFailedMessage != null
+
+  /**
+   * Accepts the next line of tests output.
+   * Lines after the first failed test are ignored
+   */
+  fun accept(message: @Nls String) {
+    if (isFailed) return
+    processMessage(message, resultProcessor)
+  }
+
+  /**
+   * Returns the check result for lines passed with [accept]
+   */
+  fun getCheckResult(needEscapeResult: Boolean): CheckResult {
+    processPendingFailedMessage(resultProcessor)
 
     val finalFailedMessage = lastFailedMessage
     return if (finalFailedMessage != null) {
@@ -45,6 +65,14 @@ class TestsOutputParser {
     }
   }
 
+  fun getCheckResult(messages: List<String>, needEscapeResult: Boolean): CheckResult {
+    for (message in messages) {
+      accept(message)
+      if (isFailed) break
+    }
+    return getCheckResult(needEscapeResult)
+  }
+
   fun processMessage(message: @Nls String, processor: (TestMessage) -> Unit) {
     // Pass each line of output to processor as is to show them in console, for example
     processor(TestMessage.TextLine(message))
@@ -71,17 +99,28 @@ class TestsOutputParser {
           // Process failed message accumulated in `pendingFailedTestMessage` buffer
           // since `message` is the first line of new failed message
           processPendingFailedMessage(processor)
-          pendingFailedTestMessage.append(message.substringAfter("$STUDY_PREFIX ").removeSuffix("\n"))
+          appendToPendingFailedMessage(message.substringAfter("$STUDY_PREFIX ").removeSuffix("\n"))
         }
         else -> {
           // Append secondary lines of multiline failed message
-          pendingFailedTestMessage.append("\n")
-          pendingFailedTestMessage.append(message.substringAfter("$STUDY_PREFIX ").removeSuffix("\n"))
+          appendToPendingFailedMessage("\n")
+          appendToPendingFailedMessage(message.substringAfter("$STUDY_PREFIX ").removeSuffix("\n"))
         }
       }
     }
   }
 
+  private fun appendToPendingFailedMessage(text: String) {
+    val remaining = MAX_FAILED_MESSAGE_LENGTH - pendingFailedTestMessage.length
+    if (text.length > remaining) {
+      pendingFailedTestMessage.append(text, 0, remaining.coerceAtLeast(0))
+      isPendingFailedTestMessageTruncated = true
+    }
+    else {
+      pendingFailedTestMessage.append(text)
+    }
+  }
+
   private fun processPendingFailedMessage(processor: (TestMessage) -> Unit) {
     if (pendingFailedTestMessage.isEmpty()) return
     val fullMessage = pendingFailedTestMessage.toString()
@@ -89,28 +128,61 @@ class TestsOutputParser {
     val rawTestName = fullMessage.substringBefore(TEST_FAILED, "").trim()
     val testName = rawTestName.ifEmpty { "test" }
     val message = fullMessage.substringAfter(TEST_FAILED)
-    val matcher = TEST_FAILED_PATTERN.matcher(message)
-    val testMessage = if (matcher.find()) {
-      val errorMessage = matcher.group(2) ?: ""
-      val expectedText = matcher.group(3)
-      val actual = matcher.group(4)
-      TestMessage.Failed(testName, errorMessage, expectedText, actual)
+    val testMessage = if (isPendingFailedTestMessageTruncated) {
+      // expected and actual values can't be extracted reliably from a truncated message
+      TestMessage.Failed(testName, "$message$TRUNCATED_MESSAGE_SUFFIX", null, null)
     }
     else {
-      TestMessage.Failed(testName, message, null, null)
+      parseFailedMessage(testName, message)
     }
     pendingFailedTestMessage = StringBuilder()
+    isPendingFailedTestMessageTruncated = false
     processor(testMessage)
   }
 
+  /**
+   * Splits [message] like `<error message> expected: <expected> but was: <actual>` into parts.
+   *
+   * The result is the same as matching of `((.+) )?expected: ?(.*) but was: ?(.*)` regex with `DOTALL` flag,
+   * i.e. the last suitable `expected:` and the last `but was:` are taken,
+   * but it works in linear time without backtracking on large messages
+   */
+  private fun parseFailedMessage(testName: String, message: String): TestMessage.Failed {
+    val butWasIndex = message.lastIndexOf(BUT_WAS)
+    if (butWasIndex < 0) return TestMessage.Failed(testName, message, null, null)
+
+    // `expected:` preceded by a non-empty error message and a space
+    val expectedWithMessageIndex = message.lastIndexOf(" $EXPECTED", butWasIndex - EXPECTED.length - 1)
+    val (errorMessage, expectedIndex) = if (expectedWithMessageIndex >= 1) {
+      message.substring(0, expectedWithMessageIndex) to expectedWithMessageIndex + 1
+    }
+    else {
+      "" to message.indexOf(EXPECTED)
+    }
+    if (expectedIndex < 0 || expectedIndex + EXPECTED.length > butWasIndex) {
+      return TestMessage.Failed(testName, message, null, null)
+    }
+
+    var expectedStart = expectedIndex + EXPECTED.length
+    if (expectedStart < butWasIndex && message[expectedStart] == ' ') expectedStart++
+    var actualStart = butWasIndex + BUT_WAS.length
+    if (actualStart < message.length && message[actualStart] == ' ') actualStart++
+
+    return TestMessage.Failed(testName, errorMessage, message.substring(expectedStart, butWasIndex), message.substring(actualStart))
+  }
+
   private val TestMessage.Failed.diff: CheckResultDiff? get() =
     if (expected != null && actual != null) CheckResultDiff(expected, actual, message) else null
 
   companion object {
     const val STUDY_PREFIX = "#educational_plugin"
 
-    private val TEST_FAILED_PATTERN: Pattern = Pattern.compile("((.+) )?expected: ?(.*) but was: ?(.*)",
-                                                               Pattern.MULTILINE or Pattern.DOTALL)
+    private const val EXPECTED = "expected:"
+    private const val BUT_WAS = " but was:"
+
+    const val MAX_FAILED_MESSAGE_LENGTH = 256 * 1024
+
+    private const val TRUNCATED_MESSAGE_SUFFIX = "\n..."
 
     @VisibleForTesting
     const val TEST_OK = "test OK"
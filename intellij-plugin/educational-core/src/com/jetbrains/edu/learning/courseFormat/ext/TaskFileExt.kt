@@ -48,6 +48,7 @@ fun TaskFile.revert(project: Project) {
   answerPlaceholders.forEach { answerPlaceholder ->
     answerPlaceholder.reset(true)
   }
+  placeholdersMoved()
 
   val virtualFile = getVirtualFile(project)
   if (virtualFile != null) {
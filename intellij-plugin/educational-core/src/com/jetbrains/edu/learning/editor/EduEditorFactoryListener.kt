@@ -1,13 +1,16 @@
 package com.jetbrains.edu.learning.editor
 
 import com.intellij.ide.projectView.ProjectView
-import com.intellij.openapi.editor.event.EditorFactoryEvent
-import com.intellij.openapi.editor.event.EditorFactoryListener
-import com.intellij.openapi.editor.event.EditorMouseEvent
-import com.intellij.openapi.editor.event.EditorMouseListener
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.editor.Editor
+import com.intellij.openapi.editor.event.*
+import com.intellij.openapi.editor.ex.util.EditorUtil
 import com.intellij.openapi.fileEditor.FileDocumentManager
 import com.intellij.openapi.project.Project
 import com.intellij.problems.WolfTheProblemSolver
+import com.intellij.psi.PsiDocumentManager
+import com.intellij.util.ui.update.MergingUpdateQueue
+import com.intellij.util.ui.update.Update
 import com.jetbrains.edu.learning.StudyTaskManager
 import com.jetbrains.edu.learning.courseFormat.CheckStatus
 import com.jetbrains.edu.learning.courseFormat.EduCourse
@@ -20,7 +23,9 @@ import com.jetbrains.edu.learning.marketplace.api.MarketplaceConnector
 import com.jetbrains.edu.learning.marketplace.markMarketplaceTheoryTaskAsCompleted
 import com.jetbrains.edu.learning.navigation.NavigationUtils.getPlaceholderOffsets
 import com.jetbrains.edu.learning.navigation.NavigationUtils.navigateToFirstAnswerPlaceholder
+import com.jetbrains.edu.learning.placeholder.PlaceholderHighlightingManager
 import com.jetbrains.edu.learning.placeholder.PlaceholderHighlightingManager.showPlaceholders
+import com.jetbrains.edu.learning.placeholder.PlaceholderHighlightingPass
 import com.jetbrains.edu.learning.placeholderDependencies.PlaceholderDependencyManager.updateDependentPlaceholders
 import com.jetbrains.edu.learning.statistics.EduLaunchesReporter.sendStats
 import com.jetbrains.edu.learning.stepik.hyperskill.markHyperskillTheoryTaskAsCompleted
@@ -43,6 +48,38 @@ class EduEditorFactoryListener : EditorFactoryListener {
     }
   }
 
+  /**
+   * Placeholder highlighting pass highlights only the visible part of a file,
+   * so placeholders are highlighted again when scrolling goes beyond it.
+   * Only placeholder highlighters are updated, and scroll events coming in a burst are merged into a single update,
+   * which collects placeholders in background
+   */
+  private class PlaceholderHighlightingVisibleAreaListener(
+    private val project: Project,
+    private val taskFile: TaskFile,
+    private val editor: Editor
+  ) : VisibleAreaListener, Disposable {
+
+    private val updateQueue = MergingUpdateQueue(PLACEHOLDER_HIGHLIGHTING_UPDATE, SCROLL_MERGING_TIME_SPAN_MS, true, null, this)
+
+    init {
+      EditorUtil.disposeWithEditor(editor, this)
+    }
+
+    override fun visibleAreaChanged(e: VisibleAreaEvent) {
+      if (e.newRectangle.isEmpty || PlaceholderHighlightingPass.isVisibleAreaHighlighted(editor)) return
+      updateQueue.queue(Update.create(PLACEHOLDER_HIGHLIGHTING_UPDATE) { highlightVisibleArea() })
+    }
+
+    private fun highlightVisibleArea() {
+      if (editor.isDisposed || PlaceholderHighlightingPass.isVisibleAreaHighlighted(editor)) return
+      val file = PsiDocumentManager.getInstance(project).getPsiFile(editor.document) ?: return
+      PlaceholderHighlightingPass.highlightVisibleArea(file, taskFile, editor, this)
+    }
+
+    override fun dispose() {}
+  }
+
   override fun editorCreated(event: EditorFactoryEvent) {
     val editor = event.editor
     val project = editor.project ?: return
@@ -56,6 +93,10 @@ class EduEditorFactoryListener : EditorFactoryListener {
       updateDependentPlaceholders(project, task)
       navigateToFirstAnswerPlaceholder(editor, taskFile)
       showPlaceholders(project, taskFile, editor)
+      if (PlaceholderHighlightingManager.useNewRendering()) {
+        val listener = PlaceholderHighlightingVisibleAreaListener(project, taskFile, editor)
+        editor.scrollingModel.addVisibleAreaListener(listener, listener)
+      }
       if (course.isStudy) {
         editor.addEditorMouseListener(AnswerPlaceholderSelectionListener(taskFile))
       }
@@ -84,4 +125,10 @@ class EduEditorFactoryListener : EditorFactoryListener {
       ProjectView.getInstance(project).refresh()
     }
   }
+
+  companion object {
+    private const val PLACEHOLDER_HIGHLIGHTING_UPDATE: String = "Placeholder highlighting update"
+
+    private const val SCROLL_MERGING_TIME_SPAN_MS = 100
+  }
 }
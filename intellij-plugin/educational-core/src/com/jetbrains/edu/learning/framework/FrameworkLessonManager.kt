@@ -11,8 +11,18 @@ interface FrameworkLessonManager : LightTestAware {
   fun prepareNextTask(lesson: FrameworkLesson, taskDir: VirtualFile, showDialogIfConflict: Boolean)
   fun preparePrevTask(lesson: FrameworkLesson, taskDir: VirtualFile, showDialogIfConflict: Boolean)
 
+  /**
+   * Starts computing of the state of the task next to [task] in background, so the following navigation to it is faster.
+   * Does nothing if [task] is not the current task of a framework lesson.
+   * The prepared state is dropped on navigation if task files were changed after it had been computed
+   */
+  fun prepareNextTaskState(task: Task)
+
   fun saveExternalChanges(task: Task, externalState: Map<String, String>)
-  fun updateUserChanges(task: Task, newInitialState: Map<String, String>)
+  /**
+   * Updates saved user changes of [task] after its initial state was changed from [oldInitialState] to [newInitialState]
+   */
+  fun updateUserChanges(task: Task, oldInitialState: Map<String, String>, newInitialState: Map<String, String>)
 
   fun getChangesTimestamp(task: Task): Long
 
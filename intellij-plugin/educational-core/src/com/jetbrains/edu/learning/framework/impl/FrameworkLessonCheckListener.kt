@@ -0,0 +1,19 @@
+package com.jetbrains.edu.learning.framework.impl
+
+import com.intellij.openapi.project.Project
+import com.jetbrains.edu.learning.checker.CheckListener
+import com.jetbrains.edu.learning.courseFormat.CheckResult
+import com.jetbrains.edu.learning.courseFormat.FrameworkLesson
+import com.jetbrains.edu.learning.courseFormat.tasks.Task
+import com.jetbrains.edu.learning.framework.FrameworkLessonManager
+
+/**
+ * Learners usually go to the next task right after the current one is solved,
+ * so the state of the next task is prepared in advance to make navigation faster
+ */
+class FrameworkLessonCheckListener : CheckListener {
+  override fun afterCheck(project: Project, task: Task, result: CheckResult) {
+    if (!result.isSolved || task.lesson !is FrameworkLesson || !task.course.isStudy) return
+    FrameworkLessonManager.getInstance(project).prepareNextTaskState(task)
+  }
+}
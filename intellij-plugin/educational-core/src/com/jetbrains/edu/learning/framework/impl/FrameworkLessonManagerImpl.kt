@@ -2,12 +2,16 @@ package com.jetbrains.edu.learning.framework.impl
 
 import com.google.common.annotations.VisibleForTesting
 import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.ModalityState
+import com.intellij.openapi.application.ReadAction
 import com.intellij.openapi.diagnostic.Logger
+import com.intellij.openapi.fileEditor.FileDocumentManager
 import com.intellij.openapi.project.Project
 import com.intellij.openapi.ui.Messages
 import com.intellij.openapi.util.Disposer
 import com.intellij.openapi.util.io.FileUtil
 import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.util.concurrency.AppExecutorUtil
 import com.intellij.util.io.storage.AbstractStorage
 import com.jetbrains.edu.learning.EduUtilsKt.isStudentProject
 import com.jetbrains.edu.learning.courseDir
@@ -24,6 +28,7 @@ import org.jetbrains.annotations.TestOnly
 import java.io.IOException
 import java.nio.file.Path
 import java.nio.file.Paths
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  * Keeps list of [Change]s for each task. Change list is difference between initial task state and latest one.
@@ -35,6 +40,18 @@ import java.nio.file.Paths
 class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLessonManager, Disposable {
   private var storage: FrameworkStorage = createStorage(project)
 
+  /**
+   * State prepared in background by [prepareNextTaskState] to navigate to the next task faster
+   */
+  @Volatile
+  private var preparedNavigationState: NavigationState? = null
+
+  /**
+   * Incremented every time [preparedNavigationState] is dropped,
+   * so a state which is being prepared at that moment is discarded when it's ready
+   */
+  private val navigationStateGeneration = AtomicInteger()
+
   override fun prepareNextTask(lesson: FrameworkLesson, taskDir: VirtualFile, showDialogIfConflict: Boolean) {
     applyTargetTaskChanges(lesson, 1, taskDir, showDialogIfConflict)
   }
@@ -51,12 +68,13 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
       "Only solutions of framework tasks can be saved"
     }
 
+    dropPreparedNavigationState()
     val propagatableFiles = task.allFiles.split(task).first
     val externalPropagatableFiles = externalState.split(task).first
     val changes = calculateChanges(propagatableFiles, externalPropagatableFiles)
     val currentRecord = task.record
     task.record = try {
-      storage.updateUserChanges(currentRecord, changes)
+      storage.updateUserChanges(currentRecord, changes, task.allFiles)
     }
     catch (e: IOException) {
       LOG.error("Failed to save solution for task `${task.name}`", e)
@@ -65,7 +83,7 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
     YamlFormatSynchronizer.saveItem(task)
   }
 
-  override fun updateUserChanges(task: Task, newInitialState: Map<String, String>) {
+  override fun updateUserChanges(task: Task, oldInitialState: Map<String, String>, newInitialState: Map<String, String>) {
     require(project.isStudentProject()) {
       "`updateUserChanges` should be called only if course in study mode"
     }
@@ -73,11 +91,12 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
       "Only solutions of framework tasks can be saved"
     }
 
+    dropPreparedNavigationState()
     val currentRecord = task.record
     if (currentRecord == -1) return
 
     val changes = try {
-      storage.getUserChanges(currentRecord)
+      storage.getUserChanges(currentRecord, oldInitialState)
     }
     catch (e: IOException) {
       LOG.error("Failed to get user changes for task `${task.name}`", e)
@@ -95,7 +114,7 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
     }
 
     try {
-      storage.updateUserChanges(currentRecord, UserChanges(newChanges))
+      storage.updateUserChanges(currentRecord, UserChanges(newChanges), newInitialState)
     }
     catch (e: IOException) {
       LOG.error("Failed to update user changes for task `${task.name}`", e)
@@ -110,7 +129,7 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
       "Changes timestamp makes sense only for framework tasks"
     }
 
-    return storage.getUserChanges(task.record).timestamp
+    return storage.getUserChanges(task.record, task.allFiles).timestamp
   }
 
   override fun getTaskState(lesson: FrameworkLesson, task: Task): Map<String, String> {
@@ -127,6 +146,35 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
     return HashMap(initialFiles).apply { changes.apply(this) }
   }
 
+  override fun prepareNextTaskState(task: Task) {
+    if (!project.isStudentProject()) return
+    val lesson = task.lesson as? FrameworkLesson ?: return
+    if (lesson.currentTask() != task) return
+    val targetTask = lesson.taskList.getOrNull(lesson.currentTaskIndex + 1) ?: return
+    val taskDir = task.getDir(project.courseDir) ?: return
+
+    val generation = dropPreparedNavigationState()
+    ReadAction.nonBlocking<NavigationState?> { computeNavigationState(task, targetTask, taskDir, logErrors = false) }
+      .expireWith(this)
+      .finishOnUiThread(ModalityState.defaultModalityState()) { state ->
+        if (navigationStateGeneration.get() == generation) {
+          preparedNavigationState = state
+        }
+      }
+      .submit(AppExecutorUtil.getAppExecutorService())
+  }
+
+  /**
+   * @return the new generation of the prepared state
+   */
+  private fun dropPreparedNavigationState(): Int {
+    preparedNavigationState = null
+    return navigationStateGeneration.incrementAndGet()
+  }
+
+  @TestOnly
+  internal fun hasPreparedNavigationState(): Boolean = preparedNavigationState != null
+
   /**
    * Convert the current state on local FS related to current task in framework lesson
    * to a new one, to get state of next/previous (target) task.
@@ -146,28 +194,35 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
     val currentTask = lesson.taskList[currentTaskIndex]
     val targetTask = lesson.taskList[targetTaskIndex]
 
+    // 0. Steps 1, 2, 4 and 5 don't modify anything, so they may be already done in background after the last successful check.
+    // Prepared results are used only if nothing was changed since then
+    val navigationState = takePreparedNavigationState(currentTask, targetTask, taskDir)
+                          ?: computeNavigationState(currentTask, targetTask, taskDir, logErrors = true)
+
     lesson.currentTaskIndex = targetTaskIndex
     YamlFormatSynchronizer.saveItem(lesson)
 
     val currentRecord = currentTask.record
     val targetRecord = targetTask.record
 
-    val initialCurrentFiles = currentTask.allFiles
+    val initialCurrentFiles = navigationState.initialCurrentFiles
 
     // 1. Get difference between initial state of current task and previous task state
     // and construct previous state of current task.
     // Previous state is needed to determine if a user made any new change
-    val previousCurrentUserChanges = getUserChangesFromStorage(currentTask)
-    val previousCurrentState = HashMap(initialCurrentFiles).apply { previousCurrentUserChanges.apply(this) }
+    val previousCurrentUserChanges = navigationState.previousCurrentUserChanges
+    val previousCurrentState = navigationState.previousCurrentState
 
     // 2. Calculate difference between initial state of current task and current state on local FS.
     // Update change list for current task in [storage] to have ability to restore state of current task in future
-    val (newCurrentRecord, currentUserChanges) = try {
-      updateUserChanges(currentRecord, getUserChangesFromFiles(initialCurrentFiles, taskDir))
-    }
-    catch (e: IOException) {
-      LOG.error("Failed to save user changes for task `${currentTask.name}`", e)
-      UpdatedUserChanges(currentRecord, UserChanges.empty())
+    // If nothing was changed since the last save, the record is kept as is to avoid unnecessary rewriting of the storage
+    val userChangesFromFiles = navigationState.userChangesFromFiles
+    val (newCurrentRecord, currentUserChanges) = when {
+      userChangesFromFiles == null -> UpdatedUserChanges(currentRecord, UserChanges.empty())
+      currentRecord != -1 && userChangesFromFiles.changes == previousCurrentUserChanges.changes -> {
+        UpdatedUserChanges(currentRecord, previousCurrentUserChanges)
+      }
+      else -> updateUserChanges(currentRecord, userChangesFromFiles, initialCurrentFiles)
     }
 
     // 3. Update record index to a new one.
@@ -175,11 +230,16 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
     YamlFormatSynchronizer.saveItem(currentTask)
 
     // 4. Get difference (change list) between initial and latest states of target task
-    val nextUserChanges = getUserChangesFromStorage(targetTask)
-
     // 5. Apply change lists to initial state to get latest states of current and target tasks
-    val currentState = HashMap(initialCurrentFiles).apply { currentUserChanges.apply(this) }
-    val targetState = HashMap(targetTask.allFiles).apply { nextUserChanges.apply(this) }
+    // Current state differs from the prepared one only if user changes failed to be saved
+    val isCurrentStatePrepared = currentUserChanges.changes == (userChangesFromFiles ?: UserChanges.empty()).changes
+    val currentState = if (isCurrentStatePrepared) {
+      navigationState.currentState
+    }
+    else {
+      HashMap(initialCurrentFiles).apply { currentUserChanges.apply(this) }
+    }
+    val targetState = navigationState.targetState
 
     // 6. Calculate difference between latest states of current and target tasks
     // Note, there are special rules for hyperskill courses for now
@@ -195,6 +255,9 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
     val changes = if (currentTaskHasNewUserChanges && taskIndexDelta == 1 && isNonTemplateBased) {
       calculatePropagationChanges(targetTask, currentTask, currentState, targetState, showDialogIfConflict)
     }
+    else if (isCurrentStatePrepared) {
+      navigationState.changes
+    }
     else {
       calculateChanges(currentState, targetState)
     }
@@ -204,6 +267,84 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
     YamlFormatSynchronizer.saveItem(targetTask)
   }
 
+  /**
+   * Computes everything needed to navigate from [currentTask] to [targetTask] which doesn't modify the project and [storage].
+   * Can be called in background in a read action
+   */
+  private fun computeNavigationState(currentTask: Task, targetTask: Task, taskDir: VirtualFile, logErrors: Boolean): NavigationState {
+    val initialCurrentFiles = currentTask.allFiles
+    val fileStamps = collectFileStamps(initialCurrentFiles.keys, taskDir)
+
+    val previousCurrentUserChanges = getUserChangesFromStorage(currentTask)
+    val previousCurrentState = HashMap(initialCurrentFiles).apply { previousCurrentUserChanges.apply(this) }
+
+    val userChangesFromFiles = try {
+      getUserChangesFromFiles(initialCurrentFiles, taskDir)
+    }
+    catch (e: IOException) {
+      if (logErrors) {
+        LOG.error("Failed to save user changes for task `${currentTask.name}`", e)
+      }
+      null
+    }
+    val currentState = HashMap(initialCurrentFiles).apply { userChangesFromFiles?.apply(this) }
+
+    val targetUserChanges = getUserChangesFromStorage(targetTask)
+    val targetState = HashMap(targetTask.allFiles).apply { targetUserChanges.apply(this) }
+
+    return NavigationState(
+      currentTask,
+      targetTask,
+      currentTask.record,
+      targetTask.record,
+      taskDir,
+      fileStamps,
+      initialCurrentFiles,
+      previousCurrentUserChanges,
+      previousCurrentState,
+      userChangesFromFiles,
+      currentState,
+      targetState,
+      calculateChanges(currentState, targetState)
+    )
+  }
+
+  /**
+   * Returns the state prepared by [prepareNextTaskState] if it's still valid for navigation from [currentTask] to [targetTask].
+   * The state is valid only if the current task has the same files as during the preparation,
+   * so files created since then, e.g. by a learner, invalidate it.
+   * The prepared state is used at most once
+   */
+  private fun takePreparedNavigationState(currentTask: Task, targetTask: Task, taskDir: VirtualFile): NavigationState? {
+    val state = preparedNavigationState
+    dropPreparedNavigationState()
+    if (state == null) return null
+
+    val isValid = state.currentTask == currentTask &&
+                  state.targetTask == targetTask &&
+                  state.currentRecord == currentTask.record &&
+                  state.targetRecord == targetTask.record &&
+                  state.taskDir == taskDir &&
+                  state.initialCurrentFiles == currentTask.allFiles &&
+                  state.fileStamps == collectFileStamps(state.initialCurrentFiles.keys, taskDir)
+    return if (isValid) state else null
+  }
+
+  /**
+   * Modification stamps of task files and their documents.
+   * If stamps are the same, the files and documents weren't changed, including changes not saved to disk yet
+   */
+  private fun collectFileStamps(paths: Set<String>, taskDir: VirtualFile): List<Long> {
+    val documentManager = FileDocumentManager.getInstance()
+    val stamps = ArrayList<Long>(paths.size * 2)
+    for (path in paths) {
+      val file = taskDir.findFileByRelativePath(path)
+      stamps += file?.modificationStamp ?: -1
+      stamps += file?.let { documentManager.getCachedDocument(it) }?.modificationStamp ?: -1
+    }
+    return stamps
+  }
+
   /**
    * Returns [Change]s to propagate user changes from [currentState] to [targetTask].
    *
@@ -319,9 +460,9 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
   }
 
   @Synchronized
-  private fun updateUserChanges(record: Int, changes: UserChanges): UpdatedUserChanges {
+  private fun updateUserChanges(record: Int, changes: UserChanges, initialState: FLTaskState): UpdatedUserChanges {
     return try {
-      val newRecord = storage.updateUserChanges(record, changes)
+      val newRecord = storage.updateUserChanges(record, changes, initialState)
       storage.force()
       UpdatedUserChanges(newRecord, changes)
     }
@@ -333,7 +474,7 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
 
   private fun getUserChangesFromStorage(task: Task): UserChanges {
     return try {
-      storage.getUserChanges(task.record)
+      storage.getUserChanges(task.record, task.allFiles)
     }
     catch (e: IOException) {
       LOG.error("Failed to get user changes for task `${task.name}`", e)
@@ -373,13 +514,14 @@ class FrameworkLessonManagerImpl(private val project: Project) : FrameworkLesson
 
   @TestOnly
   override fun cleanUpState() {
+    dropPreparedNavigationState()
     storage.closeAndClean()
   }
 
   companion object {
     private val LOG: Logger = Logger.getInstance(FrameworkLessonManagerImpl::class.java)
 
-    const val VERSION: Int = 1
+    const val VERSION: Int = 2
 
     @VisibleForTesting
     fun constructStoragePath(project: Project): Path =
@@ -405,3 +547,25 @@ private data class UpdatedUserChanges(
   val record: Int,
   val changes: UserChanges
 )
+
+private class NavigationState(
+  val currentTask: Task,
+  val targetTask: Task,
+  val currentRecord: Int,
+  val targetRecord: Int,
+  val taskDir: VirtualFile,
+  val fileStamps: List<Long>,
+  val initialCurrentFiles: FLTaskState,
+  val previousCurrentUserChanges: UserChanges,
+  val previousCurrentState: FLTaskState,
+  /**
+   * `null` if files of the current task failed to be read
+   */
+  val userChangesFromFiles: UserChanges?,
+  val currentState: FLTaskState,
+  val targetState: FLTaskState,
+  /**
+   * Difference between [currentState] and [targetState] without propagation of user changes
+   */
+  val changes: UserChanges
+)
@@ -4,6 +4,7 @@ import com.intellij.util.io.UnsyncByteArrayInputStream
 import com.intellij.util.io.UnsyncByteArrayOutputStream
 import com.jetbrains.edu.learning.framework.impl.migration.RecordConverter
 import com.jetbrains.edu.learning.framework.impl.migration.To1VersionRecordConverter
+import com.jetbrains.edu.learning.framework.impl.migration.To2VersionRecordConverter
 import java.io.DataInputStream
 import java.io.DataOutputStream
 import java.io.IOException
@@ -14,23 +15,29 @@ class FrameworkStorage(storagePath: Path) : FrameworkStorageBase(storagePath) {
     setVersion(version)
   }
 
+  /**
+   * Saves [changes] into [record] or into a new record if [record] is `-1`.
+   *
+   * [initialState] is the initial state of the task [changes] belong to.
+   * It's used to save only diffs of changed files, so the same initial state should be passed into [getUserChanges]
+   */
   @Throws(IOException::class)
-  fun updateUserChanges(record: Int, changes: UserChanges): Int {
+  fun updateUserChanges(record: Int, changes: UserChanges, initialState: FLTaskState): Int {
     return withWriteLock<Int, IOException> {
       val id = if (record == -1) createNewRecord() else record
-      writeStream(id, true).use(changes::write)
+      writeStream(id, true).use { changes.write(it, initialState) }
       id
     }
   }
 
   @Throws(IOException::class)
-  fun getUserChanges(record: Int): UserChanges {
+  fun getUserChanges(record: Int, initialState: FLTaskState): UserChanges {
     return if (record == -1) {
       UserChanges.empty()
     }
     else {
       withReadLock<UserChanges, IOException> {
-        readStream(record).use(UserChanges.Companion::read)
+        readStream(record).use { UserChanges.read(it, initialState) }
       }
     }
   }
@@ -41,11 +48,12 @@ class FrameworkStorage(storagePath: Path) : FrameworkStorageBase(storagePath) {
 
     val bytes = readBytes(recordId)
     var input = UnsyncByteArrayInputStream(bytes)
-    var output = UnsyncByteArrayOutputStream()
+    var output: UnsyncByteArrayOutputStream? = null
 
     while (version < newVersion) {
-      val converter: RecordConverter? = when (currentVersion) {
+      val converter: RecordConverter? = when (version) {
         0 -> To1VersionRecordConverter()
+        1 -> To2VersionRecordConverter()
         else -> null
       }
 
@@ -57,7 +65,9 @@ class FrameworkStorage(storagePath: Path) : FrameworkStorageBase(storagePath) {
       version++
     }
 
-    writeBytes(recordId, output.toByteArraySequence(), false)
+    if (output != null) {
+      writeBytes(recordId, output.toByteArraySequence(), false)
+    }
   }
 }
 
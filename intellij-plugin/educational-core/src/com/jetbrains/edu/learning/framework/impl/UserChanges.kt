@@ -8,7 +8,6 @@ import com.intellij.openapi.fileEditor.FileDocumentManager
 import com.intellij.openapi.project.Project
 import com.intellij.openapi.util.text.StringUtil
 import com.intellij.openapi.vfs.VirtualFile
-import com.intellij.util.io.DataInputOutputUtil
 import com.jetbrains.edu.learning.EduDocumentListener
 import com.jetbrains.edu.learning.courseFormat.TaskFile
 import com.jetbrains.edu.learning.courseFormat.tasks.Task
@@ -40,9 +39,16 @@ class UserChanges(val changes: List<Change>, val timestamp: Long = System.curren
 
   @Throws(IOException::class)
   override fun write(out: DataOutput) {
-    DataInputOutputUtil.writeINT(out, changes.size)
-    changes.forEach { Change.writeChange(it, out) }
-    DataInputOutputUtil.writeLONG(out, timestamp)
+    write(out, emptyMap())
+  }
+
+  /**
+   * Writes changes using [initialState] of the task as a base for line diffs of changed files.
+   * See [UserChangesFormat] for details
+   */
+  @Throws(IOException::class)
+  fun write(out: DataOutput, initialState: FLTaskState) {
+    UserChangesFormat.write(this, initialState, out)
   }
 
   companion object {
@@ -52,15 +58,7 @@ class UserChanges(val changes: List<Change>, val timestamp: Long = System.curren
     fun empty(): UserChanges = EMPTY
 
     @Throws(IOException::class)
-    fun read(input: DataInput): UserChanges {
-      val size = DataInputOutputUtil.readINT(input)
-      val changes = ArrayList<Change>(size)
-      for (i in 0 until size) {
-        changes += Change.readChange(input)
-      }
-      val timestamp = DataInputOutputUtil.readLONG(input)
-      return UserChanges(changes, timestamp)
-    }
+    fun read(input: DataInput, initialState: FLTaskState): UserChanges = UserChangesFormat.read(input, initialState)
   }
 }
 
@@ -234,19 +232,35 @@ sealed class Change {
   companion object {
     private val LOG: Logger = Logger.getInstance(Change::class.java)
 
+    fun ordinal(change: Change): Int = when (change) {
+      is AddFile -> 0
+      is RemoveFile -> 1
+      is ChangeFile -> 2
+      is PropagateLearnerCreatedTaskFile -> 3
+      is RemoveTaskFile -> 4
+    }
+
+    fun create(ordinal: Int, path: String, text: String): Change = when (ordinal) {
+      0 -> AddFile(path, text)
+      1 -> RemoveFile(path)
+      2 -> ChangeFile(path, text)
+      3 -> PropagateLearnerCreatedTaskFile(path, text)
+      4 -> RemoveTaskFile(path)
+      else -> error("Unexpected change type: $ordinal")
+    }
+
+    /**
+     * Writes [change] in format of the 0th and 1st storage versions
+     */
     @Throws(IOException::class)
     fun writeChange(change: Change, out: DataOutput) {
-      val ordinal = when (change) {
-        is AddFile -> 0
-        is RemoveFile -> 1
-        is ChangeFile -> 2
-        is PropagateLearnerCreatedTaskFile -> 3
-        is RemoveTaskFile -> 4
-      }
-      out.writeInt(ordinal)
+      out.writeInt(ordinal(change))
       change.write(out)
     }
 
+    /**
+     * Reads [Change] in format of the 0th and 1st storage versions
+     */
     @Throws(IOException::class)
     fun readChange(input: DataInput): Change {
       val ordinal = input.readInt()
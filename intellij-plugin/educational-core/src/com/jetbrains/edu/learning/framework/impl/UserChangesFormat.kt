@@ -0,0 +1,335 @@
+package com.jetbrains.edu.learning.framework.impl
+
+import com.intellij.openapi.diagnostic.Logger
+import com.intellij.util.diff.Diff
+import com.intellij.util.diff.FilesTooBigForDiffException
+import com.intellij.util.io.DataInputOutputUtil
+import com.intellij.util.io.UnsyncByteArrayInputStream
+import com.intellij.util.io.UnsyncByteArrayOutputStream
+import java.io.DataInput
+import java.io.DataInputStream
+import java.io.DataOutput
+import java.io.DataOutputStream
+import java.io.IOException
+import java.security.MessageDigest
+import java.util.zip.Deflater
+import java.util.zip.DeflaterOutputStream
+import java.util.zip.InflaterInputStream
+
+/**
+ * Binary format of [UserChanges] records used since the 2nd version of [FrameworkStorage].
+ *
+ * Differences from the previous formats:
+ * - text of a changed file is stored as a line-level diff against the initial text of the same file in the task
+ * if it's shorter than the text itself. So the size of a record depends on the size of learner's edits rather than on the size of the task.
+ * The SHA-256 digest of the initial text is saved along with the diff to detect that the initial state was changed.
+ * Diffs keep deleted lines and a line of context before each hunk, so they can still be applied if the initial text was changed
+ * after the record had been written;
+ * - records larger than [COMPRESSION_THRESHOLD] are compressed;
+ * - strings are saved as UTF-8 bytes prefixed with their length, so, unlike [DataOutput.writeUTF], there is no 64 KB limit for file text.
+ */
+object UserChangesFormat {
+
+  private val LOG: Logger = Logger.getInstance(UserChangesFormat::class.java)
+
+  private const val COMPRESSION_THRESHOLD = 1024
+
+  private const val RAW_PAYLOAD: Byte = 0
+  private const val COMPRESSED_PAYLOAD: Byte = 1
+
+  private const val FULL_TEXT: Byte = 0
+  private const val LINE_PATCH: Byte = 1
+
+  /**
+   * Writes [changes] to [out].
+   * [initialState] is the initial state of the corresponding task. It's used as a base for line diffs of changed files
+   */
+  @Throws(IOException::class)
+  fun write(changes: UserChanges, initialState: FLTaskState, out: DataOutput) {
+    val output = UnsyncByteArrayOutputStream()
+    DataOutputStream(output).use { writePayload(changes, initialState, it) }
+    val payload = output.toByteArray()
+
+    if (payload.size < COMPRESSION_THRESHOLD) {
+      out.writeByte(RAW_PAYLOAD.toInt())
+      writeByteArray(out, payload)
+    }
+    else {
+      val compressed = UnsyncByteArrayOutputStream()
+      val deflater = Deflater(Deflater.BEST_SPEED)
+      try {
+        DeflaterOutputStream(compressed, deflater).use { it.write(payload) }
+      }
+      finally {
+        deflater.end()
+      }
+      out.writeByte(COMPRESSED_PAYLOAD.toInt())
+      writeByteArray(out, compressed.toByteArray())
+    }
+  }
+
+  /**
+   * Reads changes written by [write].
+   * [initialState] should be the same initial task state that was used during writing.
+   * If initial text of some file doesn't match the one used as a diff base, hunks of the diff are applied where their deleted lines are found.
+   * The change is skipped only if it's not possible
+   */
+  @Throws(IOException::class)
+  fun read(input: DataInput, initialState: FLTaskState): UserChanges {
+    val kind = input.readByte()
+    val bytes = readByteArray(input)
+    val payload = when (kind) {
+      RAW_PAYLOAD -> UnsyncByteArrayInputStream(bytes)
+      COMPRESSED_PAYLOAD -> InflaterInputStream(UnsyncByteArrayInputStream(bytes))
+      else -> throw IOException("Unexpected payload kind: $kind")
+    }
+    return DataInputStream(payload).use { readPayload(it, initialState) }
+  }
+
+  @Throws(IOException::class)
+  private fun writePayload(userChanges: UserChanges, initialState: FLTaskState, out: DataOutput) {
+    DataInputOutputUtil.writeINT(out, userChanges.changes.size)
+    for (change in userChanges.changes) {
+      out.writeByte(Change.ordinal(change))
+      writeString(out, change.path)
+
+      val base = if (change is Change.ChangeFile) initialState[change.path] else null
+      val diff = if (base != null) LineDiff.create(base, change.text) else null
+      if (base != null && diff != null && diff.size < change.text.length) {
+        out.writeByte(LINE_PATCH.toInt())
+        writeByteArray(out, digest(base))
+        diff.write(out)
+      }
+      else {
+        out.writeByte(FULL_TEXT.toInt())
+        writeString(out, change.text)
+      }
+    }
+    DataInputOutputUtil.writeLONG(out, userChanges.timestamp)
+  }
+
+  @Throws(IOException::class)
+  private fun readPayload(input: DataInput, initialState: FLTaskState): UserChanges {
+    val size = DataInputOutputUtil.readINT(input)
+    val changes = ArrayList<Change>(size)
+    for (i in 0 until size) {
+      val ordinal = input.readByte().toInt()
+      val path = readString(input)
+      val text = when (val encoding = input.readByte()) {
+        FULL_TEXT -> readString(input)
+        LINE_PATCH -> {
+          val baseDigest = readByteArray(input)
+          val diff = LineDiff.read(input)
+          val base = initialState[path]
+          when {
+            base == null -> {
+              LOG.warn("Initial text of `$path` was removed, the corresponding user change is skipped")
+              continue
+            }
+            MessageDigest.isEqual(digest(base), baseDigest) -> diff.apply(base)
+            else -> {
+              LOG.warn("Initial text of `$path` was changed, the corresponding user change is applied to the new initial text")
+              diff.applyToChangedBase(base) ?: run {
+                LOG.warn("Failed to apply user change of `$path` to the new initial text, the change is skipped")
+                continue
+              }
+            }
+          }
+        }
+        else -> throw IOException("Unexpected text encoding: $encoding")
+      }
+      changes += Change.create(ordinal, path, text)
+    }
+    val timestamp = DataInputOutputUtil.readLONG(input)
+    return UserChanges(changes, timestamp)
+  }
+
+  private fun digest(text: String): ByteArray = MessageDigest.getInstance("SHA-256").digest(text.toByteArray(Charsets.UTF_8))
+
+  @Throws(IOException::class)
+  private fun writeString(out: DataOutput, value: String) {
+    writeByteArray(out, value.toByteArray(Charsets.UTF_8))
+  }
+
+  @Throws(IOException::class)
+  private fun readString(input: DataInput): String = String(readByteArray(input), Charsets.UTF_8)
+
+  @Throws(IOException::class)
+  private fun writeByteArray(out: DataOutput, bytes: ByteArray) {
+    DataInputOutputUtil.writeINT(out, bytes.size)
+    out.write(bytes)
+  }
+
+  @Throws(IOException::class)
+  private fun readByteArray(input: DataInput): ByteArray {
+    val bytes = ByteArray(DataInputOutputUtil.readINT(input))
+    input.readFully(bytes)
+    return bytes
+  }
+
+  /**
+   * List of hunks to convert one text into another.
+   * Each hunk replaces [Hunk.deletedCount] lines of the base text starting from [Hunk.start] with [Hunk.inserted] lines.
+   * Lines keep their line separators, so the result of [apply] is exactly the same as the original text
+   */
+  private class LineDiff(private val hunks: List<Hunk>) {
+
+    /**
+     * Approximate size of the diff in chars
+     */
+    val size: Int get() = hunks.sumOf { hunk ->
+      hunk.inserted.sumOf { it.length } + hunk.deleted.sumOf { it.length } + hunk.context.orEmpty().length + 3
+    }
+
+    fun apply(base: String): String {
+      val baseLines = base.splitLines()
+      return build(baseLines, hunks.map { it.start })
+    }
+
+    /**
+     * Applies the diff to [base] which differs from the text the diff was created for.
+     * Every hunk is applied at the nearest position where its context line and deleted lines are found in [base].
+     *
+     * @return the patched text or `null` if some hunk can't be found in [base]
+     */
+    fun applyToChangedBase(base: String): String? {
+      val baseLines = base.splitLines()
+      val positions = ArrayList<Int>(hunks.size)
+      var minPosition = 0
+      var shift = 0
+      for (hunk in hunks) {
+        val position = hunk.findIn(baseLines, minPosition, hunk.start + shift) ?: return null
+        positions += position
+        minPosition = position + hunk.deletedCount
+        shift = position - hunk.start
+      }
+      return build(baseLines, positions)
+    }
+
+    private fun build(baseLines: Array<String>, positions: List<Int>): String {
+      val result = StringBuilder()
+      var baseLine = 0
+      for ((hunk, position) in hunks.zip(positions)) {
+        for (i in baseLine until position) {
+          result.append(baseLines[i])
+        }
+        hunk.inserted.forEach { result.append(it) }
+        baseLine = position + hunk.deletedCount
+      }
+      for (i in baseLine until baseLines.size) {
+        result.append(baseLines[i])
+      }
+      return result.toString()
+    }
+
+    @Throws(IOException::class)
+    fun write(out: DataOutput) {
+      DataInputOutputUtil.writeINT(out, hunks.size)
+      var previousEnd = 0
+      for (hunk in hunks) {
+        DataInputOutputUtil.writeINT(out, hunk.start - previousEnd)
+        DataInputOutputUtil.writeINT(out, hunk.deletedCount)
+        DataInputOutputUtil.writeINT(out, hunk.inserted.size)
+        hunk.inserted.forEach { writeString(out, it) }
+        hunk.deleted.forEach { writeString(out, it) }
+        out.writeBoolean(hunk.context != null)
+        hunk.context?.let { writeString(out, it) }
+        previousEnd = hunk.start + hunk.deletedCount
+      }
+    }
+
+    companion object {
+      /**
+       * Returns diff between [base] and [text] or `null` if texts are too big to build diff
+       */
+      fun create(base: String, text: String): LineDiff? {
+        val baseLines = base.splitLines()
+        val lines = text.splitLines()
+        val change = try {
+          Diff.buildChanges(baseLines, lines)
+        }
+        catch (e: FilesTooBigForDiffException) {
+          return null
+        }
+
+        val hunks = generateSequence(change) { it.link }.map {
+          Hunk(
+            it.line0,
+            lines.copyOfRange(it.line1, it.line1 + it.inserted).asList(),
+            baseLines.copyOfRange(it.line0, it.line0 + it.deleted).asList(),
+            baseLines.getOrNull(it.line0 - 1)
+          )
+        }.toList()
+        return LineDiff(hunks)
+      }
+
+      @Throws(IOException::class)
+      fun read(input: DataInput): LineDiff {
+        val size = DataInputOutputUtil.readINT(input)
+        val hunks = ArrayList<Hunk>(size)
+        var previousEnd = 0
+        for (i in 0 until size) {
+          val start = previousEnd + DataInputOutputUtil.readINT(input)
+          val deletedCount = DataInputOutputUtil.readINT(input)
+          val insertedSize = DataInputOutputUtil.readINT(input)
+          val inserted = List(insertedSize) { readString(input) }
+          val deleted = List(deletedCount) { readString(input) }
+          val context = if (input.readBoolean()) readString(input) else null
+          hunks += Hunk(start, inserted, deleted, context)
+          previousEnd = start + deletedCount
+        }
+        return LineDiff(hunks)
+      }
+
+      private fun String.splitLines(): Array<String> {
+        val lines = ArrayList<String>()
+        var start = 0
+        while (start < length) {
+          val end = indexOf('\n', start)
+          if (end == -1) {
+            lines += substring(start)
+            break
+          }
+          lines += substring(start, end + 1)
+          start = end + 1
+        }
+        return lines.toTypedArray()
+      }
+    }
+  }
+
+  /**
+   * [deleted] lines and [context], the base line before the hunk, are used to find the hunk in a changed base text
+   */
+  private class Hunk(val start: Int, val inserted: List<String>, val deleted: List<String>, val context: String?) {
+
+    val deletedCount: Int get() = deleted.size
+
+    /**
+     * @return position in [baseLines] not less than [minPosition] and nearest to [expectedPosition] where the hunk matches,
+     * or `null` if there is no such position
+     */
+    fun findIn(baseLines: Array<String>, minPosition: Int, expectedPosition: Int): Int? {
+      val maxPosition = baseLines.size - deleted.size
+      if (minPosition > maxPosition) return null
+      val expected = expectedPosition.coerceIn(minPosition, maxPosition)
+      for (distance in 0..maxOf(expected - minPosition, maxPosition - expected)) {
+        val before = expected - distance
+        if (before >= minPosition && matches(baseLines, before)) return before
+        val after = expected + distance
+        if (distance != 0 && after <= maxPosition && matches(baseLines, after)) return after
+      }
+      return null
+    }
+
+    private fun matches(baseLines: Array<String>, position: Int): Boolean {
+      if (context == null) {
+        if (position != 0) return false
+      }
+      else if (baseLines.getOrNull(position - 1) != context) {
+        return false
+      }
+      return deleted.indices.all { baseLines[position + it] == deleted[it] }
+    }
+  }
+}
@@ -2,6 +2,7 @@ package com.jetbrains.edu.learning.framework.impl
 
 import com.intellij.openapi.application.runReadAction
 import com.intellij.openapi.fileEditor.FileDocumentManager
+import com.intellij.openapi.progress.ProgressManager
 import com.intellij.openapi.vfs.VirtualFile
 import com.jetbrains.edu.learning.courseFormat.FrameworkLesson
 import com.jetbrains.edu.learning.courseFormat.LessonContainer
@@ -36,6 +37,7 @@ fun getTaskStateFromFiles(initialFiles: Set<String>, taskDir: VirtualFile): FLTa
   val documentManager = FileDocumentManager.getInstance()
   val currentState = HashMap<String, String>()
   for (path in initialFiles) {
+    ProgressManager.checkCanceled()
     val file = taskDir.findFileByRelativePath(path) ?: continue
 
     val text = if (file.isToEncodeContent) {
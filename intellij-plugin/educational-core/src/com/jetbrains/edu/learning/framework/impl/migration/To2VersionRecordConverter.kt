@@ -0,0 +1,20 @@
+package com.jetbrains.edu.learning.framework.impl.migration
+
+import com.jetbrains.edu.learning.framework.impl.UserChanges
+import java.io.DataInput
+import java.io.DataOutput
+
+/**
+ * Converts records to [com.jetbrains.edu.learning.framework.impl.UserChangesFormat].
+ *
+ * Initial task states are not available during migration, so texts of all changes are saved as is (without diffs).
+ * Diffs will be used for them after the next update of the record
+ */
+class To2VersionRecordConverter : RecordConverter {
+
+  override fun convert(input: DataInput, output: DataOutput) {
+    val oldChanges = UserChanges1.read(input)
+    val newChanges = UserChanges(oldChanges.changes, oldChanges.timestamp)
+    newChanges.write(output)
+  }
+}
@@ -11,4 +11,9 @@ object GradleConstants {
   const val GRADLE_PROPERTIES = "gradle.properties"
   const val GRADLE = "gradle"
 
+  /**
+   * Paths of task directories relative to the project root, one per line. Read by `settings.gradle` to include task modules
+   */
+  const val TASK_MODULES_MANIFEST = "task-modules.txt"
+
 }
\ No newline at end of file
@@ -0,0 +1,273 @@
+package com.jetbrains.edu.learning.marketplace
+
+import com.intellij.openapi.application.PathManager
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.components.service
+import com.intellij.openapi.diagnostic.logger
+import com.intellij.openapi.util.registry.Registry
+import com.jetbrains.edu.learning.EduUtilsKt
+import com.jetbrains.edu.learning.courseFormat.*
+import com.jetbrains.edu.learning.courseFormat.ext.visitEduFiles
+import org.jetbrains.annotations.NonNls
+import org.jetbrains.annotations.TestOnly
+import java.io.IOException
+import java.lang.ref.WeakReference
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.attribute.FileTime
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+import kotlin.io.path.*
+
+/**
+ * Application level cache of downloaded course archives, so a course is downloaded only once per its update.
+ *
+ * Archives are stored as `<updateId>-<sha256>.zip`: the digest in the name is checked once per application session
+ * before the archive is used, and a damaged archive is downloaded again.
+ * The total size of archives is bounded by [MAX_SIZE_REGISTRY_KEY], the least recently used ones are removed first.
+ *
+ * Skeletons of recently used courses are kept in memory (see [EduUtilsKt.getLocalCourseSkeleton]),
+ * so every caller gets its own copy of the course without reading `course.json` again.
+ * Contents of course files are read from the archive on demand, so before an archive is removed,
+ * contents of returned course files which are still read from it are loaded into memory.
+ */
+@Service(Service.Level.APP)
+class CourseArchiveCache @TestOnly internal constructor(private val cacheDir: Path, private val maxSize: () -> Long) {
+
+  @Suppress("unused") // used by the service container
+  constructor() : this(PathManager.getSystemDir().resolve(CACHE_DIR_NAME), { maxCacheSize() })
+
+  /**
+   * Archives by update id, read from [cacheDir] on the first access. Guarded by itself
+   */
+  private val archives: MutableMap<Int, Path> by lazy { scanCacheDir() }
+
+  /**
+   * Update ids of archives whose digests were already checked in this session
+   */
+  private val verifiedUpdateIds = ConcurrentHashMap.newKeySet<Int>()
+
+  private val skeletons = object : LinkedHashMap<Int, Course>(MAX_SKELETONS, 0.75f, true) {
+    override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Int, Course>): Boolean = size > MAX_SKELETONS
+  }
+
+  /**
+   * Files of courses returned by [getCourse] by update id.
+   * Files are tracked instead of courses since callers may move study items to another course. Guarded by itself
+   */
+  private val returnedFiles = HashMap<Int, MutableList<ReturnedFile>>()
+
+  private val updateLocks = ConcurrentHashMap<Int, ReentrantLock>()
+
+  /**
+   * @param download downloads the archive of [updateId] to the given file, called only if there is no valid cached archive
+   * @return a new copy of the course read from the cached archive, or `null` if the archive can't be read
+   */
+  @Throws(IOException::class)
+  fun getCourse(updateId: Int, download: (Path) -> Unit): Course? {
+    updateLock(updateId).withLock {
+      val archive = getValidArchive(updateId) ?: downloadArchive(updateId, download)
+      touch(archive)
+
+      val skeleton = synchronized(skeletons) { skeletons[updateId] } ?: readSkeleton(updateId, archive) ?: return null
+      val course = skeleton.copyWithContents()
+      registerReturnedFiles(updateId, course)
+      return course
+    }
+  }
+
+  private fun updateLock(updateId: Int): ReentrantLock = updateLocks.computeIfAbsent(updateId) { ReentrantLock() }
+
+  private fun registerReturnedFiles(updateId: Int, course: Course) {
+    val files = mutableListOf<ReturnedFile>()
+    course.visitEduFiles { files += ReturnedFile(it) }
+    synchronized(returnedFiles) {
+      val allFiles = returnedFiles.getOrPut(updateId) { mutableListOf() }
+      allFiles.removeIf { it.file.get() == null }
+      allFiles += files
+    }
+  }
+
+  /**
+   * Loads into memory contents of returned files which are still read from the archive of [updateId]
+   */
+  private fun loadContentsOfReturnedFiles(updateId: Int) {
+    val files = synchronized(returnedFiles) { returnedFiles.remove(updateId) } ?: return
+    try {
+      for (returnedFile in files) {
+        val file = returnedFile.file.get() ?: continue
+        // contents may be already replaced, e.g., with contents from the learning objects storage
+        if (file.contents === returnedFile.archiveContents) {
+          file.contents = returnedFile.archiveContents.loadIntoMemory()
+        }
+      }
+    }
+    catch (e: Exception) {
+      LOG.warn("Failed to load contents of course files from the cached archive of update $updateId", e)
+    }
+  }
+
+  private fun readSkeleton(updateId: Int, archive: Path): Course? {
+    val skeleton = EduUtilsKt.getLocalCourseSkeleton(archive.toString()) ?: return null
+    synchronized(skeletons) { skeletons[updateId] = skeleton }
+    return skeleton
+  }
+
+  private fun getValidArchive(updateId: Int): Path? {
+    val archive = synchronized(archives) { archives[updateId] } ?: return null
+    if (updateId in verifiedUpdateIds && archive.exists()) return archive
+
+    val expectedDigest = archive.name.removeSuffix(ARCHIVE_EXTENSION).substringAfter('-')
+    if (archive.exists() && digest(archive) == expectedDigest) {
+      verifiedUpdateIds += updateId
+      return archive
+    }
+
+    LOG.warn("Cached archive of update $updateId is damaged and will be downloaded again")
+    remove(updateId, archive)
+    return null
+  }
+
+  private fun downloadArchive(updateId: Int, download: (Path) -> Unit): Path {
+    cacheDir.createDirectories()
+    val tempFile = Files.createTempFile(cacheDir, "$updateId-", ".download")
+    try {
+      download(tempFile)
+      val archive = cacheDir.resolve("$updateId-${digest(tempFile)}$ARCHIVE_EXTENSION")
+      Files.move(tempFile, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+      synchronized(archives) { archives[updateId] = archive }
+      verifiedUpdateIds += updateId
+      evict(keep = updateId)
+      return archive
+    }
+    finally {
+      tempFile.deleteIfExists()
+    }
+  }
+
+  /**
+   * Removes the least recently used archives until their total size fits the limit. The archive of [keep] is never removed
+   */
+  private fun evict(keep: Int) {
+    val limit = maxSize()
+    val entries = synchronized(archives) { archives.entries.map { it.key to it.value } }
+      .filter { (_, archive) -> archive.exists() }
+      .sortedBy { (_, archive) -> archive.getLastModifiedTime() }
+    var totalSize = entries.sumOf { (_, archive) -> archive.fileSize() }
+    for ((updateId, archive) in entries) {
+      if (totalSize <= limit) break
+      if (updateId == keep) continue
+      // the archive is being read right now, so it's not the least recently used one anymore
+      val lock = updateLock(updateId)
+      if (!lock.tryLock()) continue
+      try {
+        totalSize -= archive.fileSize()
+        remove(updateId, archive)
+      }
+      finally {
+        lock.unlock()
+      }
+    }
+  }
+
+  private fun remove(updateId: Int, archive: Path) {
+    synchronized(archives) { archives.remove(updateId, archive) }
+    synchronized(skeletons) { skeletons.remove(updateId) }
+    verifiedUpdateIds -= updateId
+    loadContentsOfReturnedFiles(updateId)
+    try {
+      archive.deleteIfExists()
+    }
+    catch (e: IOException) {
+      LOG.warn("Failed to delete cached course archive $archive", e)
+    }
+  }
+
+  private fun touch(archive: Path) {
+    try {
+      archive.setLastModifiedTime(FileTime.fromMillis(System.currentTimeMillis()))
+    }
+    catch (e: IOException) {
+      LOG.warn("Failed to update last access time of $archive", e)
+    }
+  }
+
+  private fun scanCacheDir(): MutableMap<Int, Path> {
+    val archives = HashMap<Int, Path>()
+    if (!cacheDir.isDirectory()) return archives
+    for (file in cacheDir.listDirectoryEntries()) {
+      val updateId = file.name.takeIf { it.endsWith(ARCHIVE_EXTENSION) }?.substringBefore('-')?.toIntOrNull()
+      if (updateId == null) {
+        // leftovers of interrupted downloads
+        file.deleteIfExists()
+        continue
+      }
+      val known = archives[updateId]
+      if (known == null || known.getLastModifiedTime() < file.getLastModifiedTime()) {
+        known?.deleteIfExists()
+        archives[updateId] = file
+      }
+      else {
+        file.deleteIfExists()
+      }
+    }
+    return archives
+  }
+
+  private fun Course.copyWithContents(): Course {
+    val copy = copy()
+    copyFileContents(this, copy)
+    for (additionalFile in copy.additionalFiles) {
+      val original = additionalFiles.find { it.name == additionalFile.name } ?: continue
+      additionalFile.contents = original.contents
+    }
+    return copy
+  }
+
+  private class ReturnedFile(file: EduFile) {
+    val file: WeakReference<EduFile> = WeakReference(file)
+    val archiveContents: FileContents = file.contents
+  }
+
+  companion object {
+    private val LOG = logger<CourseArchiveCache>()
+
+    @NonNls
+    private const val CACHE_DIR_NAME = "edu-course-archives"
+
+    @NonNls
+    private const val ARCHIVE_EXTENSION = ".zip"
+
+    private const val MAX_SKELETONS = 10
+
+    @NonNls
+    const val MAX_SIZE_REGISTRY_KEY = "edu.marketplace.course.archives.cache.size"
+
+    private fun maxCacheSize(): Long = Registry.intValue(MAX_SIZE_REGISTRY_KEY, 512).coerceAtLeast(0) * 1024L * 1024L
+
+    @Throws(IOException::class)
+    private fun digest(file: Path): String {
+      val messageDigest = MessageDigest.getInstance("SHA-256")
+      file.inputStream().use { input ->
+        val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+        while (true) {
+          val read = input.read(buffer)
+          if (read < 0) break
+          messageDigest.update(buffer, 0, read)
+        }
+      }
+      return messageDigest.digest().joinToString("") { "%02x".format(it) }
+    }
+
+    private fun FileContents.loadIntoMemory(): FileContents = when (this) {
+      is BinaryContents -> InMemoryBinaryContents(bytes)
+      is TextualContents -> InMemoryTextualContents(text)
+      is UndeterminedContents -> InMemoryUndeterminedContents(textualRepresentation)
+    }
+
+    fun getInstance(): CourseArchiveCache = service()
+  }
+}
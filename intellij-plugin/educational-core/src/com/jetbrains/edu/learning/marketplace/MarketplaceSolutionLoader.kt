@@ -13,8 +13,9 @@ import com.jetbrains.edu.learning.courseFormat.tasks.TheoryTask
 import com.jetbrains.edu.learning.courseFormat.tasks.choice.ChoiceTask
 import com.jetbrains.edu.learning.marketplace.api.MarketplaceConnector
 import com.jetbrains.edu.learning.marketplace.api.MarketplaceSubmission
-import com.jetbrains.edu.learning.marketplace.api.MarketplaceSubmissionsConnector
+import com.jetbrains.edu.learning.submissions.SolutionFilesPrefetcher
 import com.jetbrains.edu.learning.submissions.Submission
+import com.jetbrains.edu.learning.submissions.SubmissionsManager
 import com.jetbrains.edu.learning.submissions.isVersionCompatible
 
 class MarketplaceSolutionLoader(project: Project) : SolutionLoaderBase(project) {
@@ -63,9 +64,20 @@ class MarketplaceSolutionLoader(project: Project) : SolutionLoaderBase(project)
     else TaskSolutions(lastSubmission.time, lastSubmission.status?.toCheckStatus() ?: CheckStatus.Unchecked, files)
   }
 
+  override fun prefetchSolutions(tasks: List<Task>, submissions: List<Submission>) {
+    val lastSubmissions = submissions.groupBy { it.taskId }
+    val submissionsToPrefetch = tasks.filter { it is EduTask || it is OutputTask }.mapNotNull { task ->
+      val lastSubmission = lastSubmissions[task.id]?.firstOrNull() as? MarketplaceSubmission ?: return@mapNotNull null
+      lastSubmission.takeIf {
+        isVersionCompatible(it.formatVersion) && it.courseVersion == task.course.marketplaceCourseVersion
+      }
+    }
+    SolutionFilesPrefetcher.getInstance(project).prefetch(submissionsToPrefetch)
+  }
+
   private fun MarketplaceSubmission.eduTaskFiles(): Map<String, Solution> {
     if (solutionFiles == null) {
-      solutionFiles = MarketplaceSubmissionsConnector.getInstance().loadSolutionFiles(solutionKey)
+      SubmissionsManager.getInstance(project).loadSolutionFiles(this)
     }
     return solutionFiles?.associate { it.name to Solution(it.text, it.isVisible, it.placeholders ?: emptyList()) } ?: emptyMap()
   }
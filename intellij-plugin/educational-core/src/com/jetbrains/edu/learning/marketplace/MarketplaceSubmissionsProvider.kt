@@ -12,6 +12,7 @@ import com.jetbrains.edu.learning.marketplace.api.MarketplaceSubmissionsConnecto
 import com.jetbrains.edu.learning.submissions.SubmissionsProvider
 import com.jetbrains.edu.learning.submissions.isSolutionSharingAllowed
 import com.jetbrains.edu.learning.submissions.isSubmissionDownloadAllowed
+import java.util.*
 
 class MarketplaceSubmissionsProvider : SubmissionsProvider {
 
@@ -22,6 +23,13 @@ class MarketplaceSubmissionsProvider : SubmissionsProvider {
     return emptyMap()
   }
 
+  override fun loadSubmissionsAfter(course: Course, watermark: Date?): Map<Int, List<MarketplaceSubmission>> {
+    if (course !is EduCourse || !course.isMarketplaceRemote) return emptyMap()
+    return MarketplaceSubmissionsConnector.getInstance().getAllSubmissions(course.id, after = watermark).groupBy { it.taskId }
+  }
+
+  override fun getUserKey(): String? = MarketplaceConnector.getInstance().getCurrentUserInfo()?.jbaLogin?.takeIf { it.isNotEmpty() }
+
   override fun loadSharedSolutionsForCourse(course: Course): Map<Int, List<MarketplaceSubmission>> {
     if (course !is EduCourse || !course.isMarketplaceRemote) return emptyMap()
     val submissionsConnector = MarketplaceSubmissionsConnector.getInstance()
@@ -6,6 +6,11 @@ import com.jetbrains.edu.learning.courseGeneration.GeneratorUtils
 object GraphqlQuery {
   const val LOADING_STEP = 10
 
+  /**
+   * The maximum number of course ids in a single [lastUpdatesList] query
+   */
+  const val UPDATES_LOADING_STEP = 20
+
   fun search(offset: Int, searchPrivate: Boolean): String {
     val templateName = if (searchPrivate) {
       "marketplace.qraphql.loadPrivateCourses.txt"
@@ -31,6 +36,7 @@ object GraphqlQuery {
    * because in marketplace.qraphql.courseUpdatesById.txt.ft `collapseField: PLUGIN_ID` parameter is passed
    */
   fun lastUpdatesList(courseIds: List<Int>) = GeneratorUtils.getInternalTemplateText("marketplace.qraphql.courseUpdatesById.txt",
-                                                                                     mapOf("courseIds" to courseIds))
+                                                                                     mapOf("courseIds" to courseIds,
+                                                                                           "max" to UPDATES_LOADING_STEP))
 
 }
\ No newline at end of file
@@ -15,8 +15,8 @@ import com.intellij.openapi.progress.ProgressManager
 import com.intellij.openapi.project.Project
 import com.intellij.openapi.ui.Messages
 import com.intellij.openapi.updateSettings.impl.PluginDownloader
-import com.intellij.openapi.util.io.FileUtil
 import com.intellij.platform.templates.github.DownloadUtil
+import com.intellij.util.concurrency.AppExecutorUtil
 import com.jetbrains.edu.coursecreator.CCNotificationUtils.showErrorNotification
 import com.jetbrains.edu.coursecreator.CCNotificationUtils.showInfoNotification
 import com.jetbrains.edu.coursecreator.CCNotificationUtils.showLogAction
@@ -51,7 +51,9 @@ import java.io.File
 import java.net.HttpURLConnection
 import java.net.MalformedURLException
 import java.net.URL
+import java.util.*
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutorCompletionService
 
 abstract class MarketplaceConnector : MarketplaceAuthConnector(), CourseConnector {
   /**
@@ -84,28 +86,74 @@ abstract class MarketplaceConnector : MarketplaceAuthConnector(), CourseConnecto
     return account?.userInfo
   }
 
-  fun searchCourses(): List<EduCourse> {
+  /**
+   * @param coursesConsumer receives courses as soon as their format versions are known, in no particular order
+   * @return all found courses in the order of the catalog
+   */
+  fun searchCourses(coursesConsumer: (List<EduCourse>) -> Unit = {}): List<EduCourse> {
     val allCourses = mutableListOf<EduCourse>()
-    allCourses.addAll(searchCourses(false))
+    allCourses.addAll(searchCourses(false, coursesConsumer))
     if (isFeatureEnabled(EduExperimentalFeatures.MARKETPLACE_PRIVATE_COURSES)) {
-      allCourses.addAll(searchCourses(true))
+      allCourses.addAll(searchCourses(true, coursesConsumer))
     }
     return allCourses
   }
 
-  private fun searchCourses(searchPrivate: Boolean): List<EduCourse> {
-    var offset = 0
-    val courses = mutableListOf<EduCourse>()
+  /**
+   * The first page reports the total number of courses, so all the remaining pages are requested at once on a bounded pool.
+   * Update infos are requested while the pages are being loaded, for as many loaded courses as a single query allows
+   */
+  private fun searchCourses(searchPrivate: Boolean, coursesConsumer: (List<EduCourse>) -> Unit): List<EduCourse> {
+    val (firstPage, total) = loadCourses(QueryData(GraphqlQuery.search(0, searchPrivate)), updateFormatVersions = false)
+                             ?: return emptyList()
+    if (firstPage.isEmpty()) return emptyList()
+
+    val resolvedCourses = Collections.newSetFromMap(IdentityHashMap<EduCourse, Boolean>())
+    fun resolve(courses: List<EduCourse>) {
+      for (chunk in courses.chunked(GraphqlQuery.UPDATES_LOADING_STEP)) {
+        val resolvedChunk = chunk.updateFormatVersions()
+        resolvedCourses.addAll(resolvedChunk)
+        if (resolvedChunk.isNotEmpty()) {
+          coursesConsumer(resolvedChunk)
+        }
+      }
+    }
+
+    val offsets = (LOADING_STEP until total step LOADING_STEP).toList()
+    val pages = arrayOfNulls<List<EduCourse>>(offsets.size)
+    val executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Marketplace Courses Search", SEARCH_PARALLELISM)
+    try {
+      val completionService = ExecutorCompletionService<Pair<Int, List<EduCourse>?>>(executor)
+      for ((index, offset) in offsets.withIndex()) {
+        completionService.submit {
+          index to loadCourses(QueryData(GraphqlQuery.search(offset, searchPrivate)), updateFormatVersions = false)?.courses
+        }
+      }
 
-    do {
-      val (loadedCourses, total) = loadCourses(QueryData(GraphqlQuery.search(offset, searchPrivate))) ?: return courses
-      if (loadedCourses.isEmpty()) return courses
-      courses.addAll(loadedCourses)
-      offset += LOADING_STEP
+      resolve(firstPage)
+      val unresolvedCourses = mutableListOf<EduCourse>()
+      repeat(offsets.size) {
+        ProgressManager.checkCanceled()
+        val (index, page) = completionService.take().get()
+        if (page == null) {
+          LOG.warn("Failed to load courses from offset ${offsets[index]}")
+          return@repeat
+        }
+        pages[index] = page
+        unresolvedCourses += page
+        if (unresolvedCourses.size >= GraphqlQuery.UPDATES_LOADING_STEP) {
+          val chunk = unresolvedCourses.take(GraphqlQuery.UPDATES_LOADING_STEP)
+          unresolvedCourses.subList(0, chunk.size).clear()
+          resolve(chunk)
+        }
+      }
+      resolve(unresolvedCourses)
+    }
+    finally {
+      executor.shutdownNow()
     }
-    while (courses.size < total)
 
-    return courses
+    return (listOf(firstPage) + pages.filterNotNull()).flatten().filter { it in resolvedCourses }
   }
 
   fun searchCourse(courseId: Int, searchPrivate: Boolean = false): EduCourse? {
@@ -114,15 +162,15 @@ abstract class MarketplaceConnector : MarketplaceAuthConnector(), CourseConnecto
     return course
   }
 
-  private fun loadCourses(query: QueryData): LoadedCourses? {
+  private fun loadCourses(query: QueryData, updateFormatVersions: Boolean = true): LoadedCourses? {
     val response = getRepositoryEndpoints().search(query).executeHandlingExceptions()
     val coursesInfoList = response?.body()?.data?.myCoursesInfoList ?: return null
-    val courses = coursesInfoList.courses
-      .updateFormatVersions()
+    val courses = if (updateFormatVersions) coursesInfoList.courses.updateFormatVersions() else coursesInfoList.courses
     return LoadedCourses(courses, coursesInfoList.total)
   }
 
   private fun List<EduCourse>.updateFormatVersions(): List<EduCourse> {
+    if (isEmpty()) return emptyList()
     val courseIds = map { it.id }
     val updates = getUpdateInfoList(courseIds) ?: return emptyList()
     val courseIdJsonVersionMap: Map<Int, Int> = updates.associateBy(UpdateInfo::pluginId) { it.compatibility.gte }
@@ -165,14 +213,12 @@ abstract class MarketplaceConnector : MarketplaceAuthConnector(), CourseConnecto
     val updateInfo = getLatestCourseUpdateInfo(courseId) ?: error("Update info for course $courseId is null")
 
     val link = "$repositoryUrl/plugin/download?updateId=${updateInfo.updateId}&uuid=$uuid&build=$buildNumber&source=$downloadContext"
-    val filePrefix = FileUtil.sanitizeFileName("marketplace-${courseId}")
-    val tempFile = FileUtil.createTempFile(filePrefix, ".zip", true)
-
-    LOG.debug("Downloading $courseId course via $link")
-    DownloadUtil.downloadAtomically(null, link, tempFile)
 
-    return EduUtilsKt.getLocalCourse(tempFile.path) as? EduCourse
-                         ?: error(message("dialog.title.failed.to.unpack.course"))
+    val course = CourseArchiveCache.getInstance().getCourse(updateInfo.updateId) { file ->
+      LOG.debug("Downloading $courseId course via $link")
+      DownloadUtil.downloadAtomically(null, link, file.toFile())
+    }
+    return course as? EduCourse ?: error(message("dialog.title.failed.to.unpack.course"))
   }
 
   private fun uploadUnderProgress(message: String, uploadAction: () -> Unit) =
@@ -458,6 +504,11 @@ abstract class MarketplaceConnector : MarketplaceAuthConnector(), CourseConnecto
     private val LOG = logger<MarketplaceConnector>()
 
     private val XML_ID = "\\d{5,}-.*".toRegex()
+
+    /**
+     * The maximum number of catalog pages loaded at the same time
+     */
+    private const val SEARCH_PARALLELISM = 4
     private const val PLUGIN_CONTAINS_VERSION_ERROR_TEXT = "plugin already contains version"
 
     private const val ERROR_MARKETPLACE_AGREEMENT_NOT_ACCEPTED = "You have not accepted the JetBrains Plugin Marketplace agreement"
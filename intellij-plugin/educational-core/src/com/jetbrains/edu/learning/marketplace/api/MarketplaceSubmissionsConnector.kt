@@ -37,6 +37,7 @@ import java.io.BufferedInputStream
 import java.net.HttpURLConnection.HTTP_NOT_FOUND
 import java.net.HttpURLConnection.HTTP_NO_CONTENT
 import java.net.URL
+import java.util.*
 
 @Service(Service.Level.APP)
 class MarketplaceSubmissionsConnector {
@@ -98,7 +99,10 @@ class MarketplaceSubmissionsConnector {
 
   private fun logCourseId(courseId: Int?): String = if (courseId != null) "for course $courseId" else ""
 
-  fun getAllSubmissions(courseId: Int): List<MarketplaceSubmission> {
+  /**
+   * @param after if passed, paging stops as soon as the rest of submissions are known to be made before [after]
+   */
+  fun getAllSubmissions(courseId: Int, after: Date? = null): List<MarketplaceSubmission> {
     var currentPage = 1
     val allSubmissions = mutableListOf<MarketplaceSubmission>()
     do {
@@ -109,11 +113,27 @@ class MarketplaceSubmissionsConnector {
       val submissions = submissionsList.submissions
       allSubmissions.addAll(submissions)
       currentPage += 1
+      if (after != null && submissions.endsBefore(after)) {
+        LOG.info("Loaded ${allSubmissions.size} submissions made since $after for course $courseId")
+        break
+      }
     }
     while (submissions.isNotEmpty() && submissionsList.hasNext)
     return allSubmissions
   }
 
+  /**
+   * The service doesn't allow filtering submissions by time, so we rely on the order of submissions:
+   * if a page is sorted from the newest submissions to the oldest ones, and the last of them is made before [time],
+   * the next pages contain only older submissions.
+   * If the order can't be confirmed, `false` is returned, and all the pages are loaded
+   */
+  private fun List<MarketplaceSubmission>.endsBefore(time: Date): Boolean {
+    val times = map { it.time ?: return false }
+    if (times.size < 2 || times.zipWithNext().any { (newer, older) -> newer < older }) return false
+    return times.last() < time
+  }
+
   /**
    * Fetches only N shared solutions for each task on the course that user has solved
    */
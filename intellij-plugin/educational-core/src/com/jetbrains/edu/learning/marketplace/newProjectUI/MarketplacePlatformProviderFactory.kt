@@ -10,6 +10,7 @@ import com.jetbrains.edu.learning.EduUtilsKt
 import com.jetbrains.edu.learning.courseFormat.Course
 import com.jetbrains.edu.learning.courseFormat.CourseMode
 import com.jetbrains.edu.learning.courseFormat.CourseVisibility
+import com.jetbrains.edu.learning.courseFormat.EduCourse
 import com.jetbrains.edu.learning.marketplace.MARKETPLACE
 import com.jetbrains.edu.learning.marketplace.api.MarketplaceConnector
 import com.jetbrains.edu.learning.marketplace.loadMarketplaceCourseStructure
@@ -44,20 +45,23 @@ class MarketplacePlatformProvider(
 
   override fun createPanel(scope: CoroutineScope, disposable: Disposable): CoursesPanel = MarketplaceCoursesPanel(this, scope, disposable)
 
-  override suspend fun doLoadCourses(): List<CoursesGroup> {
-    val marketplaceCourses = MarketplaceConnector.getInstance().searchCourses()
+  override suspend fun doLoadCourses(): List<CoursesGroup> = doLoadCourses {}
 
-    val marketplaceCourseNames = mutableSetOf<String>()
-    for (course in marketplaceCourses) {
-      marketplaceCourseNames += course.name
-      course.updateFeaturedStatus()
-    }
-
-    val bundledCourses = loadBundledCourses().filter { bundled ->
-      bundled.name !in marketplaceCourseNames
+  override suspend fun doLoadCourses(partialResultConsumer: (List<CoursesGroup>) -> Unit): List<CoursesGroup> {
+    val bundledCourses = loadBundledCourses()
+    val loadedCourses = mutableListOf<EduCourse>()
+    val marketplaceCourses = MarketplaceConnector.getInstance().searchCourses { courses ->
+      courses.forEach { it.updateFeaturedStatus() }
+      loadedCourses += courses
+      partialResultConsumer(groupCourses(bundledCourses, loadedCourses))
     }
+    return groupCourses(bundledCourses, marketplaceCourses)
+  }
 
-    val courses = (bundledCourses + marketplaceCourses).sortedBy { it.visibility }
+  private fun groupCourses(bundledCourses: List<Course>, marketplaceCourses: List<EduCourse>): List<CoursesGroup> {
+    val marketplaceCourseNames = marketplaceCourses.mapTo(mutableSetOf()) { it.name }
+    val courses = (bundledCourses.filter { bundled -> bundled.name !in marketplaceCourseNames } + marketplaceCourses)
+      .sortedBy { it.visibility }
     return CoursesGroup.fromCourses(courses)
   }
 
@@ -69,7 +73,8 @@ class MarketplacePlatformProvider(
   private fun loadBundledCourses(): List<Course> {
     val courses = mutableListOf<Course>()
     for (path in getBundledCoursesPaths()) {
-      val localCourse = EduUtilsKt.getLocalCourse(path)
+      // bundled archives are always available, so contents of course files can be read only when a project is created
+      val localCourse = EduUtilsKt.getLocalCourseSkeleton(path)
       if (localCourse == null) {
         LOG.error("Failed to import local course form $path")
         continue
@@ -5,7 +5,6 @@ import com.intellij.openapi.wm.impl.welcomeScreen.learnIde.coursesInProgress.Cou
 import com.intellij.openapi.wm.impl.welcomeScreen.learnIde.coursesInProgress.CourseInfo
 import com.jetbrains.edu.learning.LightTestAware
 import com.jetbrains.edu.learning.courseFormat.Course
-import com.jetbrains.edu.learning.courseFormat.CourseMode
 import com.jetbrains.edu.learning.newproject.ui.welcomeScreen.JBACourseFromStorage
 import org.jetbrains.annotations.TestOnly
 
@@ -21,18 +20,9 @@ class CoursesStorage : CourseDataStorage, CoursesStorageBase(), LightTestAware {
     this.languageVersion = course.languageVersion
   })
 
-  private fun getCourseMetaInfo(name: String, id: Int, courseMode: CourseMode, languageId: String): JBACourseFromStorage? {
-    return state.courses.find {
-      it.name == name
-      && it.id == id
-      && it.courseMode == courseMode
-      && it.languageId == languageId
-    }
-  }
-
   override fun getCoursePath(courseInfo: CourseInfo): String? {
     return if (courseInfo is JBACourseFromStorage) {
-      getCourseMetaInfo(courseInfo.name, courseInfo.id, courseInfo.courseMode, courseInfo.languageId)?.location
+      state.findCourse(courseInfo.name, courseInfo.id, courseInfo.courseMode, courseInfo.languageId)?.location
     }
     else {
       null
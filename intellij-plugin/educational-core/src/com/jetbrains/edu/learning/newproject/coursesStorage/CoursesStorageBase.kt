@@ -8,6 +8,7 @@ import com.intellij.openapi.util.io.FileUtilRt
 import com.intellij.util.messages.Topic
 import com.intellij.util.xmlb.annotations.XCollection
 import com.jetbrains.edu.learning.courseFormat.Course
+import com.jetbrains.edu.learning.courseFormat.CourseMode
 import com.jetbrains.edu.learning.messages.EduCoreBundle
 import com.jetbrains.edu.learning.newproject.ui.coursePanel.groups.CoursesGroup
 import com.jetbrains.edu.learning.newproject.ui.welcomeScreen.JBACourseFromStorage
@@ -15,6 +16,9 @@ import com.jetbrains.edu.learning.newproject.ui.welcomeScreen.JBACourseFromStora
 
 open class CoursesStorageBase : SimplePersistentStateComponent<UserCoursesState>(UserCoursesState()) {
 
+  @Volatile
+  private var cachedCoursesGroups: CachedCoursesGroups? = null
+
   fun addCourse(course: Course, location: String, tasksSolved: Int = 0, tasksTotal: Int = 0) {
     state.addCourse(course, location, tasksSolved, tasksTotal)
     ApplicationManager.getApplication().messageBus.syncPublisher(COURSE_ADDED).courseAdded(course)
@@ -25,11 +29,7 @@ open class CoursesStorageBase : SimplePersistentStateComponent<UserCoursesState>
   fun hasCourse(course: Course): Boolean = getCoursePath(course) != null
 
   fun getCourseMetaInfoForAnyLanguage(course: Course): JBACourseFromStorage? {
-    return state.courses.find {
-      it.name == course.name
-      && it.id == course.id
-      && it.courseMode == course.courseMode
-    }
+    return state.findCourseForAnyLanguage(course.name, course.id, course.courseMode)
   }
 
   protected fun doRemoveCourseByLocation(location: String): Boolean {
@@ -41,20 +41,29 @@ open class CoursesStorageBase : SimplePersistentStateComponent<UserCoursesState>
   }
 
   fun getCourseMetaInfo(course: Course): JBACourseFromStorage? {
-    return state.courses.find {
-      it.name == course.name
-      && it.id == course.id
-      && it.courseMode == course.courseMode
-      && it.languageId == course.languageId
-    }
+    return state.findCourse(course.name, course.id, course.courseMode, course.languageId)
   }
 
   fun updateCourseProgress(course: Course, location: String, tasksSolved: Int, tasksTotal: Int) {
     state.updateCourseProgress(course, location, tasksSolved, tasksTotal)
   }
 
+  /**
+   * Groups are cached until a course is added, removed or its progress changes
+   */
   fun coursesInGroups(): List<CoursesGroup> {
-    val courses = state.courses
+    val state = state
+    val modificationCount = state.modificationCount
+    val cachedGroups = cachedCoursesGroups
+    if (cachedGroups != null && cachedGroups.state === state && cachedGroups.modificationCount == modificationCount) {
+      return cachedGroups.groups
+    }
+    val groups = createCoursesGroups(state.courses)
+    cachedCoursesGroups = CachedCoursesGroups(state, modificationCount, groups)
+    return groups
+  }
+
+  private fun createCoursesGroups(courses: List<JBACourseFromStorage>): List<CoursesGroup> {
     val solvedCourses = courses.filter { it.isStudy && it.tasksSolved != 0 && it.tasksSolved == it.tasksTotal }.map { it.toCourse() }
     val solvedCoursesGroup = CoursesGroup(EduCoreBundle.message("course.dialog.completed"), solvedCourses)
 
@@ -71,6 +80,8 @@ open class CoursesStorageBase : SimplePersistentStateComponent<UserCoursesState>
 
   fun isNotEmpty() = state.courses.isNotEmpty()
 
+  private class CachedCoursesGroups(val state: UserCoursesState, val modificationCount: Long, val groups: List<CoursesGroup>)
+
   companion object {
     val COURSE_DELETED = Topic.create("Edu.courseDeletedFromStorage", CourseDeletedListener::class.java)
     val COURSE_ADDED = Topic.create("Edu.courseAddedToStorage", CourseAddedListener::class.java)
@@ -82,29 +93,123 @@ class UserCoursesState : BaseState() {
   @get:XCollection(style = XCollection.Style.v2)
   val courses by list<JBACourseFromStorage>()
 
+  /**
+   * Indexes of [courses]. Kept in sync by the methods of this class,
+   * and rebuilt if [courses] is modified in any other way, e.g. when the state is loaded
+   */
+  private var index: CoursesIndex? = null
+
+  @Synchronized
   fun addCourse(course: Course, location: String, tasksSolved: Int = 0, tasksTotal: Int = 0) {
     val systemIndependentLocation = FileUtilRt.toSystemIndependentName(location)
-    courses.removeIf { it.location == systemIndependentLocation }
+    val index = getIndex()
+    val previousCourseMetaInfo = index.findByLocation(systemIndependentLocation)
+    if (previousCourseMetaInfo != null) {
+      courses.removeIf { it.location == systemIndependentLocation }
+      index.removeAllByLocation(systemIndependentLocation)
+    }
     val courseMetaInfo = JBACourseFromStorage(systemIndependentLocation, course, tasksTotal, tasksSolved)
     courses.add(courseMetaInfo)
+    index.add(courseMetaInfo)
+    index.modificationCount = modificationCount
   }
 
+  @Synchronized
   fun removeCourseByLocation(location: String): JBACourseFromStorage? {
-    val courseMetaInfo = courses.find { it.location == location }
+    val index = getIndex()
+    val courseMetaInfo = index.findByLocation(location) ?: return null
     courses.remove(courseMetaInfo)
+    index.remove(courseMetaInfo)
+    index.modificationCount = modificationCount
     return courseMetaInfo
   }
 
+  @Synchronized
   fun updateCourseProgress(course: Course, location: String, tasksSolved: Int, tasksTotal: Int) {
     val systemIndependentLocation = FileUtilRt.toSystemIndependentName(location)
-    val courseMetaInfo = courses.find { it.location == systemIndependentLocation }
+    val index = getIndex()
+    val courseMetaInfo = index.findByLocation(systemIndependentLocation)
     if (courseMetaInfo != null) {
       courseMetaInfo.tasksSolved = tasksSolved
       courseMetaInfo.tasksTotal = tasksTotal
       intIncrementModificationCount()
     }
     else {
-      courses.add(JBACourseFromStorage(systemIndependentLocation, course, tasksTotal, tasksSolved))
+      val newCourseMetaInfo = JBACourseFromStorage(systemIndependentLocation, course, tasksTotal, tasksSolved)
+      courses.add(newCourseMetaInfo)
+      index.add(newCourseMetaInfo)
     }
+    index.modificationCount = modificationCount
+  }
+
+  @Synchronized
+  fun findCourse(name: String, id: Int, courseMode: CourseMode, languageId: String): JBACourseFromStorage? {
+    return getIndex().findByKey(CourseKey(name, id, courseMode, languageId))
+  }
+
+  @Synchronized
+  fun findCourseForAnyLanguage(name: String, id: Int, courseMode: CourseMode): JBACourseFromStorage? {
+    return getIndex().findByKey(CourseKey(name, id, courseMode, languageId = null))
+  }
+
+  private fun getIndex(): CoursesIndex {
+    val modificationCount = modificationCount
+    val index = index
+    if (index != null && index.modificationCount == modificationCount) return index
+    return CoursesIndex(courses, modificationCount).also { this.index = it }
   }
-}
\ No newline at end of file
+
+  /**
+   * @param languageId `null` for the key matching courses in any language
+   */
+  private data class CourseKey(val name: String?, val id: Int, val courseMode: CourseMode, val languageId: String?)
+
+  /**
+   * Courses grouped by their keys and by locations, in the order of [courses],
+   * so the first course of a group is the one a linear search of [courses] would find
+   */
+  private class CoursesIndex(courses: List<JBACourseFromStorage>, var modificationCount: Long) {
+    private val byKey = HashMap<CourseKey, MutableList<JBACourseFromStorage>>()
+    private val byLocation = HashMap<String, MutableList<JBACourseFromStorage>>()
+
+    init {
+      courses.forEach(::add)
+    }
+
+    fun findByKey(key: CourseKey): JBACourseFromStorage? = byKey[key]?.firstOrNull()
+
+    fun findByLocation(location: String): JBACourseFromStorage? = byLocation[location]?.firstOrNull()
+
+    fun add(course: JBACourseFromStorage) {
+      for (key in course.keys()) {
+        byKey.getOrPut(key) { mutableListOf() } += course
+      }
+      byLocation.getOrPut(course.location) { mutableListOf() } += course
+    }
+
+    fun remove(course: JBACourseFromStorage) {
+      for (key in course.keys()) {
+        byKey.removeFromGroup(key, course)
+      }
+      byLocation.removeFromGroup(course.location, course)
+    }
+
+    fun removeAllByLocation(location: String) {
+      val courses = byLocation[location]?.toList() ?: return
+      courses.forEach(::remove)
+    }
+
+    private fun JBACourseFromStorage.keys(): List<CourseKey> = listOf(
+      CourseKey(name, id, courseMode, languageId),
+      CourseKey(name, id, courseMode, languageId = null)
+    )
+
+    private fun <K> HashMap<K, MutableList<JBACourseFromStorage>>.removeFromGroup(key: K, course: JBACourseFromStorage) {
+      val group = get(key) ?: return
+      group.removeIf { it === course }
+      if (group.isEmpty()) {
+        remove(key)
+      }
+    }
+  }
+}
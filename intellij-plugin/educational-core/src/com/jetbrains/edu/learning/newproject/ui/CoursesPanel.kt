@@ -96,9 +96,13 @@ abstract class CoursesPanel(
 
   suspend fun loadCourses() {
     try {
-      coursesGroups.addAll(withContext(Dispatchers.IO) {
-        coursesProvider.loadCourses()
-      })
+      val loadedCoursesGroups = withContext(Dispatchers.IO) {
+        coursesProvider.loadCourses { partialCoursesGroups ->
+          scope.launch { showPartiallyLoadedCourses(partialCoursesGroups) }
+        }
+      }
+      coursesGroups.clear()
+      coursesGroups.addAll(loadedCoursesGroups)
     }
     catch (e: CoursesDownloadingException) {
       showErrorMessage(e)
@@ -110,8 +114,19 @@ abstract class CoursesPanel(
     }
   }
 
+  private fun showPartiallyLoadedCourses(partialCoursesGroups: List<CoursesGroup>) {
+    if (loadingFinished || partialCoursesGroups.isEmpty()) return
+    coursesGroups.clear()
+    coursesGroups.addAll(partialCoursesGroups)
+    if (isShowing) {
+      updateFilters(coursesGroups)
+      updateModel(coursesGroups, selectedCourse)
+      showContent(false)
+    }
+  }
+
   fun onTabSelection() {
-    if (loadingFinished) {
+    if (loadingFinished || coursesGroups.isNotEmpty()) {
       updateFilters(coursesGroups)
       updateModel(coursesGroups, null)
       showContent(coursesGroups.isEmpty())
@@ -35,9 +35,12 @@ abstract class CoursesPlatformProvider {
     joinCourse(courseInfo, courseMode, coursePanel) { coursePanel.setError(it) }
   }
 
-  suspend fun loadCourses(): List<CoursesGroup> {
+  /**
+   * @param partialResultConsumer receives the groups of courses loaded so far, if the provider loads them in portions
+   */
+  suspend fun loadCourses(partialResultConsumer: (List<CoursesGroup>) -> Unit = {}): List<CoursesGroup> {
     val courseGroups = try {
-      doLoadCourses()
+      doLoadCourses { partialResultConsumer(filterCompatibleCourses(it)) }
     }
     catch (e: CoursesDownloadingException) {
       throw e
@@ -46,6 +49,10 @@ abstract class CoursesPlatformProvider {
       logger<CoursesPlatformProvider>().warn(e)
       return emptyList()
     }
+    return filterCompatibleCourses(courseGroups)
+  }
+
+  private fun filterCompatibleCourses(courseGroups: List<CoursesGroup>): List<CoursesGroup> {
     return courseGroups.mapNotNull { courseGroup ->
       courseGroup.courses
         .filter {
@@ -64,6 +71,11 @@ abstract class CoursesPlatformProvider {
 
   protected abstract suspend fun doLoadCourses(): List<CoursesGroup>
 
+  /**
+   * Override it to show courses in the dialog before all of them are loaded
+   */
+  protected open suspend fun doLoadCourses(partialResultConsumer: (List<CoursesGroup>) -> Unit): List<CoursesGroup> = doLoadCourses()
+
   companion object {
     fun joinCourse(
       courseInfo: CourseCreationInfo,
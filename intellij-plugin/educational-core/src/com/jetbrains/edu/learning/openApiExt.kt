@@ -178,25 +178,57 @@ fun runInBackground(project: Project? = null, title: String, canBeCancelled: Boo
     override fun run(indicator: ProgressIndicator) = task(indicator)
   })
 
+/**
+ * Turns the boolean registry [key] off while [action] is running.
+ *
+ * Actions may run concurrently: the key is turned off by the first of them
+ * and its original value is restored when the last of them is finished
+ */
 fun <T> withRegistryKeyOff(key: String, action: () -> T): T {
   val registryValue = Registry.get(key)
-  val before = try {
-    registryValue.asBoolean()
-  }
-  catch (e: MissingResourceException) {
-    LOG.error(e)
-    return action()
+  val isTurnedOff = synchronized(registryKeysOff) {
+    val override = registryKeysOff[key]
+    if (override != null) {
+      override.holders++
+      true
+    }
+    else {
+      try {
+        registryKeysOff[key] = RegistryKeyOverride(registryValue.asBoolean())
+        registryValue.setValue(false)
+        true
+      }
+      catch (e: MissingResourceException) {
+        LOG.error(e)
+        false
+      }
+    }
   }
+  if (!isTurnedOff) return action()
 
   try {
-    registryValue.setValue(false)
     return action()
   }
   finally {
-    registryValue.setValue(before)
+    synchronized(registryKeysOff) {
+      val override = registryKeysOff.getValue(key)
+      if (--override.holders == 0) {
+        registryKeysOff.remove(key)
+        registryValue.setValue(override.valueBefore)
+      }
+    }
   }
 }
 
+private class RegistryKeyOverride(val valueBefore: Boolean) {
+  var holders: Int = 1
+}
+
+/**
+ * Registry keys turned off by [withRegistryKeyOff] at the moment
+ */
+private val registryKeysOff = HashMap<String, RegistryKeyOverride>()
+
 fun <V> getInEdt(modalityState: ModalityState = ModalityState.defaultModalityState(), compute: () -> V): V {
   return runBlocking(AppUIExecutor.onUiThread(modalityState).coroutineDispatchingContext()) {
     compute()
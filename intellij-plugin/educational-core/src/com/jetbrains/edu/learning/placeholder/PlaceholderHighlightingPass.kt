@@ -7,14 +7,23 @@ import com.intellij.codeHighlighting.TextEditorHighlightingPassRegistrar
 import com.intellij.codeInsight.daemon.impl.HighlightInfo
 import com.intellij.codeInsight.daemon.impl.HighlightInfoType
 import com.intellij.codeInsight.daemon.impl.UpdateHighlightersUtil
+import com.intellij.codeInsight.daemon.impl.VisibleHighlightingPassFactory
 import com.intellij.lang.annotation.HighlightSeverity
-import com.intellij.openapi.editor.Document
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.ModalityState
+import com.intellij.openapi.application.ReadAction
 import com.intellij.openapi.editor.Editor
 import com.intellij.openapi.editor.colors.TextAttributesKey
+import com.intellij.openapi.progress.EmptyProgressIndicator
 import com.intellij.openapi.progress.ProgressIndicator
+import com.intellij.openapi.progress.ProgressManager
 import com.intellij.openapi.project.DumbAware
 import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.Key
+import com.intellij.openapi.util.TextRange
 import com.intellij.psi.PsiFile
+import com.intellij.util.concurrency.AppExecutorUtil
+import com.intellij.util.concurrency.annotations.RequiresEdt
 import com.jetbrains.edu.learning.EduUtilsKt.isStudentProject
 import com.jetbrains.edu.learning.courseFormat.AnswerPlaceholder
 import com.jetbrains.edu.learning.courseFormat.CheckStatus
@@ -28,7 +37,7 @@ class PlaceholderHighlightingPassFactory : TextEditorHighlightingPassFactory, Te
 
     val taskFile = file.virtualFile?.getTaskFile(file.project) ?: return null
 
-    return PlaceholderHighlightingPass(file, taskFile, editor.document)
+    return PlaceholderHighlightingPass(file, taskFile, editor, highlightingRange(editor))
   }
 
   override fun registerHighlightingPassFactory(registrar: TextEditorHighlightingPassRegistrar, project: Project) {
@@ -36,17 +45,43 @@ class PlaceholderHighlightingPassFactory : TextEditorHighlightingPassFactory, Te
   }
 }
 
+/**
+ * The visible part of the editor with a screen above and below it, so placeholders are already highlighted on scrolling.
+ * `null` means the whole file, e.g. when the editor is not shown yet
+ */
+private fun highlightingRange(editor: Editor): TextRange? {
+  if (editor.scrollingModel.visibleArea.isEmpty) return null
+  val document = editor.document
+  if (document.lineCount == 0) return null
+
+  val visibleRange = VisibleHighlightingPassFactory.calculateVisibleRange(editor)
+  val startLine = document.getLineNumber(visibleRange.startOffset)
+  val endLine = document.getLineNumber(visibleRange.endOffset)
+  val visibleLines = endLine - startLine + 1
+  val lastLine = document.lineCount - 1
+  return TextRange(
+    document.getLineStartOffset((startLine - visibleLines).coerceIn(0, lastLine)),
+    document.getLineEndOffset((endLine + visibleLines).coerceIn(0, lastLine))
+  )
+}
+
 class PlaceholderHighlightingPass(
   private val file: PsiFile,
   private val taskFile: TaskFile,
-  document: Document
-) : TextEditorHighlightingPass(file.project, document), DumbAware {
+  private val editor: Editor,
+  /**
+   * Only placeholders in this range are highlighted, highlighters outside of it are left as is. `null` means the whole file
+   */
+  private val range: TextRange? = null
+) : TextEditorHighlightingPass(file.project, editor.document), DumbAware {
 
   private val results = mutableListOf<HighlightInfo>()
+  private var highlightedRange: TextRange = TextRange(0, 0)
 
   override fun doCollectInformation(progress: ProgressIndicator) {
     val textLength = file.textLength
-    for (placeholder in taskFile.answerPlaceholders) {
+    highlightedRange = TextRange(range?.startOffset?.coerceAtMost(textLength) ?: 0, range?.endOffset?.coerceAtMost(textLength) ?: textLength)
+    for (placeholder in taskFile.getAnswerPlaceholders(highlightedRange.startOffset, highlightedRange.endOffset)) {
       progress.checkCanceled()
 
       if (!placeholder.isValid(textLength)) continue
@@ -68,12 +103,50 @@ class PlaceholderHighlightingPass(
     UpdateHighlightersUtil.setHighlightersToEditor(
       myProject,
       myDocument,
-      0,
-      file.textLength,
+      highlightedRange.startOffset,
+      highlightedRange.endOffset,
       results,
       colorsScheme,
       id
     )
+    editor.putUserData(HIGHLIGHTED_RANGE, highlightedRange)
+  }
+
+  companion object {
+    private val HIGHLIGHTED_RANGE: Key<TextRange> = Key.create("edu.placeholder.highlighted.range")
+
+    /**
+     * Whether placeholders in the visible part of [editor] have been highlighted by the last pass
+     */
+    fun isVisibleAreaHighlighted(editor: Editor): Boolean {
+      val highlightedRange = editor.getUserData(HIGHLIGHTED_RANGE) ?: return false
+      return highlightedRange.contains(VisibleHighlightingPassFactory.calculateVisibleRange(editor))
+    }
+
+    /**
+     * Highlights placeholders around the visible part of [editor] without restarting the daemon for the whole file.
+     * Placeholders are collected in a background read action, which is restarted on document changes,
+     * and only highlighters are updated in EDT
+     */
+    @RequiresEdt
+    fun highlightVisibleArea(file: PsiFile, taskFile: TaskFile, editor: Editor, parentDisposable: Disposable) {
+      val range = highlightingRange(editor)
+      ReadAction.nonBlocking<PlaceholderHighlightingPass?> {
+        if (!file.isValid) return@nonBlocking null
+        val pass = PlaceholderHighlightingPass(file, taskFile, editor, range)
+        pass.collectInformation(ProgressManager.getInstance().progressIndicator ?: EmptyProgressIndicator())
+        pass
+      }
+        .withDocumentsCommitted(file.project)
+        .expireWith(parentDisposable)
+        .coalesceBy(editor, HIGHLIGHTED_RANGE)
+        .finishOnUiThread(ModalityState.defaultModalityState()) { pass ->
+          if (pass != null && !editor.isDisposed) {
+            pass.applyInformationToEditor()
+          }
+        }
+        .submit(AppExecutorUtil.getAppExecutorService())
+    }
   }
 }
 
@@ -6,6 +6,16 @@ interface LearningObjectsStorage : Disposable {
   val writeTextInYaml: Boolean
   fun load(key: String): ByteArray
   fun store(key: String, value: ByteArray)
+
+  /**
+   * Stores all the [values] at once.
+   * Implementations may override it to make bulk writing cheaper than a sequence of [store] calls
+   */
+  fun storeAll(values: Map<String, ByteArray>) {
+    for ((key, value) in values) {
+      store(key, value)
+    }
+  }
 }
 
-fun LearningObjectsStorage.store(key: String, value: String) = store(key, value.toByteArray())
\ No newline at end of file
+fun LearningObjectsStorage.store(key: String, value: String) = store(key, value.toByteArray())
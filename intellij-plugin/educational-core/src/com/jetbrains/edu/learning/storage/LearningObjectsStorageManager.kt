@@ -2,13 +2,13 @@ package com.jetbrains.edu.learning.storage
 
 import com.intellij.ide.util.PropertiesComponent
 import com.intellij.openapi.Disposable
-import com.intellij.openapi.application.ApplicationManager
 import com.intellij.openapi.components.Service
 import com.intellij.openapi.components.service
 import com.intellij.openapi.diagnostic.logger
 import com.intellij.openapi.project.DumbAware
 import com.intellij.openapi.project.Project
 import com.intellij.openapi.util.Disposer
+import com.intellij.util.concurrency.AppExecutorUtil
 import com.jetbrains.edu.learning.LightTestAware
 import com.jetbrains.edu.learning.course
 import com.jetbrains.edu.learning.courseFormat.*
@@ -20,85 +20,194 @@ import com.jetbrains.edu.learning.isUnitTestMode
 import com.jetbrains.edu.learning.yaml.format.student.TakeFromStorageBinaryContents
 import com.jetbrains.edu.learning.yaml.format.student.TakeFromStorageTextualContents
 import org.jetbrains.annotations.TestOnly
+import org.jetbrains.annotations.VisibleForTesting
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.AtomicBoolean
 
 @Service(Service.Level.PROJECT)
-class LearningObjectsStorageManager(private val project: Project) : DumbAware, Disposable, LightTestAware {
+class LearningObjectsStorageManager @TestOnly internal constructor(
+  private val project: Project,
+  storage: LearningObjectsStorage?
+) : DumbAware, Disposable, LightTestAware {
+
+  @Suppress("unused") // used by the service container
+  constructor(project: Project) : this(project, null)
 
   /**
    * This is the project level storage used to store all the edu files contents and other data that should be persistent.
+   * It's disposed together with the manager after all the queued files are persisted, see [dispose]
    */
-  private val learningObjectsStorage: LearningObjectsStorage = createLearningObjectStorage()
+  private val learningObjectsStorage: LearningObjectsStorage = storage ?: createLearningObjectStorage()
 
   val writeTextInYaml: Boolean get() = learningObjectsStorage.writeTextInYaml
 
-  init {
-    Disposer.register(this, learningObjectsStorage)
-  }
+  /**
+   * All the persisting is done sequentially in batches of at most [PERSISTING_BATCH_SIZE] files,
+   * so opening a course with a lot of files doesn't flood the application pool and the storage with separate writes.
+   */
+  private val persistingExecutor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Learning Objects Persister", 1)
+
+  /**
+   * Files waiting for persisting by their paths in the storage.
+   * [persist] never waits for the storage: if a file is queued again before it's persisted, only its latest contents are written
+   */
+  private val pendingFiles = LinkedHashMap<String, EduFileToPersist>()
+
+  /**
+   * Whether a job draining [pendingFiles] is queued in [persistingExecutor] or running
+   */
+  private val isDrainScheduled = AtomicBoolean()
+
+  private fun persist(eduFiles: Collection<EduFile>, storage: LearningObjectsStorage) {
+    val filesToPersist = mutableListOf<EduFileToPersist>()
+
+    for (eduFile in eduFiles) {
+      val pathInStorage = eduFile.pathInStorage
+      when (eduFile.contents) {
+        is ContentsFromLearningObjectsStorage -> {
+          continue
+        }
+        TakeFromStorageBinaryContents -> {
+          eduFile.contents = BinaryContentsFromLearningObjectsStorage(storage, pathInStorage)
+        }
+        TakeFromStorageTextualContents -> {
+          eduFile.contents = TextualContentsFromLearningObjectsStorage(storage, pathInStorage)
+        }
+        else -> {
+          val initialContents = eduFile.contents
+          val contentsWithDiagnostics = wrapWithDiagnostics(initialContents, pathInStorage)
 
-  private fun EduFile.persist(storage: LearningObjectsStorage) {
-    when (contents) {
-      is ContentsFromLearningObjectsStorage -> {
-        return
+          // this will allow logging all accesses to the contents while it is being persisted
+          eduFile.contents = contentsWithDiagnostics
+          filesToPersist += EduFileToPersist(eduFile, pathInStorage, initialContents, contentsWithDiagnostics)
+        }
+      }
+    }
+
+    if (filesToPersist.isEmpty()) return
+    synchronized(pendingFiles) {
+      for (file in filesToPersist) {
+        // a file queued again is moved to the end of the queue with its latest contents
+        pendingFiles.remove(file.pathInStorage)
+        pendingFiles[file.pathInStorage] = file
       }
-      TakeFromStorageBinaryContents -> {
-        contents = BinaryContentsFromLearningObjectsStorage(storage, pathInStorage)
+    }
+    scheduleDrain(storage)
+  }
+
+  private fun scheduleDrain(storage: LearningObjectsStorage) {
+    if (!isDrainScheduled.compareAndSet(false, true)) return
+    try {
+      persistingExecutor.execute { drainPendingFiles(storage) }
+    }
+    catch (e: RejectedExecutionException) {
+      isDrainScheduled.set(false)
+      val notPersisted = synchronized(pendingFiles) { pendingFiles.size.also { pendingFiles.clear() } }
+      LOG.warn("Failed to persist $notPersisted files: the storage is already closed", e)
+    }
+  }
+
+  private fun drainPendingFiles(storage: LearningObjectsStorage) {
+    while (true) {
+      val batch = takePendingBatch()
+      if (batch.isEmpty()) {
+        isDrainScheduled.set(false)
+        // files could be queued after the batch was taken but before the flag was reset
+        if (synchronized(pendingFiles) { pendingFiles.isEmpty() } || !isDrainScheduled.compareAndSet(false, true)) return
+        continue
       }
-      TakeFromStorageTextualContents -> {
-        contents = TextualContentsFromLearningObjectsStorage(storage, pathInStorage)
+      try {
+        persistBatch(batch, storage)
       }
-      else -> {
-        val initialContents = contents
-        val contentsWithDiagnostics = wrapWithDiagnostics(initialContents, pathInStorage)
-
-        // this will allow logging all accesses to the contents while it is being persisted
-        contents = contentsWithDiagnostics
-        ApplicationManager.getApplication().executeOnPooledThread {
-          val persistedContents = initialContents.persist(storage, pathInStorage)
-          // if persisting took long, contents could have been already changed
-
-          if (!setContentsIfEquals(contentsWithDiagnostics, persistedContents)) {
-            // The level is `error`, because we want to have feedback if that happens.
-            // But we will probably change this later to `warn`, or 'info', or remove the check completely.
-            logger<FileContents>().error("Contents of a file changed while the file was being persisted: $pathInStorage from ${initialContents.javaClass} to ${contents.javaClass}")
-          }
-        }
+      catch (e: Exception) {
+        LOG.warn("Failed to persist ${batch.size} files", e)
       }
     }
   }
 
-  private fun FileContents.persist(storage: LearningObjectsStorage, path: String): FileContents {
-    return when (this) {
-      is BinaryContents -> {
-        storage.store(path, bytes)
-        BinaryContentsFromLearningObjectsStorage(storage, path)
-      }
+  private fun takePendingBatch(): List<EduFileToPersist> = synchronized(pendingFiles) {
+    val iterator = pendingFiles.values.iterator()
+    val batch = ArrayList<EduFileToPersist>(minOf(pendingFiles.size, PERSISTING_BATCH_SIZE))
+    while (batch.size < PERSISTING_BATCH_SIZE && iterator.hasNext()) {
+      batch += iterator.next()
+      iterator.remove()
+    }
+    batch
+  }
 
-      is TextualContents -> {
-        storage.store(path, text)
-        TextualContentsFromLearningObjectsStorage(storage, path)
-      }
+  /**
+   * Waits until all the files queued for persisting at the moment of the call are written to the storage
+   *
+   * @return `false` if the files are not persisted in [timeoutMs]
+   */
+  @TestOnly
+  fun flush(timeoutMs: Long = FLUSH_TIMEOUT_MS): Boolean {
+    // the executor is sequential, so all the files queued before the marker are persisted when the marker is done
+    val marker = try {
+      persistingExecutor.submit {}
+    }
+    catch (e: RejectedExecutionException) {
+      return true
+    }
+    return try {
+      marker.get(timeoutMs, TimeUnit.MILLISECONDS)
+      true
+    }
+    catch (e: TimeoutException) {
+      false
+    }
+    catch (e: InterruptedException) {
+      Thread.currentThread().interrupt()
+      false
+    }
+    catch (e: ExecutionException) {
+      LOG.warn(e)
+      true
+    }
+  }
 
-      is UndeterminedContents -> {
-        storage.store(path, textualRepresentation)
-        UndeterminedContentsFromLearningObjectsStorage(storage, path)
+  private fun persistBatch(batch: List<EduFileToPersist>, storage: LearningObjectsStorage) {
+    storage.storeAll(batch.associate { it.pathInStorage to it.initialContents.toBytes() })
+
+    for ((eduFile, pathInStorage, initialContents, contentsWithDiagnostics) in batch) {
+      val persistedContents = initialContents.fromStorage(storage, pathInStorage)
+      // if persisting took long, contents could have been already changed
+
+      if (!eduFile.setContentsIfEquals(contentsWithDiagnostics, persistedContents)) {
+        // The level is `error`, because we want to have feedback if that happens.
+        // But we will probably change this later to `warn`, or 'info', or remove the check completely.
+        logger<FileContents>().error("Contents of a file changed while the file was being persisted: $pathInStorage from ${initialContents.javaClass} to ${eduFile.contents.javaClass}")
       }
     }
   }
 
+  private fun FileContents.toBytes(): ByteArray = when (this) {
+    is BinaryContents -> bytes
+    is TextualContents -> text.toByteArray()
+    is UndeterminedContents -> textualRepresentation.toByteArray()
+  }
+
+  private fun FileContents.fromStorage(storage: LearningObjectsStorage, path: String): FileContents = when (this) {
+    is BinaryContents -> BinaryContentsFromLearningObjectsStorage(storage, path)
+    is TextualContents -> TextualContentsFromLearningObjectsStorage(storage, path)
+    is UndeterminedContents -> UndeterminedContentsFromLearningObjectsStorage(storage, path)
+  }
+
   fun persistAllEduFiles(course: Course) {
     if (project.course?.isStudy != true) return
 
-    course.visitEduFiles { eduFile ->
-      eduFile.persist(learningObjectsStorage)
-    }
+    val eduFiles = mutableListOf<EduFile>()
+    course.visitEduFiles { eduFiles += it }
+    persist(eduFiles, learningObjectsStorage)
   }
 
   fun persistTaskEduFiles(task: Task) {
     if (project.course?.isStudy != true) return
 
-    for (taskFile in task.taskFiles.values) {
-      taskFile.persist(learningObjectsStorage)
-    }
+    persist(task.taskFiles.values, learningObjectsStorage)
   }
 
   /**
@@ -133,7 +242,19 @@ class LearningObjectsStorageManager(private val project: Project) : DumbAware, D
     else -> null
   }
 
-  override fun dispose() {}
+  /**
+   * Doesn't wait for the queued files: the storage is disposed by [persistingExecutor] right after they are persisted
+   */
+  override fun dispose() {
+    try {
+      persistingExecutor.execute { Disposer.dispose(learningObjectsStorage) }
+    }
+    catch (e: RejectedExecutionException) {
+      LOG.warn(e)
+      Disposer.dispose(learningObjectsStorage)
+    }
+    persistingExecutor.shutdown()
+  }
 
   @TestOnly
   override fun cleanUpState() {
@@ -141,12 +262,26 @@ class LearningObjectsStorageManager(private val project: Project) : DumbAware, D
   }
 
   companion object {
+    private val LOG = logger<LearningObjectsStorageManager>()
+
     fun getInstance(project: Project): LearningObjectsStorageManager = project.service()
 
     private const val PROPERTIES_KEY = "Edu.LearningObjectsStorageType"
+
+    @VisibleForTesting
+    internal const val PERSISTING_BATCH_SIZE = 500
+
+    private const val FLUSH_TIMEOUT_MS = 30_000L
   }
 }
 
+private data class EduFileToPersist(
+  val eduFile: EduFile,
+  val pathInStorage: String,
+  val initialContents: FileContents,
+  val contentsWithDiagnostics: FileContents
+)
+
 fun Task.persistEduFiles(project: Project) {
   LearningObjectsStorageManager.getInstance(project).persistTaskEduFiles(this)
 }
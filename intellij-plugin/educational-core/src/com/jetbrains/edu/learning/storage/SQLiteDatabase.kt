@@ -0,0 +1,52 @@
+package com.jetbrains.edu.learning.storage
+
+import org.jetbrains.sqlite.ObjectBinder
+import org.jetbrains.sqlite.SqliteConnection
+import java.nio.file.Path
+
+/**
+ * SQLite database shared by the persistent storages of the plugin.
+ *
+ * The database uses write-ahead log, which makes commits cheaper since it doesn't require rewriting of the database file on each commit,
+ * and `NORMAL` synchronous mode, which is safe for WAL: only the last commits may be lost in case of a power failure.
+ */
+internal class SQLiteDatabase(path: Path) {
+
+  private val connection = SqliteConnection(path)
+
+  /**
+   * SQLite doesn't support nested transactions, so all writes are serialized
+   */
+  private val transactionLock = Any()
+
+  init {
+    connection.execute("PRAGMA journal_mode=WAL")
+    connection.execute("PRAGMA synchronous=NORMAL")
+  }
+
+  fun execute(sql: String) {
+    connection.execute(sql)
+  }
+
+  /**
+   * Creates a pool of prepared statements of [sql] with [parameterCount] parameters
+   */
+  fun statementPool(sql: String, parameterCount: Int) = connection.statementPool(sql = sql) { ObjectBinder(parameterCount) }
+
+  fun <T> inTransaction(action: () -> T): T {
+    synchronized(transactionLock) {
+      connection.execute("BEGIN TRANSACTION")
+      try {
+        val result = action()
+        connection.execute("COMMIT")
+        return result
+      }
+      catch (e: Throwable) {
+        connection.execute("ROLLBACK")
+        throw e
+      }
+    }
+  }
+
+  fun close() = connection.interruptAndClose()
+}
@@ -4,28 +4,70 @@ import com.intellij.openapi.Disposable
 import com.intellij.openapi.diagnostic.logger
 import com.intellij.openapi.project.Project
 import com.intellij.project.stateStore
-import org.jetbrains.sqlite.ObjectBinder
-import org.jetbrains.sqlite.SqliteConnection
+import org.jetbrains.annotations.VisibleForTesting
 import java.nio.file.Path
+import java.security.MessageDigest
 
+/**
+ * The table used before contents were deduplicated. It's migrated to [BLOBS_TABLE] and [PATHS_TABLE] on opening
+ */
 private const val AUTHOR_CONTENTS_TABLE = "Contents"
 
+/**
+ * Contents addressed by their hash, `refs` is the number of keys in [PATHS_TABLE] referencing the contents
+ */
+private const val BLOBS_TABLE = "Blobs"
+
+/**
+ * Keys of the storage mapped to the hashes of their contents in [BLOBS_TABLE]
+ */
+private const val PATHS_TABLE = "Paths"
+
+/**
+ * Learning objects storage in a SQLite database.
+ *
+ * Contents are content-addressed: the same contents stored under different keys are saved only once.
+ * It's essential for framework lessons and multistage projects, where tasks share a lot of the same files.
+ */
 @Suppress("SqlNoDataSourceInspection", "SqlResolve")
 class SQLiteLearningObjectsStorage(val db: Path) : LearningObjectsStorage, Disposable {
 
-  private val connection = SqliteConnection(db)
+  private val database = SQLiteDatabase(db)
+
+  private val getContentsStatement = database.statementPool(
+    sql = "SELECT b.`value` FROM `$PATHS_TABLE` p JOIN `$BLOBS_TABLE` b ON p.`hash`=b.`hash` WHERE p.`key`=?",
+    parameterCount = 1
+  )
+
+  private val getHashStatement = database.statementPool(
+    sql = "SELECT `hash` FROM `$PATHS_TABLE` WHERE `key`=?",
+    parameterCount = 1
+  )
+
+  private val putPathStatement = database.statementPool(
+    sql = "INSERT OR REPLACE INTO `$PATHS_TABLE`(`key`, `hash`) VALUES (?, ?)",
+    parameterCount = 2
+  )
 
-  private val getAuthorContentsStatement = connection.statementPool(
-    sql = "SELECT `value` FROM $AUTHOR_CONTENTS_TABLE WHERE `key`=?"
-  ) { ObjectBinder(1) }
+  // if the same contents are already stored, only the reference counter is updated, the value itself is not rewritten
+  private val putBlobStatement = database.statementPool(
+    sql = "INSERT INTO `$BLOBS_TABLE`(`hash`, `value`, `refs`) VALUES (?, ?, 1) ON CONFLICT(`hash`) DO UPDATE SET `refs`=`refs`+1",
+    parameterCount = 2
+  )
 
-  private val putAuthorContentsStatement = connection.statementPool(
-    sql = "INSERT OR REPLACE INTO `$AUTHOR_CONTENTS_TABLE`(`key`, `value`) VALUES (?, ?)"
-  ) { ObjectBinder(2) }
+  private val releaseBlobStatement = database.statementPool(
+    sql = "UPDATE `$BLOBS_TABLE` SET `refs`=`refs`-1 WHERE `hash`=?",
+    parameterCount = 1
+  )
+
+  private val deleteUnusedBlobStatement = database.statementPool(
+    sql = "DELETE FROM `$BLOBS_TABLE` WHERE `hash`=? AND `refs`<=0",
+    parameterCount = 1
+  )
 
   override val writeTextInYaml: Boolean = false
 
-  override fun load(key: String): ByteArray = getAuthorContentsStatement.use { statement, binder ->
+  override fun load(key: String): ByteArray = getContentsStatement.use { statement, binder ->
     binder.bind(key)
     val resultSet = statement.executeQuery()
     resultSet.next()
@@ -33,22 +75,132 @@ class SQLiteLearningObjectsStorage(val db: Path) : LearningObjectsStorage, Dispo
   }
 
   //TODO we need to encrypt stored data: EDU-6744 Encrypt data in the learning objects storage
-  override fun store(key: String, value: ByteArray) = putAuthorContentsStatement.use { statement, binder ->
-    binder.bind(key, value)
-    statement.executeUpdate()
+  override fun store(key: String, value: ByteArray) = database.inTransaction {
+    storeValue(key, value)
+  }
+
+  /**
+   * Stores all the [values] in a single transaction, so there is only one commit instead of a commit per value
+   */
+  override fun storeAll(values: Map<String, ByteArray>) {
+    if (values.isEmpty()) return
+
+    database.inTransaction {
+      for ((key, value) in values) {
+        storeValue(key, value)
+      }
+    }
   }
 
-  private fun createDB() = connection.execute("""
-    CREATE TABLE IF NOT EXISTS `$AUTHOR_CONTENTS_TABLE` (
-      `key` TEXT PRIMARY KEY,
-      `value` BLOB
-    )
-  """)
+  private fun storeValue(key: String, value: ByteArray) {
+    val hash = hash(value)
+    val oldHash = getHash(key)
+    if (oldHash != null && oldHash.contentEquals(hash)) return
+
+    putBlobStatement.use { statement, binder ->
+      binder.bind(hash, value)
+      statement.executeUpdate()
+    }
+    putPathStatement.use { statement, binder ->
+      binder.bind(key, hash)
+      statement.executeUpdate()
+    }
+    if (oldHash != null) {
+      releaseBlob(oldHash)
+    }
+  }
 
-  override fun dispose() = connection.interruptAndClose()
+  private fun getHash(key: String): ByteArray? = getHashStatement.use { statement, binder ->
+    binder.bind(key)
+    val resultSet = statement.executeQuery()
+    if (resultSet.next()) resultSet.getBytes(0) else null
+  }
+
+  private fun releaseBlob(hash: ByteArray) {
+    releaseBlobStatement.use { statement, binder ->
+      binder.bind(hash)
+      statement.executeUpdate()
+    }
+    deleteUnusedBlobStatement.use { statement, binder ->
+      binder.bind(hash)
+      statement.executeUpdate()
+    }
+  }
+
+  private fun createDB() {
+    database.execute("""
+      CREATE TABLE IF NOT EXISTS `$BLOBS_TABLE` (
+        `hash` BLOB PRIMARY KEY,
+        `value` BLOB,
+        `refs` INTEGER NOT NULL
+      )
+    """)
+    database.execute("""
+      CREATE TABLE IF NOT EXISTS `$PATHS_TABLE` (
+        `key` TEXT PRIMARY KEY,
+        `hash` BLOB NOT NULL
+      )
+    """)
+    migrateAuthorContentsTable()
+  }
+
+  /**
+   * Moves contents from the [AUTHOR_CONTENTS_TABLE] of databases created before contents deduplication.
+   * The old table is dropped only if every its row is found in the new tables with the same contents
+   */
+  private fun migrateAuthorContentsTable() {
+    val hasAuthorContentsTable = database.statementPool(
+      sql = "SELECT COUNT(*) FROM `sqlite_master` WHERE `type`='table' AND `name`=?",
+      parameterCount = 1
+    ).use { statement, binder ->
+      binder.bind(AUTHOR_CONTENTS_TABLE)
+      val resultSet = statement.executeQuery()
+      resultSet.next() && resultSet.getInt(0) > 0
+    }
+    if (!hasAuthorContentsTable) return
+
+    database.inTransaction {
+      database.statementPool(
+        sql = "SELECT `key`, `value` FROM `$AUTHOR_CONTENTS_TABLE`",
+        parameterCount = 0
+      ).use { statement, _ ->
+        val resultSet = statement.executeQuery()
+        while (resultSet.next()) {
+          val key = resultSet.getString(0) ?: continue
+          storeValue(key, resultSet.getBytes(1) ?: byteArrayOf())
+        }
+      }
+
+      val notMigratedRows = countNotMigratedAuthorContents()
+      if (notMigratedRows != 0) {
+        // copied contents are kept, the migration is repeated on the next opening
+        LOG.error("Failed to migrate $notMigratedRows rows of `$AUTHOR_CONTENTS_TABLE` table, the table is not dropped")
+        return@inTransaction
+      }
+      database.execute("DROP TABLE `$AUTHOR_CONTENTS_TABLE`")
+    }
+  }
+
+  private fun countNotMigratedAuthorContents(): Int = database.statementPool(
+    sql = """
+      SELECT COUNT(*) FROM `$AUTHOR_CONTENTS_TABLE` c
+      LEFT JOIN `$PATHS_TABLE` p ON c.`key`=p.`key`
+      LEFT JOIN `$BLOBS_TABLE` b ON p.`hash`=b.`hash`
+      WHERE c.`key` IS NOT NULL AND (b.`hash` IS NULL OR b.`value` IS NOT COALESCE(c.`value`, x''))
+    """,
+    parameterCount = 0
+  ).use { statement, _ ->
+    val resultSet = statement.executeQuery()
+    if (resultSet.next()) resultSet.getInt(0) else -1
+  }
+
+  override fun dispose() = database.close()
 
   companion object {
-    private fun openOrCreateDB(db: Path): LearningObjectsStorage {
+    private val LOG = logger<SQLiteLearningObjectsStorage>()
+
+    @VisibleForTesting
+    internal fun openOrCreateDB(db: Path): SQLiteLearningObjectsStorage {
       val storage = SQLiteLearningObjectsStorage(db)
       storage.createDB()
       return storage
@@ -56,6 +208,8 @@ class SQLiteLearningObjectsStorage(val db: Path) : LearningObjectsStorage, Dispo
 
     private const val COURSE_AUTHOR_CONTENTS_FILE = ".author_contents_storage_db"
 
+    private fun hash(value: ByteArray): ByteArray = MessageDigest.getInstance("SHA-256").digest(value)
+
     fun openOrCreateDB(project: Project): LearningObjectsStorage {
       val ideaPath = project.stateStore.directoryStorePath
       val sqlFilePath =  ideaPath?.resolve(COURSE_AUTHOR_CONTENTS_FILE)
@@ -66,4 +220,4 @@ class SQLiteLearningObjectsStorage(val db: Path) : LearningObjectsStorage, Dispo
       return openOrCreateDB(sqlFilePath)
     }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,144 @@
+package com.jetbrains.edu.learning.submissions
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.runReadAction
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.components.service
+import com.intellij.openapi.diagnostic.logger
+import com.intellij.openapi.fileEditor.FileEditorManager
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.registry.Registry
+import com.intellij.util.concurrency.AppExecutorUtil
+import com.jetbrains.edu.learning.getContainingTask
+import com.jetbrains.edu.learning.marketplace.api.MarketplaceSubmission
+import org.jetbrains.annotations.NonNls
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Loads solution files of Marketplace submissions ahead of time, so applying solutions of many tasks
+ * doesn't wait for the downloads one by one.
+ *
+ * At most [prefetchParallelism] solutions are downloaded at the same time, tasks opened in the editor go first.
+ * Concurrent requests for the same solution key share a single download.
+ * A task selected in the editor doesn't wait in the queue: its solution is loaded right in the requesting thread.
+ */
+@Service(Service.Level.PROJECT)
+class SolutionFilesPrefetcher(private val project: Project) : Disposable {
+
+  private val executor = AppExecutorUtil.createBoundedApplicationPoolExecutor("Solution Files Prefetch", prefetchParallelism())
+
+  /**
+   * Loads which are queued or running, by solution key
+   */
+  private val loads = ConcurrentHashMap<String, SolutionFilesLoad>()
+
+  /**
+   * Queues loading of solution files of [submissions] which aren't loaded yet
+   */
+  fun prefetch(submissions: Collection<MarketplaceSubmission>) {
+    val openTaskIds = getOpenTaskIds()
+    val orderedSubmissions = submissions.sortedBy { submission ->
+      val index = openTaskIds.indexOf(submission.taskId)
+      if (index >= 0) index else openTaskIds.size
+    }
+
+    for (submission in orderedSubmissions) {
+      if (!needsLoading(submission)) continue
+      var isNew = false
+      val load = loads.computeIfAbsent(submission.solutionKey) {
+        isNew = true
+        SolutionFilesLoad(submission)
+      }
+      if (isNew) {
+        executor.execute { load.runIfNotStarted() }
+      }
+    }
+  }
+
+  /**
+   * Sets solution files of [submission], either from the queued or running load of the same solution key or by loading them now
+   */
+  fun loadSolutionFiles(submission: MarketplaceSubmission) {
+    if (!needsLoading(submission)) return
+    var isNew = false
+    val load = loads.computeIfAbsent(submission.solutionKey) {
+      isNew = true
+      SolutionFilesLoad(submission)
+    }
+    if (isNew || submission.taskId == getSelectedTaskId()) {
+      load.runIfNotStarted()
+    }
+    val solutionFiles = ProgressIndicatorUtils.awaitWithCheckCanceled(load.future)
+    if (submission.solutionFiles == null) {
+      submission.solutionFiles = solutionFiles
+    }
+  }
+
+  private fun needsLoading(submission: MarketplaceSubmission): Boolean {
+    return submission.solutionFiles == null && submission.solutionKey.isNotBlank()
+  }
+
+  /**
+   * @return ids of tasks opened in the editor, the selected ones first
+   */
+  private fun getOpenTaskIds(): List<Int> {
+    val fileEditorManager = FileEditorManager.getInstance(project)
+    val files = (fileEditorManager.selectedFiles + fileEditorManager.openFiles).distinct()
+    return runReadAction {
+      files.mapNotNull { it.getContainingTask(project)?.id }.distinct()
+    }
+  }
+
+  private fun getSelectedTaskId(): Int? {
+    val selectedFile = FileEditorManager.getInstance(project).selectedFiles.firstOrNull() ?: return null
+    return runReadAction { selectedFile.getContainingTask(project)?.id }
+  }
+
+  override fun dispose() {
+    executor.shutdownNow()
+    for (load in loads.values) {
+      load.future.cancel(false)
+    }
+    loads.clear()
+  }
+
+  private inner class SolutionFilesLoad(private val submission: MarketplaceSubmission) {
+    private val isStarted = AtomicBoolean()
+    val future = CompletableFuture<List<SolutionFile>?>()
+
+    fun runIfNotStarted() {
+      if (!isStarted.compareAndSet(false, true)) return
+      if (project.isDisposed) {
+        // callers waiting for the load are cancelled instead of waiting forever
+        future.cancel(false)
+        loads.remove(submission.solutionKey, this)
+        return
+      }
+      try {
+        SubmissionsManager.getInstance(project).loadStoredOrRemoteSolutionFiles(submission)
+        future.complete(submission.solutionFiles)
+      }
+      catch (e: Throwable) {
+        LOG.debug("Failed to load solution files for solution key ${submission.solutionKey}", e)
+        future.completeExceptionally(e)
+      }
+      finally {
+        loads.remove(submission.solutionKey, this)
+      }
+    }
+  }
+
+  companion object {
+    private val LOG = logger<SolutionFilesPrefetcher>()
+
+    @NonNls
+    const val PARALLELISM_REGISTRY_KEY = "edu.marketplace.solutions.prefetch.parallelism"
+
+    fun prefetchParallelism(): Int = Registry.intValue(PARALLELISM_REGISTRY_KEY, 4).coerceAtLeast(1)
+
+    fun getInstance(project: Project): SolutionFilesPrefetcher = project.service()
+  }
+}
@@ -76,9 +76,7 @@ class SubmissionsManager(private val project: Project) : LightTestAware {
                      ?: return null
 
     if (submission is MarketplaceSubmission && submission.solutionFiles == null) {
-      val course = this.course ?: return null
-      val submissionsProvider = course.getSubmissionsProvider() ?: return null
-      submissionsProvider.loadSolutionFiles(submission)
+      loadSolutionFiles(submission)
     }
     return submission
   }
@@ -212,6 +210,7 @@ class SubmissionsManager(private val project: Project) : LightTestAware {
 
   fun deleteCourseSubmissionsLocally() {
     course?.allTasks?.forEach { submissions.remove(it.id) }
+    SubmissionsStorage.getInstance(project).clear()
     notifySubmissionsChanged()
   }
 
@@ -240,11 +239,103 @@ class SubmissionsManager(private val project: Project) : LightTestAware {
 
   fun doAuthorize() = course?.getSubmissionsProvider()?.doAuthorize(Runnable { prepareSubmissionsContentWhenLoggedIn() })
 
+  /**
+   * Submissions stored in [SubmissionsStorage] are shown right away, and then only submissions made after them are loaded.
+   * From time to time all the submissions are loaded instead, so submissions deleted in the submissions service disappear,
+   * see [SubmissionsStorage.isFullRefreshNeeded]
+   */
   private fun loadSubmissionsContent(course: Course, submissionsProvider: SubmissionsProvider, loadSolutions: () -> Unit) {
-    submissions.putAll(submissionsProvider.loadAllSubmissions(course))
+    val owner = getStorageOwner(course, submissionsProvider)
+    if (owner == null) {
+      submissions.putAll(submissionsProvider.loadAllSubmissions(course))
+      loadSolutions()
+      return
+    }
+
+    val storage = SubmissionsStorage.getInstance(project)
+    val storedSubmissions = storage.loadSubmissions(owner)
+    if (storedSubmissions.isNotEmpty()) {
+      mergeSubmissions(storedSubmissions)
+      notifySubmissionsChanged()
+    }
+
+    if (storage.isFullRefreshNeeded(owner)) {
+      val allSubmissions = submissionsProvider.loadAllSubmissions(course)
+      replaceSubmissions(course, allSubmissions)
+      storage.replaceSubmissions(owner, allSubmissions.values.flatten().filterIsInstance<MarketplaceSubmission>())
+      loadSolutions()
+      return
+    }
+
+    val newSubmissions = submissionsProvider.loadSubmissionsAfter(course, storage.getWatermark(owner))
+    mergeSubmissions(newSubmissions)
+    storage.storeSubmissions(owner, newSubmissions.values.flatten().filterIsInstance<MarketplaceSubmission>())
     loadSolutions()
   }
 
+  /**
+   * Adds [newSubmissions] to already known submissions of their tasks, replacing the known ones with the same ids
+   */
+  private fun mergeSubmissions(newSubmissions: Map<Int, List<Submission>>) {
+    for ((taskId, taskSubmissions) in newSubmissions) {
+      submissions.merge(taskId, taskSubmissions) { knownSubmissions, loadedSubmissions ->
+        val loadedIds = loadedSubmissions.mapNotNullTo(HashSet()) { it.id }
+        (loadedSubmissions + knownSubmissions.filter { it.id == null || it.id !in loadedIds }).sortedByDescending { it.time }
+      }
+    }
+  }
+
+  /**
+   * Replaces known submissions of [course] tasks with [loadedSubmissions], i.e. all the submissions from the submissions service.
+   * Submissions without ids are kept since they can't be received from the service
+   */
+  private fun replaceSubmissions(course: Course, loadedSubmissions: Map<Int, List<Submission>>) {
+    for (task in course.allTasks) {
+      val localSubmissions = submissions[task.id].orEmpty().filter { it.id == null }
+      val taskSubmissions = loadedSubmissions[task.id].orEmpty() + localSubmissions
+      if (taskSubmissions.isEmpty()) {
+        submissions.remove(task.id)
+      }
+      else {
+        submissions[task.id] = taskSubmissions.sortedByDescending { it.time }
+      }
+    }
+  }
+
+  /**
+   * Loads solution files of [submission], sharing the download with the one already queued by [SolutionFilesPrefetcher], if any
+   */
+  fun loadSolutionFiles(submission: MarketplaceSubmission) {
+    SolutionFilesPrefetcher.getInstance(project).loadSolutionFiles(submission)
+  }
+
+  /**
+   * Loads solution files of [submission] from [SubmissionsStorage] or, if they aren't stored yet, with the submissions provider
+   */
+  internal fun loadStoredOrRemoteSolutionFiles(submission: MarketplaceSubmission) {
+    val submissionsProvider = course?.getSubmissionsProvider() ?: return
+    val submissionId = submission.id
+    val storage = SubmissionsStorage.getInstance(project)
+    if (submissionId != null) {
+      val storedSolutionFiles = storage.loadSolutionFiles(submissionId)
+      if (storedSolutionFiles != null) {
+        submission.solutionFiles = storedSolutionFiles
+        return
+      }
+    }
+
+    submissionsProvider.loadSolutionFiles(submission)
+    val solutionFiles = submission.solutionFiles
+    if (submissionId != null && !solutionFiles.isNullOrEmpty()) {
+      storage.storeSolutionFiles(submissionId, solutionFiles)
+    }
+  }
+
+  private fun getStorageOwner(course: Course, submissionsProvider: SubmissionsProvider): String? {
+    val userKey = submissionsProvider.getUserKey() ?: return null
+    return "${course.id}:$userKey"
+  }
+
   private fun loadCommunityContent(course: Course, submissionsProvider: SubmissionsProvider) {
     val courseSharedSolutions = submissionsProvider.loadSharedSolutionsForCourse(course)
     courseSharedSolutions.forEach { (taskId, sharedSolutions) ->
@@ -5,6 +5,7 @@ import com.intellij.util.concurrency.annotations.RequiresBackgroundThread
 import com.jetbrains.edu.learning.courseFormat.Course
 import com.jetbrains.edu.learning.courseFormat.tasks.Task
 import com.jetbrains.edu.learning.marketplace.api.MarketplaceSubmission
+import java.util.*
 
 /**
  * Base class for loading submissions, should be called only from SubmissionsManager.
@@ -17,6 +18,18 @@ interface SubmissionsProvider {
 
   fun loadSubmissions(tasks: List<Task>, courseId: Int): Map<Int, List<Submission>>
 
+  /**
+   * Loads submissions of [course] made after [watermark] to update submissions restored from [SubmissionsStorage].
+   * Some older submissions can be loaded too, by default all submissions are loaded
+   */
+  fun loadSubmissionsAfter(course: Course, watermark: Date?): Map<Int, List<Submission>> = loadAllSubmissions(course)
+
+  /**
+   * Identifies the user submissions are loaded for.
+   * Submissions are stored in [SubmissionsStorage] only if the key is not `null`
+   */
+  fun getUserKey(): String? = null
+
   fun loadSharedSolutionsForCourse(course: Course): Map<Int, List<Submission>> = mapOf()
 
   /**
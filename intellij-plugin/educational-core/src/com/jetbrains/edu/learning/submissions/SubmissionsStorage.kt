@@ -0,0 +1,280 @@
+package com.jetbrains.edu.learning.submissions
+
+import com.fasterxml.jackson.core.type.TypeReference
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.components.service
+import com.intellij.openapi.diagnostic.logger
+import com.intellij.openapi.project.Project
+import com.intellij.project.stateStore
+import com.jetbrains.edu.learning.isLight
+import com.jetbrains.edu.learning.isUnitTestMode
+import com.jetbrains.edu.learning.marketplace.api.MarketplaceSubmission
+import com.jetbrains.edu.learning.marketplace.api.MarketplaceSubmissionsConnector
+import com.jetbrains.edu.learning.storage.SQLiteDatabase
+import org.jetbrains.annotations.TestOnly
+import java.nio.file.Path
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * Submissions received from the submissions service, stored as JSON
+ */
+private const val SUBMISSIONS_TABLE = "Submissions"
+
+/**
+ * Solution files are stored only after they are loaded for the first time
+ */
+private const val SOLUTION_FILES_TABLE = "SolutionFiles"
+
+private const val METADATA_TABLE = "Metadata"
+
+/**
+ * Identifies the course and the user the stored submissions belong to
+ */
+private const val OWNER_KEY = "owner"
+
+/**
+ * Time of the latest submission loaded from the submissions service
+ */
+private const val WATERMARK_KEY = "watermark"
+
+/**
+ * Time when all the submissions were loaded from the submissions service for the last time, see [SubmissionsStorage.replaceSubmissions]
+ */
+private const val FULL_REFRESH_KEY = "full_refresh"
+
+/**
+ * Persistent project level storage of Marketplace submissions in a SQLite database,
+ * so submissions are available right after the project is opened, and only newer ones are loaded from the submissions service.
+ *
+ * Only submissions received from the submissions service are stored, so the watermark never gets ahead of them.
+ * Loading of newer submissions doesn't notice submissions deleted in the service,
+ * so all the submissions are loaded again and replace the stored ones once in [FULL_REFRESH_INTERVAL_MS].
+ * If the course or the user changes, all the stored data is dropped.
+ */
+@Suppress("SqlNoDataSourceInspection", "SqlResolve")
+@Service(Service.Level.PROJECT)
+class SubmissionsStorage @TestOnly internal constructor(private val project: Project, private val customDbPath: Path?) : Disposable {
+
+  @Suppress("unused") // used by the service container
+  constructor(project: Project) : this(project, null)
+
+  private val databaseLazy = lazy { openOrCreateDB() }
+  private val database: SQLiteDatabase? by databaseLazy
+
+  private val objectMapper get() = MarketplaceSubmissionsConnector.getInstance().objectMapper
+
+  /**
+   * @return stored submissions grouped by task id, or an empty map if they were stored for another [owner]
+   */
+  fun loadSubmissions(owner: String): Map<Int, List<Submission>> {
+    val database = database ?: return emptyMap()
+    if (!checkOwner(owner)) return emptyMap()
+
+    val submissions = mutableListOf<MarketplaceSubmission>()
+    database.statementPool(sql = "SELECT `json` FROM `$SUBMISSIONS_TABLE`", parameterCount = 0).use { statement, _ ->
+      val resultSet = statement.executeQuery()
+      while (resultSet.next()) {
+        val json = resultSet.getString(0) ?: continue
+        submissions += readSubmission(json) ?: continue
+      }
+    }
+    return submissions.sortedByDescending { it.time }.groupBy { it.taskId }
+  }
+
+  fun getWatermark(owner: String): Date? {
+    if (database == null || !checkOwner(owner)) return null
+    return getMetadata(WATERMARK_KEY)?.toLongOrNull()?.let { Date(it) }
+  }
+
+  /**
+   * @return `true` if stored submissions of [owner] should be replaced with all the submissions from the submissions service,
+   * i.e. they were never loaded completely or were loaded more than [FULL_REFRESH_INTERVAL_MS] ago
+   */
+  fun isFullRefreshNeeded(owner: String, now: Long = System.currentTimeMillis()): Boolean {
+    if (database == null || !checkOwner(owner)) return true
+    val lastFullRefresh = getMetadata(FULL_REFRESH_KEY)?.toLongOrNull() ?: return true
+    return now - lastFullRefresh !in 0 until FULL_REFRESH_INTERVAL_MS
+  }
+
+  /**
+   * Replaces all the stored submissions with [submissions], i.e. all the submissions of [owner] loaded from the submissions service.
+   * Solution files of submissions which aren't in [submissions] anymore are removed as well
+   */
+  fun replaceSubmissions(owner: String, submissions: Collection<MarketplaceSubmission>, now: Long = System.currentTimeMillis()) {
+    val database = database ?: return
+    database.inTransaction {
+      if (!checkOwner(owner)) {
+        clearTables(database)
+        putMetadata(OWNER_KEY, owner)
+      }
+      database.execute("DELETE FROM `$SUBMISSIONS_TABLE`")
+      database.execute("DELETE FROM `$METADATA_TABLE` WHERE `key`='$WATERMARK_KEY'")
+      insertSubmissions(database, submissions)
+      database.execute("DELETE FROM `$SOLUTION_FILES_TABLE` WHERE `submission_id` NOT IN (SELECT `id` FROM `$SUBMISSIONS_TABLE`)")
+      putMetadata(FULL_REFRESH_KEY, now.toString())
+    }
+  }
+
+  /**
+   * Stores [submissions] loaded from the submissions service and moves the watermark to the latest of them
+   */
+  fun storeSubmissions(owner: String, submissions: Collection<MarketplaceSubmission>) {
+    val database = database ?: return
+    database.inTransaction {
+      if (!checkOwner(owner)) {
+        clearTables(database)
+        putMetadata(OWNER_KEY, owner)
+      }
+      insertSubmissions(database, submissions)
+    }
+  }
+
+  private fun insertSubmissions(database: SQLiteDatabase, submissions: Collection<MarketplaceSubmission>) {
+    database.statementPool(
+      sql = "INSERT OR REPLACE INTO `$SUBMISSIONS_TABLE`(`id`, `json`) VALUES (?, ?)",
+      parameterCount = 2
+    ).use { statement, binder ->
+      for (submission in submissions) {
+        val id = submission.id ?: continue
+        binder.bind(id, objectMapper.writeValueAsString(submission))
+        statement.executeUpdate()
+      }
+    }
+
+    val latestTime = submissions.mapNotNull { it.time?.time }.maxOrNull() ?: return
+    val watermark = getMetadata(WATERMARK_KEY)?.toLongOrNull()
+    if (watermark == null || watermark < latestTime) {
+      putMetadata(WATERMARK_KEY, latestTime.toString())
+    }
+  }
+
+  fun loadSolutionFiles(submissionId: Int): List<SolutionFile>? {
+    val database = database ?: return null
+    val json = database.statementPool(
+      sql = "SELECT `json` FROM `$SOLUTION_FILES_TABLE` WHERE `submission_id`=?",
+      parameterCount = 1
+    ).use { statement, binder ->
+      binder.bind(submissionId)
+      val resultSet = statement.executeQuery()
+      if (resultSet.next()) resultSet.getString(0) else null
+    } ?: return null
+
+    return try {
+      objectMapper.readValue(json, object : TypeReference<List<SolutionFile>>() {})
+    }
+    catch (e: Exception) {
+      LOG.warn("Failed to read stored solution files of submission $submissionId", e)
+      null
+    }
+  }
+
+  fun storeSolutionFiles(submissionId: Int, solutionFiles: List<SolutionFile>) {
+    val database = database ?: return
+    database.inTransaction {
+      database.statementPool(
+        sql = "INSERT OR REPLACE INTO `$SOLUTION_FILES_TABLE`(`submission_id`, `json`) VALUES (?, ?)",
+        parameterCount = 2
+      ).use { statement, binder ->
+        binder.bind(submissionId, objectMapper.writeValueAsString(solutionFiles))
+        statement.executeUpdate()
+      }
+    }
+  }
+
+  fun clear() {
+    val database = database ?: return
+    database.inTransaction {
+      clearTables(database)
+    }
+  }
+
+  private fun checkOwner(owner: String): Boolean = getMetadata(OWNER_KEY) == owner
+
+  private fun readSubmission(json: String): MarketplaceSubmission? {
+    return try {
+      objectMapper.readValue(json, MarketplaceSubmission::class.java)
+    }
+    catch (e: Exception) {
+      LOG.warn("Failed to read stored submission", e)
+      null
+    }
+  }
+
+  private fun getMetadata(key: String): String? {
+    val database = database ?: return null
+    return database.statementPool(
+      sql = "SELECT `value` FROM `$METADATA_TABLE` WHERE `key`=?",
+      parameterCount = 1
+    ).use { statement, binder ->
+      binder.bind(key)
+      val resultSet = statement.executeQuery()
+      if (resultSet.next()) resultSet.getString(0) else null
+    }
+  }
+
+  private fun putMetadata(key: String, value: String) {
+    val database = database ?: return
+    database.statementPool(
+      sql = "INSERT OR REPLACE INTO `$METADATA_TABLE`(`key`, `value`) VALUES (?, ?)",
+      parameterCount = 2
+    ).use { statement, binder ->
+      binder.bind(key, value)
+      statement.executeUpdate()
+    }
+  }
+
+  private fun clearTables(database: SQLiteDatabase) {
+    database.execute("DELETE FROM `$SUBMISSIONS_TABLE`")
+    database.execute("DELETE FROM `$SOLUTION_FILES_TABLE`")
+    database.execute("DELETE FROM `$METADATA_TABLE`")
+  }
+
+  private fun openOrCreateDB(): SQLiteDatabase? {
+    @Suppress("TestOnlyProblems")
+    if (customDbPath == null && (isUnitTestMode && project.isLight || project.isDefault)) return null
+    val dbPath = customDbPath ?: project.stateStore.directoryStorePath?.resolve(SUBMISSIONS_FILE)
+    if (dbPath == null) {
+      LOG.warn("Failed to get path for a SQLite file for the submissions storage. Submissions are not stored")
+      return null
+    }
+
+    val database = SQLiteDatabase(dbPath)
+    database.execute("""
+      CREATE TABLE IF NOT EXISTS `$SUBMISSIONS_TABLE` (
+        `id` INTEGER PRIMARY KEY,
+        `json` TEXT NOT NULL
+      )
+    """)
+    database.execute("""
+      CREATE TABLE IF NOT EXISTS `$SOLUTION_FILES_TABLE` (
+        `submission_id` INTEGER PRIMARY KEY,
+        `json` TEXT NOT NULL
+      )
+    """)
+    database.execute("""
+      CREATE TABLE IF NOT EXISTS `$METADATA_TABLE` (
+        `key` TEXT PRIMARY KEY,
+        `value` TEXT
+      )
+    """)
+    return database
+  }
+
+  override fun dispose() {
+    if (databaseLazy.isInitialized()) {
+      database?.close()
+    }
+  }
+
+  companion object {
+    private val LOG = logger<SubmissionsStorage>()
+
+    private const val SUBMISSIONS_FILE = ".submissions_db"
+
+    private val FULL_REFRESH_INTERVAL_MS: Long = TimeUnit.DAYS.toMillis(1)
+
+    fun getInstance(project: Project): SubmissionsStorage = project.service()
+  }
+}
@@ -0,0 +1,135 @@
+package com.jetbrains.edu.learning.taskToolWindow.ui
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.ModalityState
+import com.intellij.openapi.application.ReadAction
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.components.service
+import com.intellij.openapi.editor.colors.EditorColorsManager
+import com.intellij.openapi.project.Project
+import com.intellij.ui.JBColor
+import com.intellij.util.concurrency.AppExecutorUtil
+import com.intellij.util.concurrency.annotations.RequiresEdt
+import com.jetbrains.edu.learning.JavaUILibrary
+import com.jetbrains.edu.learning.courseFormat.ext.getTaskTextFromTask
+import com.jetbrains.edu.learning.courseFormat.tasks.Task
+import com.jetbrains.edu.learning.isUnitTestMode
+import com.jetbrains.edu.learning.navigation.NavigationUtils
+import com.jetbrains.edu.learning.taskToolWindow.htmlTransformers.HtmlTransformerContext
+import com.jetbrains.edu.learning.taskToolWindow.htmlTransformers.TaskDescriptionTransformer
+import com.jetbrains.edu.learning.taskToolWindow.ui.styleManagers.StyleResourcesManager
+import com.jetbrains.edu.learning.taskToolWindow.ui.styleManagers.TypographyManager
+
+/**
+ * Keeps rendered task descriptions, so switching between tasks doesn't run [TaskDescriptionTransformer] every time.
+ *
+ * A rendered description is reused while both the task text and [RenderingEnvironment] (UI library, theme and fonts) stay the same.
+ * The text is the final one returned by [getTaskTextFromTask], so edits of the description and keymap changes are noticed.
+ * After a task is rendered, the previous and the next tasks are prepared in advance, so navigation to them is instant.
+ * Only their texts are loaded in background: [TaskDescriptionTransformer] and [TypographyManager] are used in EDT only,
+ * so the texts are transformed in EDT once loaded.
+ *
+ * Descriptions are cached only in study mode since course authors may change resources referenced from the description.
+ */
+@Service(Service.Level.PROJECT)
+class TaskDescriptionRenderCache(private val project: Project) : Disposable {
+
+  /**
+   * Rendered descriptions by task, the least recently used ones are removed first. Guarded by itself
+   */
+  private val descriptions = object : LinkedHashMap<Task, RenderedDescription>(MAX_SIZE, 0.75f, true) {
+    override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Task, RenderedDescription>): Boolean = size > MAX_SIZE
+  }
+
+  /**
+   * @return rendered description of [task], or `null` if the task has no description
+   */
+  @RequiresEdt
+  fun getTaskDescription(task: Task, uiMode: JavaUILibrary): String? {
+    val html = render(task, uiMode) ?: return null
+    prerenderNeighbours(task, uiMode)
+    return html
+  }
+
+  private fun render(task: Task, uiMode: JavaUILibrary): String? {
+    val taskText = task.getTaskTextFromTask(project) ?: return null
+    return render(task, taskText, uiMode)
+  }
+
+  private fun render(task: Task, taskText: String, uiMode: JavaUILibrary): String {
+    if (!task.course.isStudy) {
+      return TaskDescriptionTransformer.transform(taskText, HtmlTransformerContext(project, task, uiMode))
+    }
+
+    val environment = RenderingEnvironment.current(uiMode)
+    val cached = synchronized(descriptions) { descriptions[task] }
+    if (cached != null && cached.taskText == taskText && cached.environment == environment) {
+      return cached.html
+    }
+
+    val html = TaskDescriptionTransformer.transform(taskText, HtmlTransformerContext(project, task, uiMode))
+    synchronized(descriptions) { descriptions[task] = RenderedDescription(taskText, environment, html) }
+    return html
+  }
+
+  private fun prerenderNeighbours(task: Task, uiMode: JavaUILibrary) {
+    if (isUnitTestMode || !task.course.isStudy) return
+    val neighbours = listOfNotNull(NavigationUtils.previousTask(task), NavigationUtils.nextTask(task))
+    for (neighbour in neighbours) {
+      ReadAction.nonBlocking<String?> { if (project.isDisposed) null else neighbour.getTaskTextFromTask(project) }
+        .expireWith(this)
+        .finishOnUiThread(ModalityState.defaultModalityState()) { taskText ->
+          if (taskText != null) {
+            render(neighbour, taskText, uiMode)
+          }
+        }
+        .submit(AppExecutorUtil.getAppExecutorService())
+    }
+  }
+
+  override fun dispose() {
+    synchronized(descriptions) { descriptions.clear() }
+  }
+
+  private class RenderedDescription(val taskText: String, val environment: RenderingEnvironment, val html: String)
+
+  /**
+   * Settings which the rendered html depends on apart from the task text
+   */
+  private data class RenderingEnvironment(
+    val uiMode: JavaUILibrary,
+    val isBright: Boolean,
+    val isHighContrast: Boolean,
+    val background: Int,
+    val foreground: Int,
+    val editorColorScheme: String,
+    val bodyFont: String,
+    val bodyFontSize: Int,
+    val codeFont: String,
+    val codeFontSize: Int
+  ) {
+    companion object {
+      fun current(uiMode: JavaUILibrary): RenderingEnvironment {
+        val typographyManager = TypographyManager()
+        return RenderingEnvironment(
+          uiMode,
+          JBColor.isBright(),
+          StyleResourcesManager.isHighContrast(),
+          JBColor.background().rgb,
+          JBColor.foreground().rgb,
+          EditorColorsManager.getInstance().globalScheme.name,
+          typographyManager.bodyFont,
+          typographyManager.bodyFontSize,
+          typographyManager.codeFont,
+          typographyManager.codeFontSize
+        )
+      }
+    }
+  }
+
+  companion object {
+    private const val MAX_SIZE = 16
+
+    fun getInstance(project: Project): TaskDescriptionRenderCache = project.service()
+  }
+}
@@ -21,11 +21,8 @@ import com.intellij.openapi.util.registry.Registry
 import com.intellij.util.ui.update.MergingUpdateQueue
 import com.intellij.util.ui.update.Update
 import com.jetbrains.edu.learning.JavaUILibrary
-import com.jetbrains.edu.learning.courseFormat.ext.getTaskTextFromTask
 import com.jetbrains.edu.learning.courseFormat.tasks.Task
 import com.jetbrains.edu.learning.messages.EduCoreBundle
-import com.jetbrains.edu.learning.taskToolWindow.htmlTransformers.HtmlTransformerContext
-import com.jetbrains.edu.learning.taskToolWindow.htmlTransformers.TaskDescriptionTransformer
 import javax.swing.JComponent
 
 
@@ -61,9 +58,8 @@ abstract class TaskToolWindow(protected val project: Project) : Disposable {
     const val TASK_DESCRIPTION_UPDATE_DELAY_REGISTRY_KEY: String = "edu.task.description.update.delay"
 
     fun getTaskDescription(project: Project, task: Task?, uiMode: JavaUILibrary): String {
-      val taskText = task?.getTaskTextFromTask(project) ?: return EduCoreBundle.message("label.open.task")
-      val transformerContext = HtmlTransformerContext(project, task, uiMode)
-      return TaskDescriptionTransformer.transform(taskText, transformerContext)
+      val description = task?.let { TaskDescriptionRenderCache.getInstance(project).getTaskDescription(it, uiMode) }
+      return description ?: EduCoreBundle.message("label.open.task")
     }
   }
 }
@@ -78,9 +78,9 @@ object UpdateUtils {
 
     val flm = FrameworkLessonManager.getInstance(project)
 
+    val oldInitialState = task.taskFiles.mapValues { (_, taskFile) -> taskFile.text }
     if (lesson.currentTaskIndex != task.index - 1) {
       updateTaskFiles(task, remoteTask.nonPropagatableFiles, false)
-      flm.updateUserChanges(task, task.taskFiles.mapValues { (_, taskFile) -> taskFile.text })
     }
     else {
       if (updatePropagatableFiles && !task.hasChangedFiles(project)) {
@@ -90,6 +90,8 @@ object UpdateUtils {
         updateTaskFiles(task, remoteTask.nonPropagatableFiles, true)
       }
     }
+    // saved changes of the current task are encoded against its initial state too, so they are updated as well
+    flm.updateUserChanges(task, oldInitialState, task.taskFiles.mapValues { (_, taskFile) -> taskFile.text })
   }
 
   private val Task.nonPropagatableFiles: Map<String, TaskFile>
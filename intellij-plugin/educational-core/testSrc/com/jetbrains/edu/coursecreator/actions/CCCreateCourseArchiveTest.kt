@@ -5,16 +5,20 @@ import com.intellij.externalDependencies.ExternalDependenciesManager
 import com.intellij.externalDependencies.ProjectExternalDependency
 import com.intellij.openapi.fileEditor.ex.FileEditorManagerEx
 import com.intellij.openapi.fileTypes.PlainTextLanguage
+import com.intellij.openapi.util.Disposer
 import com.jetbrains.edu.coursecreator.actions.CCCreateCourseArchiveTest.PlainTextCompatibilityProvider.Companion.PLAIN_TEXT_PLUGIN_ID
 import com.jetbrains.edu.coursecreator.yaml.createConfigFiles
 import com.jetbrains.edu.learning.EduNames
+import com.jetbrains.edu.learning.EduUtilsKt
 import com.jetbrains.edu.learning.compatibility.CourseCompatibilityProvider
 import com.jetbrains.edu.learning.compatibility.CourseCompatibilityProviderEP
 import com.jetbrains.edu.learning.configurators.FakeGradleBasedLanguage
 import com.jetbrains.edu.learning.courseFormat.*
+import com.jetbrains.edu.learning.courseFormat.ext.allTasks
 import com.jetbrains.edu.learning.courseFormat.tasks.choice.ChoiceOptionStatus
 import com.jetbrains.edu.learning.exceptions.BrokenPlaceholderException
 import com.jetbrains.edu.learning.findTask
+import com.jetbrains.edu.learning.json.encrypt.TEST_AES_KEY
 import com.jetbrains.edu.learning.setUpPluginDependencies
 import com.jetbrains.edu.learning.stepik.StepikUserInfo
 import com.jetbrains.edu.learning.yaml.YamlConfigSettings.configFileName
@@ -910,6 +914,110 @@ class CCCreateCourseArchiveTest : CourseArchiveTestBase() {
     }
   }
 
+  @Test
+  fun `test course skeleton loads file contents from archive on demand`() {
+    courseWithFiles(courseMode = CourseMode.EDUCATOR) {
+      section {
+        lesson {
+          eduTask {
+            taskFile("task.txt", "task text")
+            taskFile("image.png", InMemoryBinaryContents(byteArrayOf(1, 2, 3)))
+          }
+        }
+      }
+      additionalFile("additional.txt", "additional text")
+    }
+
+    val courseArchiveFile = kotlin.io.path.createTempFile("course.zip")
+    try {
+      getArchiveCreator(courseArchiveFile.toString()).createArchive()
+
+      val course = EduUtilsKt.getLocalCourseSkeleton(courseArchiveFile.toString()) ?: error("Failed to read course skeleton")
+      val task = course.sections.single().lessons.single().taskList.single()
+      assertEquals("task text", task.taskFiles.getValue("task.txt").contents.textualRepresentation)
+      assertEquals(listOf<Byte>(1, 2, 3), (task.taskFiles.getValue("image.png").contents as BinaryContents).bytes.toList())
+      assertEquals("additional text", course.additionalFiles.single { it.name == "additional.txt" }.contents.textualRepresentation)
+    }
+    finally {
+      Files.delete(courseArchiveFile)
+    }
+  }
+
+  @Test
+  fun `test course skeleton finds contents of files with the same names in different tasks`() {
+    courseWithFiles(courseMode = CourseMode.EDUCATOR) {
+      section {
+        lesson {
+          eduTask("task1") {
+            taskFile("src/Main.kt", "fun main() = 11")
+          }
+          eduTask("task2") {
+            taskFile("src/Main.kt", "fun main() = 12")
+          }
+        }
+      }
+      frameworkLesson {
+        eduTask("task1") {
+          taskFile("src/Main.kt", "fun main() = 21")
+          taskFile("src/~tilde.kt", "fun tilde() = 21")
+        }
+        eduTask("task2") {
+          taskFile("src/Main.kt", "fun main() = 22")
+          taskFile("src/~tilde.kt", "fun tilde() = 22")
+        }
+      }
+    }
+
+    val courseArchiveFile = kotlin.io.path.createTempFile("course.zip")
+    try {
+      getArchiveCreator(courseArchiveFile.toString()).createArchive()
+
+      val skeleton = EduUtilsKt.getLocalCourseSkeleton(courseArchiveFile.toString()) ?: error("Failed to read course skeleton")
+      val course = EduUtilsKt.getLocalCourse(courseArchiveFile.toString()) ?: error("Failed to read course")
+      val skeletonFiles = skeleton.allTasks.flatMap { task -> task.taskFiles.values.map { task.getPathInCourse() + "/" + it.name to it } }
+      val courseFiles = course.allTasks.flatMap { task -> task.taskFiles.values.map { task.getPathInCourse() + "/" + it.name to it } }
+      assertEquals(courseFiles.map { it.first }, skeletonFiles.map { it.first })
+      for ((skeletonFile, courseFile) in skeletonFiles.zip(courseFiles)) {
+        assertEquals(skeletonFile.first, courseFile.second.contents.textualRepresentation, skeletonFile.second.contents.textualRepresentation)
+      }
+    }
+    finally {
+      Files.delete(courseArchiveFile)
+    }
+  }
+
+  @Test
+  fun `test files prepared in parallel are serialized as usual`() {
+    val course = courseWithFiles(courseMode = CourseMode.EDUCATOR) {
+      lesson {
+        for (i in 1..5) {
+          eduTask("task$i") {
+            taskFile("task$i.txt", "text of task $i")
+            taskFile("image$i.png", InMemoryBinaryContents(byteArrayOf(i.toByte(), 2, 3)))
+            taskFile("empty$i.txt", "")
+          }
+        }
+      }
+      additionalFile("additional.txt", "additional text")
+    }
+    val creator = getArchiveCreator()
+    creator.prepareCourse(course)
+    val expectedJson = creator.getMapper(course).writeValueAsString(course)
+
+    val files = mutableListOf<EduFile>()
+    course.visitTasks { files += it.taskFiles.values }
+    files += course.additionalFiles
+    val pipeline = CourseArchiveFilesPipeline(TEST_AES_KEY, parallelism = 2, window = 1)
+    try {
+      pipeline.install(files)
+      assertEquals(expectedJson, creator.getMapper(course, pipeline).writeValueAsString(course))
+    }
+    finally {
+      pipeline.uninstall()
+      Disposer.dispose(pipeline)
+    }
+  }
+
   override fun getTestDataPath(): String {
     return super.getTestDataPath() + "/actions/createCourseArchive"
   }
@@ -0,0 +1,135 @@
+package com.jetbrains.edu.coursecreator.actions.checkAllTasks
+
+import com.intellij.openapi.progress.ProgressIndicator
+import com.intellij.openapi.progress.util.ProgressIndicatorBase
+import com.jetbrains.edu.learning.EduTestCase
+import com.jetbrains.edu.learning.course
+import com.jetbrains.edu.learning.courseFormat.Course
+import com.jetbrains.edu.learning.courseFormat.CourseMode
+import com.jetbrains.edu.learning.courseFormat.tasks.Task
+import org.junit.Test
+import java.util.*
+import java.util.concurrent.atomic.AtomicInteger
+
+class TasksCheckSchedulerTest : EduTestCase() {
+
+  private val indicator = ProgressIndicatorBase()
+  private val checkedTasks = Collections.synchronizedList(mutableListOf<String>())
+
+  @Test
+  fun `test reports are aggregated in the order of tasks`() {
+    val tasks = createCourse().allTasks()
+    val error = IllegalStateException("checker failed")
+
+    val reports = check(tasks, parallelism = 2) { task ->
+      when (task.name) {
+        "task2" -> false
+        "task5" -> throw error
+        else -> true
+      }
+    }!!
+
+    assertEquals(tasks, reports.map { it.task })
+    assertEquals(listOf(true, false, true, false, true, true), reports.map { it.isSolved })
+    assertSame(error, reports[3].error)
+    assertNull(reports[1].error)
+    assertEquals(tasks.size, checkedTasks.size)
+    assertEquals(1.0, indicator.fraction, 0.0)
+  }
+
+  @Test
+  fun `test framework lesson tasks are checked one by one in their order`() {
+    val course = createCourse()
+    val frameworkTasks = course.getLesson("framework")!!.taskList
+    val running = AtomicInteger()
+    val maxRunning = AtomicInteger()
+
+    check(course.allTasks(), parallelism = 4) { task ->
+      if (task in frameworkTasks) {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), ::maxOf)
+        Thread.sleep(10)
+        running.decrementAndGet()
+      }
+      true
+    }!!
+
+    assertEquals(1, maxRunning.get())
+    assertEquals(frameworkTasks.map { it.name }, checkedTasks.filter { name -> frameworkTasks.any { it.name == name } })
+  }
+
+  @Test
+  fun `test no more tasks than parallelism are checked at the same time`() {
+    val running = AtomicInteger()
+    val maxRunning = AtomicInteger()
+
+    check(createCourse().allTasks(), parallelism = 2) {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), ::maxOf)
+      Thread.sleep(10)
+      running.decrementAndGet()
+      true
+    }!!
+
+    assertTrue("At most 2 tasks are expected to be checked at the same time, but was ${maxRunning.get()}", maxRunning.get() <= 2)
+  }
+
+  @Test
+  fun `test tasks are not checked after cancellation`() {
+    val tasks = createCourse().getLesson("framework")!!.taskList
+
+    val reports = check(tasks, parallelism = 2) {
+      indicator.cancel()
+      true
+    }
+
+    assertNull(reports)
+    assertEquals(listOf("task4"), checkedTasks)
+  }
+
+  @Test
+  fun `test checking is cancelled by checker`() {
+    val reports = check(createCourse().allTasks(), parallelism = 2) { task ->
+      if (task.name == "task3") {
+        indicator.cancel()
+      }
+      true
+    }
+
+    assertNull(reports)
+  }
+
+  @Test
+  fun `test tasks are checked sequentially without parallelism`() {
+    val tasks = createCourse().allTasks()
+
+    val reports = check(tasks, parallelism = 1) { task -> task.name != "task1" }!!
+
+    assertEquals(tasks.map { it.name }, checkedTasks)
+    assertEquals(listOf(false, true, true, true, true, true), reports.map { it.isSolved })
+  }
+
+  private fun check(tasks: List<Task>, parallelism: Int, checker: (Task) -> Boolean): List<TaskCheckReport>? {
+    val scheduler = TasksCheckScheduler(indicator, parallelism) { task, taskIndicator: ProgressIndicator ->
+      taskIndicator.checkCanceled()
+      checkedTasks += task.name
+      checker(task)
+    }
+    return scheduler.check(tasks)
+  }
+
+  private fun createCourse(): Course = course(courseMode = CourseMode.EDUCATOR) {
+    lesson("lesson1") {
+      eduTask("task1")
+      eduTask("task2")
+    }
+    frameworkLesson("framework") {
+      eduTask("task4")
+      eduTask("task5")
+      eduTask("task6")
+    }
+    lesson("lesson3") {
+      eduTask("task3")
+    }
+  }
+
+  private fun Course.allTasks(): List<Task> = lessons.flatMap { it.taskList }
+}
@@ -72,6 +72,58 @@ class EduDocumentListenerTest : EduTestCase() {
     assertEquals("is another", answerPlaceholders[1].currentText)
   }
 
+  @Test
+  fun `test type before placeholders not sorted by offset`() {
+    val lessonIndex = 1
+    val taskIndex = 2
+    val taskFileName = "taskFile2.txt"
+    val taskFile = getCourse().findTask("lesson$lessonIndex", "task$taskIndex").getTaskFile(taskFileName)!!
+    taskFile.answerPlaceholders = taskFile.answerPlaceholders.reversed()
+    configureByTaskFile(lessonIndex, taskIndex, taskFileName)
+    myFixture.editor.caretModel.moveToOffset(1)
+    myFixture.editor.selectionModel.removeSelection()
+    myFixture.type("test")
+    val answerPlaceholders = taskFile.answerPlaceholders
+    assertEquals(2, answerPlaceholders.size)
+    assertEquals("is another", answerPlaceholders[0].currentText)
+    assertEquals("is", answerPlaceholders[1].currentText)
+  }
+
+  @Test
+  fun `test placeholders reordered while moving are sorted again`() {
+    val taskFile = getCourse().findTask("lesson1", "task2").getTaskFile("taskFile2.txt")!!
+    val (first, second) = taskFile.answerPlaceholdersByOffset
+    val firstOffset = first.offset
+    val secondOffset = second.offset
+    taskFile.movePlaceholdersKeepingOrder {
+      first.offset = secondOffset
+      second.offset = firstOffset
+    }
+    assertEquals(listOf(second, first), taskFile.answerPlaceholdersByOffset)
+  }
+
+  @Test
+  fun `test placeholders moved directly are sorted again`() {
+    val taskFile = getCourse().findTask("lesson1", "task2").getTaskFile("taskFile2.txt")!!
+    val (first, second) = taskFile.answerPlaceholdersByOffset
+    val firstOffset = first.offset
+    first.offset = second.offset
+    second.offset = firstOffset
+    taskFile.placeholdersMoved()
+    assertEquals(listOf(second, first), taskFile.answerPlaceholdersByOffset)
+  }
+
+  @Test
+  fun `test placeholder added while moving is found`() {
+    val taskFile = getCourse().findTask("lesson1", "task2").getTaskFile("taskFile2.txt")!!
+    val placeholder = AnswerPlaceholder(0, "")
+    taskFile.movePlaceholdersKeepingOrder {
+      taskFile.addAnswerPlaceholder(placeholder)
+    }
+    assertEquals(listOf(placeholder), taskFile.getAnswerPlaceholders(0, 0))
+    assertEquals(3, taskFile.answerPlaceholdersByOffset.size)
+  }
+
   @Test
   fun `test type in second placeholder`() {
     val lessonIndex = 1
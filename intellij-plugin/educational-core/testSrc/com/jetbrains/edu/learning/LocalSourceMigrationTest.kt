@@ -6,7 +6,10 @@ import com.fasterxml.jackson.databind.node.ObjectNode
 import com.intellij.openapi.util.io.FileUtil
 import com.intellij.openapi.util.text.StringUtilRt
 import com.intellij.testFramework.fixtures.BasePlatformTestCase
+import com.jetbrains.edu.learning.courseFormat.JSON_FORMAT_VERSION
+import com.jetbrains.edu.learning.json.getConverters
 import com.jetbrains.edu.learning.json.migrate
+import com.jetbrains.edu.learning.json.mixins.JsonMixinNames.VERSION
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.junit.runners.JUnit4
@@ -39,6 +42,22 @@ class LocalSourceMigrationTest : BasePlatformTestCase() {
   @Test
   fun `test to 12 version with custom feedback link`() = doTest(12)
 
+  @Test
+  fun `test fused migration is the same as sequential one`() {
+    val beforeFiles = File(testDataPath).listFiles { file -> file.name.endsWith(".json") && !file.name.endsWith(".after.json") }!!
+    assertTrue(beforeFiles.isNotEmpty())
+    for (file in beforeFiles.sortedBy { it.name }) {
+      val before = loadJsonText(file.name)
+      val version = (ObjectMapper().readTree(before) as ObjectNode).get(VERSION)?.asInt() ?: 1
+
+      val converters = getConverters(version, JSON_FORMAT_VERSION)
+      val sequentialResult = converters.fold(ObjectMapper().readTree(before) as ObjectNode) { node, converter -> converter.convert(node) }
+      val fusedResult = migrate(ObjectMapper().readTree(before) as ObjectNode, JSON_FORMAT_VERSION)
+
+      assertEquals(file.name, ObjectMapper().writeValueAsString(sequentialResult), ObjectMapper().writeValueAsString(fusedResult))
+    }
+  }
+
   private fun doTest(maxVersion: Int) {
     val before = loadJsonText(beforeFileName)
     val afterExpected = loadJsonText(afterFileName)
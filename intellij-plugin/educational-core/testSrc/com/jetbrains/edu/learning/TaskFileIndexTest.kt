@@ -0,0 +1,183 @@
+package com.jetbrains.edu.learning
+
+import com.intellij.openapi.application.runWriteAction
+import com.jetbrains.edu.learning.courseFormat.CourseMode
+import com.jetbrains.edu.learning.courseFormat.FrameworkLesson
+import com.jetbrains.edu.learning.courseFormat.Lesson
+import com.jetbrains.edu.learning.courseFormat.tasks.EduTask
+import org.junit.Test
+
+class TaskFileIndexTest : EduTestCase() {
+
+  @Test
+  fun `test repeated lookups are cached`() {
+    val course = courseWithFiles {
+      lesson("lesson1") {
+        eduTask("task1") {
+          taskFile("Task.kt")
+        }
+      }
+    }
+    val file = findFile("lesson1/task1/Task.kt")
+    val index = TaskFileIndex.getInstance(project)
+    index.resetCounters()
+
+    val expectedTaskFile = course.findTask("lesson1", "task1").getTaskFile("Task.kt")
+    assertEquals(expectedTaskFile, file.getTaskFile(project))
+    assertEquals(expectedTaskFile, file.getTaskFile(project))
+    assertEquals(1, index.missCount)
+    assertEquals(1, index.hitCount)
+  }
+
+  @Test
+  fun `test lookup after task file is removed from course`() {
+    val course = courseWithFiles(courseMode = CourseMode.EDUCATOR) {
+      lesson("lesson1") {
+        eduTask("task1") {
+          taskFile("Task.kt")
+        }
+      }
+    }
+    val file = findFile("lesson1/task1/Task.kt")
+    assertNotNull(file.getTaskFile(project))
+
+    course.findTask("lesson1", "task1").removeTaskFile("Task.kt")
+    assertNull(file.getTaskFile(project))
+  }
+
+  @Test
+  fun `test lookup after current task of framework lesson is changed`() {
+    val course = courseWithFiles {
+      frameworkLesson("lesson1") {
+        eduTask("task1") {
+          taskFile("Task.kt")
+        }
+        eduTask("task2") {
+          taskFile("Task.kt")
+        }
+      }
+    }
+    val file = findFile("lesson1/task/Task.kt")
+    assertEquals(course.findTask("lesson1", "task1"), file.getContainingTask(project))
+
+    (course.getLesson("lesson1") as FrameworkLesson).currentTaskIndex = 1
+    assertEquals(course.findTask("lesson1", "task2"), file.getContainingTask(project))
+  }
+
+  @Test
+  fun `test lookup after file is moved`() {
+    val course = courseWithFiles(courseMode = CourseMode.EDUCATOR) {
+      lesson("lesson1") {
+        eduTask("task1") {
+          taskFile("Task.kt")
+          taskFile("src/Util.kt")
+        }
+      }
+    }
+    val file = findFile("lesson1/task1/Task.kt")
+    assertNotNull(file.getTaskFile(project))
+
+    runWriteAction {
+      file.move(this, findFile("lesson1/task1/src"))
+    }
+    val task = course.findTask("lesson1", "task1")
+    assertEquals("src/Task.kt", file.pathRelativeToTask(project))
+    assertEquals(task.getTaskFile("src/Task.kt"), file.getTaskFile(project))
+  }
+
+  @Test
+  fun `test changes of items not attached to the course keep cached lookups`() {
+    val course = courseWithFiles {
+      lesson("lesson1") {
+        eduTask("task1") {
+          taskFile("Task.kt")
+        }
+      }
+    }
+    val file = findFile("lesson1/task1/Task.kt")
+    val index = TaskFileIndex.getInstance(project)
+    assertNotNull(file.getTaskFile(project))
+    index.resetCounters()
+
+    val structureModificationCount = course.structureModificationCount
+    EduTask("detached").apply { addTaskFile("Detached.kt").name = "Renamed.kt" }
+    Lesson().name = "detached"
+    assertEquals(structureModificationCount, course.structureModificationCount)
+
+    assertNotNull(file.getTaskFile(project))
+    assertEquals(0, index.missCount)
+    assertEquals(1, index.hitCount)
+  }
+
+  @Test
+  fun `test lookup after course mode is changed`() {
+    val course = courseWithFiles {
+      lesson("lesson1") {
+        eduTask("task1") {
+          taskFile("Task.kt")
+        }
+      }
+    }
+    val file = findFile("lesson1/task1/Task.kt")
+    val index = TaskFileIndex.getInstance(project)
+    assertNotNull(file.getTaskFile(project))
+    index.resetCounters()
+
+    course.courseMode = CourseMode.EDUCATOR
+    assertNotNull(file.getTaskFile(project))
+    assertEquals(1, index.missCount)
+  }
+
+  @Test
+  fun `test lookup after course is replaced`() {
+    courseWithFiles {
+      lesson("lesson1") {
+        eduTask("task1") {
+          taskFile("Task.kt")
+        }
+      }
+    }
+    val file = findFile("lesson1/task1/Task.kt")
+    assertNotNull(file.getTaskFile(project))
+
+    val newCourse = course {
+      lesson("lesson1") {
+        eduTask("task1") {
+          taskFile("Task.kt")
+        }
+      }
+    }
+    newCourse.init(false)
+    StudyTaskManager.getInstance(project).course = newCourse
+    assertEquals(newCourse.findTask("lesson1", "task1").getTaskFile("Task.kt"), file.getTaskFile(project))
+  }
+
+  @Test
+  fun `test files created outside of course dir keep cached lookups`() {
+    courseWithFiles {
+      lesson("lesson1") {
+        eduTask("task1") {
+          taskFile("Task.kt")
+        }
+      }
+    }
+    val file = findFile("lesson1/task1/Task.kt")
+    val index = TaskFileIndex.getInstance(project)
+    assertNotNull(file.getTaskFile(project))
+    index.resetCounters()
+
+    val outsideDir = runWriteAction { project.courseDir.parent.createChildDirectory(this, "outside") }
+    try {
+      runWriteAction { outsideDir.createChildData(this, "build.log") }
+      assertNotNull(file.getTaskFile(project))
+      assertEquals(0, index.missCount)
+
+      runWriteAction { project.courseDir.createChildData(this, "build.log") }
+      assertNotNull(file.getTaskFile(project))
+      assertEquals(1, index.missCount)
+    }
+    finally {
+      runWriteAction { outsideDir.delete(this) }
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.jetbrains.edu.learning
 import com.jetbrains.edu.learning.checker.CheckUtils.CONGRATULATIONS
 import com.jetbrains.edu.learning.checker.TestsOutputParser
 import com.jetbrains.edu.learning.checker.TestsOutputParser.Companion.CONGRATS_MESSAGE
+import com.jetbrains.edu.learning.checker.TestsOutputParser.Companion.MAX_FAILED_MESSAGE_LENGTH
 import com.jetbrains.edu.learning.checker.TestsOutputParser.Companion.STUDY_PREFIX
 import com.jetbrains.edu.learning.checker.TestsOutputParser.Companion.TEST_FAILED
 import com.jetbrains.edu.learning.checker.TestsOutputParser.Companion.TEST_OK
@@ -10,6 +11,9 @@ import com.jetbrains.edu.learning.courseFormat.CheckResult
 import com.jetbrains.edu.learning.courseFormat.CheckStatus
 import com.jetbrains.edu.learning.messages.EduCoreBundle
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
 import org.junit.Test
 
 class TestsOutputParserTest {
@@ -90,5 +94,41 @@ class TestsOutputParserTest {
     assertEquals(EduCoreBundle.message("check.incorrect"), checkResult.message.trim())
   }
 
+  @Test
+  fun `test failure message with error message and diff`() {
+    val checkResult = getCheckResult("$STUDY_PREFIX $TEST_FAILED Wrong sum expected: 1 expected: 2 but was: 3 but was: 4")
+    assertEquals(CheckStatus.Failed, checkResult.status)
+    assertEquals("2 but was: 3", checkResult.diff?.expected)
+    assertEquals("4", checkResult.diff?.actual)
+    assertEquals("Wrong sum expected: 1", checkResult.message.trim())
+  }
+
+  @Test
+  fun `test result is known before output ends`() {
+    val parser = TestsOutputParser()
+    parser.accept("$STUDY_PREFIX $TEST_OK")
+    parser.accept("$STUDY_PREFIX $TEST_FAILED 123")
+    assertFalse(parser.isFailed)
+    parser.accept("$STUDY_PREFIX $TEST_OK")
+    assertTrue(parser.isFailed)
+    parser.accept("$STUDY_PREFIX $TEST_FAILED 456")
+
+    val checkResult = parser.getCheckResult(false)
+    assertEquals(CheckStatus.Failed, checkResult.status)
+    assertEquals("123", checkResult.message.trim())
+  }
+
+  @Test
+  fun `test long failure message is truncated`() {
+    val longLine = "a".repeat(MAX_FAILED_MESSAGE_LENGTH / 2)
+    val lines = listOf("$STUDY_PREFIX $TEST_FAILED expected: $longLine") +
+                List(10) { "$STUDY_PREFIX $longLine" } +
+                "$STUDY_PREFIX but was: b"
+    val checkResult = getCheckResult(*lines.toTypedArray())
+    assertEquals(CheckStatus.Failed, checkResult.status)
+    assertNull(checkResult.diff)
+    assertTrue(checkResult.message.length <= MAX_FAILED_MESSAGE_LENGTH + 10)
+  }
+
   private fun getCheckResult(vararg lines: String): CheckResult = TestsOutputParser().getCheckResult(listOf(*lines), false)
 }
@@ -0,0 +1,115 @@
+package com.jetbrains.edu.learning.checker
+
+import com.intellij.openapi.progress.EmptyProgressIndicator
+import com.intellij.openapi.progress.ProgressIndicator
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.registry.Registry
+import com.intellij.openapi.vfs.VirtualFile
+import com.jetbrains.edu.learning.EduTestCase
+import com.jetbrains.edu.learning.Ok
+import com.jetbrains.edu.learning.Result
+import com.jetbrains.edu.learning.courseFormat.CheckResult
+import com.jetbrains.edu.learning.courseFormat.CheckStatus
+import com.jetbrains.edu.learning.courseFormat.tasks.OutputTask
+import com.jetbrains.edu.learning.courseFormat.tasks.Task
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicInteger
+
+class OutputTaskCheckerBaseTest : EduTestCase() {
+
+  @Test
+  fun `test all tests passed concurrently`() {
+    val executor = EchoCodeExecutor()
+    val result = withTestsParallelism(4) {
+      createChecker(TESTS_NUM, wrongOutputs = emptySet(), executor).check(EmptyProgressIndicator())
+    }
+    assertEquals(CheckStatus.Solved, result.status)
+    assertEquals(1, executor.preparations.get())
+    assertEquals(TESTS_NUM, executor.runs.get())
+  }
+
+  @Test
+  fun `test first failed test is reported`() {
+    // later tests are faster, so the failure of test 7 is usually known before the failure of test 3
+    val result = withTestsParallelism(4) {
+      createChecker(TESTS_NUM, wrongOutputs = setOf(3, 7), EchoCodeExecutor()).check(EmptyProgressIndicator())
+    }
+    assertEquals(CheckStatus.Failed, result.status)
+    assertEquals("3", result.message)
+  }
+
+  @Test
+  fun `test sequential checking stops at first failure`() {
+    val executor = EchoCodeExecutor()
+    val result = withTestsParallelism(1) {
+      createChecker(TESTS_NUM, wrongOutputs = setOf(2), executor).check(EmptyProgressIndicator())
+    }
+    assertEquals(CheckStatus.Failed, result.status)
+    assertEquals("2", result.message)
+    assertEquals(2, executor.runs.get())
+  }
+
+  private fun createChecker(testsNum: Int, wrongOutputs: Set<Int>, executor: CodeExecutor): OutputTaskCheckerBase<OutputTask> {
+    courseWithFiles {
+      lesson("lesson1") {
+        outputTask("task1") {
+          taskFile("main.txt")
+          for (i in 1..testsNum) {
+            taskFile("tests/$i/input.txt", "$i")
+            taskFile("tests/$i/output.txt", if (i in wrongOutputs) "wrong" else "$i")
+          }
+        }
+      }
+    }
+    val task = findTask(0, 0) as OutputTask
+    return object : OutputTaskCheckerBase<OutputTask>(task, EnvironmentChecker(), project, executor) {
+      override fun getIncorrectMessage(testFolderName: String): String = testFolderName
+      override fun getTestFolders(project: Project, task: OutputTask): Array<out VirtualFile> {
+        val testsDir = findFile("lesson1/task1/tests")
+        return Array(testsNum) { testsDir.findChild("${it + 1}")!! }
+      }
+
+      override fun processCorrectCheckResult(): CheckResult = CheckResult(CheckStatus.Solved, "")
+      override fun compareOutputs(expected: String, actual: String): Boolean = expected != actual
+    }
+  }
+
+  private fun <T> withTestsParallelism(parallelism: Int, action: () -> T): T {
+    val registryValue = Registry.get(OutputTaskCheckerBase.TESTS_PARALLELISM_REGISTRY_KEY)
+    val oldValue = registryValue.asInteger()
+    registryValue.setValue(parallelism)
+    try {
+      return action()
+    }
+    finally {
+      registryValue.setValue(oldValue)
+    }
+  }
+
+  private class EchoCodeExecutor : CodeExecutor {
+    val preparations = AtomicInteger()
+    val runs = AtomicInteger()
+
+    override fun execute(project: Project, task: Task, indicator: ProgressIndicator, input: String?): Result<String, CheckResult> {
+      error("Tests should be run with prepared execution")
+    }
+
+    override fun prepareExecution(project: Project, task: Task): Result<PreparedCodeExecution, CheckResult> {
+      preparations.incrementAndGet()
+      return Ok(object : PreparedCodeExecution {
+        override val isConcurrent: Boolean = true
+
+        override fun execute(indicator: ProgressIndicator, input: String?): Result<String, CheckResult> {
+          runs.incrementAndGet()
+          val testNumber = input!!.toInt()
+          Thread.sleep((TESTS_NUM - testNumber + 1) * 10L)
+          return Ok(input)
+        }
+      })
+    }
+  }
+
+  companion object {
+    private const val TESTS_NUM = 10
+  }
+}
@@ -222,6 +222,49 @@ open class CoursesInfosStorageTestBase : EduTestCase() {
     assertEquals(EduCoreBundle.message("course.dialog.completed"), coursesInGroups[2].name)
   }
 
+  @Test
+  fun `test courses groups updated after progress change`() {
+    val coursesStorage = getCoursesStorage()
+    val course = course {}
+    coursesStorage.addCourse(course, "/course", 1, 10)
+    assertSame(coursesStorage.coursesInGroups(), coursesStorage.coursesInGroups())
+
+    coursesStorage.updateCourseProgress(course, "/course", 10, 10)
+    val coursesInGroups = coursesStorage.coursesInGroups()
+    assertSize(1, coursesInGroups)
+    assertEquals(EduCoreBundle.message("course.dialog.completed"), coursesInGroups.first().name)
+  }
+
+  @Test
+  fun `test course lookups after course is replaced and removed`() {
+    val coursesStorage = getCoursesStorage()
+    val pythonCourse = course(name = "Course") {}.apply { languageId = EduFormatNames.PYTHON }
+    val kotlinCourse = course(name = "Course") {}.apply { languageId = EduFormatNames.KOTLIN }
+
+    coursesStorage.addCourse(pythonCourse, "/course")
+    assertEquals("/course", coursesStorage.getCoursePath(pythonCourse))
+
+    coursesStorage.addCourse(kotlinCourse, "/course")
+    assertNull(coursesStorage.getCourseMetaInfo(pythonCourse))
+    assertEquals(EduFormatNames.KOTLIN, coursesStorage.getCourseMetaInfoForAnyLanguage(pythonCourse)?.languageId)
+
+    coursesStorage.removeCourseByLocation("/course")
+    assertNull(coursesStorage.getCourseMetaInfoForAnyLanguage(kotlinCourse))
+    assertFalse(coursesStorage.isNotEmpty())
+  }
+
+  @Test
+  fun `test course lookups after courses list is modified directly`() {
+    val coursesStorage = getCoursesStorage()
+    val course = course {}
+    coursesStorage.addCourse(course, "/course")
+    assertTrue(coursesStorage.hasCourse(course))
+
+    coursesStorage.state.courses.clear()
+    assertFalse(coursesStorage.hasCourse(course))
+    assertEmpty(coursesStorage.coursesInGroups())
+  }
+
   protected fun doSerializationTest(course: Course) {
     val coursesStorage = CoursesStorage.getInstance()
     val courses = coursesStorage.state.courses
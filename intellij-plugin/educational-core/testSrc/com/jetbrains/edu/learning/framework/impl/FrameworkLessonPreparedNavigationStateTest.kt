@@ -0,0 +1,81 @@
+package com.jetbrains.edu.learning.framework.impl
+
+import com.intellij.openapi.application.impl.NonBlockingReadActionImpl
+import com.intellij.testFramework.PlatformTestUtil
+import com.jetbrains.edu.learning.actions.NextTaskAction
+import com.jetbrains.edu.learning.actions.navigate.NavigationTestBase
+import com.jetbrains.edu.learning.configurators.FakeGradleBasedLanguage
+import com.jetbrains.edu.learning.courseFormat.Course
+import com.jetbrains.edu.learning.courseFormat.FrameworkLesson
+import com.jetbrains.edu.learning.courseFormat.tasks.Task
+import com.jetbrains.edu.learning.courseGeneration.GeneratorUtils
+import com.jetbrains.edu.learning.findTask
+import com.jetbrains.edu.learning.framework.FrameworkLessonManager
+import com.jetbrains.edu.learning.testAction
+import org.junit.Test
+
+class FrameworkLessonPreparedNavigationStateTest : NavigationTestBase() {
+
+  private val manager: FrameworkLessonManagerImpl
+    get() = FrameworkLessonManager.getInstance(project) as FrameworkLessonManagerImpl
+
+  @Test
+  fun `test next task state is prepared`() {
+    val course = createFrameworkCourse()
+    val task1 = course.findTask("lesson", "task1")
+
+    prepareNextTaskState(task1)
+    assertTrue(manager.hasPreparedNavigationState())
+  }
+
+  @Test
+  fun `test state being prepared is discarded after saving external changes`() {
+    val course = createFrameworkCourse()
+    val task1 = course.findTask("lesson", "task1")
+
+    manager.prepareNextTaskState(task1)
+    manager.saveExternalChanges(task1, mapOf("src/Task.kt" to "fun bar() {}", "test/Tests1.kt" to "fun test1() {}"))
+    waitForPreparation()
+
+    assertFalse(manager.hasPreparedNavigationState())
+  }
+
+  @Test
+  fun `test file created after preparation is saved with the current task`() {
+    val course = createFrameworkCourse()
+    val lesson = course.lessons.single() as FrameworkLesson
+    val task1 = course.findTask("lesson", "task1")
+
+    withVirtualFileListener(course) {
+      task1.openTaskFileInEditor("src/Task.kt")
+      prepareNextTaskState(task1)
+      GeneratorUtils.createTextChildFile(project, rootDir, "lesson/task/src/Bar.kt", "fun bar() {}")
+      testAction(NextTaskAction.ACTION_ID)
+    }
+
+    assertEquals("fun bar() {}", manager.getTaskState(lesson, task1)["src/Bar.kt"])
+  }
+
+  private fun prepareNextTaskState(task: Task) {
+    manager.prepareNextTaskState(task)
+    waitForPreparation()
+  }
+
+  private fun waitForPreparation() {
+    NonBlockingReadActionImpl.waitForAsyncTaskCompletion()
+    PlatformTestUtil.dispatchAllInvocationEventsInIdeEventQueue()
+  }
+
+  private fun createFrameworkCourse(): Course = courseWithFiles(language = FakeGradleBasedLanguage) {
+    frameworkLesson("lesson") {
+      eduTask("task1") {
+        taskFile("src/Task.kt", "fun foo() {}")
+        taskFile("test/Tests1.kt", "fun test1() {}")
+      }
+      eduTask("task2") {
+        taskFile("src/Task.kt", "fun foo() {}")
+        taskFile("test/Tests2.kt", "fun test2() {}")
+      }
+    }
+  }
+}
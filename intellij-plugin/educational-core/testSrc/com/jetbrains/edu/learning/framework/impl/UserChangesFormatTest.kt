@@ -0,0 +1,100 @@
+package com.jetbrains.edu.learning.framework.impl
+
+import com.intellij.util.io.UnsyncByteArrayInputStream
+import com.intellij.util.io.UnsyncByteArrayOutputStream
+import com.jetbrains.edu.learning.EduTestCase
+import org.junit.Test
+import java.io.DataInputStream
+import java.io.DataOutputStream
+
+class UserChangesFormatTest : EduTestCase() {
+
+  @Test
+  fun `test changes without initial state`() {
+    val changes = UserChanges(listOf(
+      Change.AddFile("foo/bar.txt", "FooBar"),
+      Change.ChangeFile("foo/baz.txt", "FooBaz"),
+      Change.RemoveFile("foo/qqq.txt"),
+      Change.PropagateLearnerCreatedTaskFile("foo/learner.txt", "learner"),
+      Change.RemoveTaskFile("foo/removed.txt")
+    ), 42)
+
+    val (_, actual) = writeAndRead(changes, emptyMap())
+
+    assertEquals(changes.changes, actual.changes)
+    assertEquals(42, actual.timestamp)
+  }
+
+  @Test
+  fun `test changed file is saved as diff`() {
+    val initialText = (1..1000).joinToString("\n") { "fun foo$it() = $it" }
+    val newText = initialText.replace("fun foo500() = 500", "fun foo500() = 5000")
+      .replace("fun foo1() = 1\n", "")
+      .plus("\nfun bar() = 0\r\n")
+    val initialState = mapOf("src/Main.kt" to initialText)
+    val changes = UserChanges(listOf(Change.ChangeFile("src/Main.kt", newText)))
+
+    val (size, actual) = writeAndRead(changes, initialState)
+
+    assertEquals(changes.changes, actual.changes)
+    assertTrue("Record is too large: $size bytes", size < 300)
+  }
+
+  @Test
+  fun `test large file`() {
+    val text = (1..20000).joinToString("\n") { "line $it" }
+    assertTrue(text.length > 65535)
+    val changes = UserChanges(listOf(Change.AddFile("src/Large.txt", text)))
+
+    val (_, actual) = writeAndRead(changes, emptyMap())
+
+    assertEquals(changes.changes, actual.changes)
+  }
+
+  @Test
+  fun `test change is applied to changed initial state`() {
+    val initialText = (1..100).joinToString("\n") { "line $it" }
+    val changes = UserChanges(listOf(
+      Change.ChangeFile("src/Main.kt", initialText.replace("line 50\n", "line 5000\n")),
+      Change.AddFile("src/New.kt", "new")
+    ))
+
+    val bytes = write(changes, mapOf("src/Main.kt" to initialText))
+    val newInitialText = initialText.replace("line 1\n", "").replace("line 99\n", "line 99\nline 99.5\n")
+    val actual = read(bytes, mapOf("src/Main.kt" to newInitialText))
+
+    assertEquals(listOf(
+      Change.ChangeFile("src/Main.kt", newInitialText.replace("line 50\n", "line 5000\n")),
+      Change.AddFile("src/New.kt", "new")
+    ), actual.changes)
+  }
+
+  @Test
+  fun `test change is skipped if changed lines differ in initial state`() {
+    val initialText = (1..100).joinToString("\n") { "line $it" }
+    val changes = UserChanges(listOf(
+      Change.ChangeFile("src/Main.kt", initialText.replace("line 50\n", "line 5000\n")),
+      Change.AddFile("src/New.kt", "new")
+    ))
+
+    val bytes = write(changes, mapOf("src/Main.kt" to initialText))
+    val actual = read(bytes, mapOf("src/Main.kt" to initialText.replace("line 50\n", "line fifty\n")))
+
+    assertEquals(listOf(Change.AddFile("src/New.kt", "new")), actual.changes)
+  }
+
+  private fun writeAndRead(changes: UserChanges, initialState: FLTaskState): Pair<Int, UserChanges> {
+    val bytes = write(changes, initialState)
+    return bytes.size to read(bytes, initialState)
+  }
+
+  private fun write(changes: UserChanges, initialState: FLTaskState): ByteArray {
+    val output = UnsyncByteArrayOutputStream()
+    DataOutputStream(output).use { changes.write(it, initialState) }
+    return output.toByteArray()
+  }
+
+  private fun read(bytes: ByteArray, initialState: FLTaskState): UserChanges {
+    return DataInputStream(UnsyncByteArrayInputStream(bytes)).use { UserChanges.read(it, initialState) }
+  }
+}
@@ -6,6 +6,7 @@ import com.jetbrains.edu.learning.courseGeneration.CourseGenerationTestBase
 import com.jetbrains.edu.learning.framework.impl.Change
 import com.jetbrains.edu.learning.framework.impl.FrameworkLessonManagerImpl
 import com.jetbrains.edu.learning.framework.impl.FrameworkStorage
+import com.jetbrains.edu.learning.framework.impl.UserChanges
 import com.jetbrains.edu.learning.newproject.EmptyProjectSettings
 import org.junit.Test
 
@@ -26,7 +27,7 @@ class FrameworkStorageMigrationTest : CourseGenerationTestBase<EmptyProjectSetti
     val record = storage.createRecordWithData(oldChanges)
     storage.migrate(FrameworkLessonManagerImpl.VERSION)
 
-    val userChanges = storage.getUserChanges(record)
+    val userChanges = storage.getUserChanges(record, emptyMap())
 
     assertEquals(oldChanges.changes, userChanges.changes)
     assertEquals(-1, userChanges.timestamp)
@@ -46,6 +47,49 @@ class FrameworkStorageMigrationTest : CourseGenerationTestBase<EmptyProjectSetti
     assertEquals(-1, newChanges.timestamp)
   }
 
+  @Test
+  fun `test migrate from 1 to 2`() {
+    val storage = createStorage()
+    val changes = listOf(
+      Change.AddFile("foo/bar.txt", "FooBar"),
+      Change.ChangeFile("foo/baz.txt", "FooBaz"),
+      Change.RemoveFile("foo/qqq.txt")
+    )
+    val oldChanges = UserChanges1(changes, 12345)
+
+    val record = storage.createRecordWithData(oldChanges)
+    storage.setVersion(1)
+    storage.migrate(2)
+
+    val userChanges = storage.getUserChanges(record, mapOf("foo/baz.txt" to "Foo", "foo/qqq.txt" to "Qqq"))
+
+    assertEquals(oldChanges.changes, userChanges.changes)
+    assertEquals(12345, userChanges.timestamp)
+  }
+
+  @Test
+  fun `test migrated record is updated with diffs`() {
+    val storage = createStorage()
+    val initialText = (1..1000).joinToString("\n") { "line $it" }
+    val initialState = mapOf("src/Main.kt" to initialText)
+    val oldChanges = UserChanges1(listOf(Change.ChangeFile("src/Main.kt", initialText.replace("line 500\n", "line 5000\n"))), 12345)
+
+    val record = storage.createRecordWithData(oldChanges)
+    storage.setVersion(1)
+    storage.migrate(FrameworkLessonManagerImpl.VERSION)
+    val migratedChanges = storage.getUserChanges(record, initialState)
+    assertEquals(oldChanges.changes, migratedChanges.changes)
+
+    val newChanges = UserChanges(listOf(Change.ChangeFile("src/Main.kt", initialText.replace("line 600\n", "line 6000\n"))), 23456)
+    storage.updateUserChanges(record, newChanges, initialState)
+    val recordSize = storage.readBytes(record).size
+    assertTrue("Record is too large: $recordSize bytes", recordSize < 300)
+
+    val userChanges = storage.getUserChanges(record, initialState)
+    assertEquals(newChanges.changes, userChanges.changes)
+    assertEquals(23456, userChanges.timestamp)
+  }
+
   private fun createStorage(): FrameworkStorage {
     val storage = FrameworkStorage(FrameworkLessonManagerImpl.constructStoragePath(project))
     Disposer.register(testRootDisposable, storage)
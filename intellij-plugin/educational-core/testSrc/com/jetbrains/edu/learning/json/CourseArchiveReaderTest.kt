@@ -0,0 +1,120 @@
+package com.jetbrains.edu.learning.json
+
+import com.jetbrains.edu.coursecreator.actions.CourseArchiveTestBase
+import com.jetbrains.edu.learning.EduUtilsKt
+import com.jetbrains.edu.learning.courseFormat.CourseMode
+import com.jetbrains.edu.learning.courseFormat.ext.allTasks
+import com.jetbrains.edu.learning.courseFormat.tasks.OutputTask
+import com.jetbrains.edu.learning.courseFormat.tasks.TheoryTask
+import com.jetbrains.edu.learning.courseFormat.tasks.choice.ChoiceOptionStatus
+import com.jetbrains.edu.learning.courseFormat.tasks.choice.ChoiceTask
+import org.junit.Test
+import java.io.StringReader
+import java.nio.file.Files
+import kotlin.io.path.createTempFile
+
+class CourseArchiveReaderTest : CourseArchiveTestBase() {
+
+  @Test
+  fun `test course archive round trip`() {
+    val course = courseWithFiles(courseMode = CourseMode.EDUCATOR) {
+      section("section1") {
+        lesson("lesson1") {
+          eduTask("task1") {
+            taskFile("Task.kt", "fun foo(): String = <p>TODO()</p>") {
+              placeholder(0, "\"Foo\"")
+            }
+            taskFile("test/Tests.kt", "fun test() {}", visible = false)
+          }
+          theoryTask("task2") {
+            taskFile("Theory.kt", "fun theory() {}")
+          }
+        }
+      }
+      frameworkLesson("lesson2") {
+        outputTask("task1") {
+          taskFile("Main.kt", "fun main() {}")
+          taskFile("test/output.txt", "output")
+        }
+        choiceTask("task2", isMultipleChoice = true, choiceOptions = mapOf("1" to ChoiceOptionStatus.CORRECT, "2" to ChoiceOptionStatus.INCORRECT)) {
+          taskFile("task.txt")
+        }
+      }
+      lesson("lesson3") {
+        eduTask("task1") {
+          taskFile("Task.kt", "fun bar() {}")
+        }
+      }
+    }
+
+    val archive = createTempFile("course", ".zip")
+    try {
+      getArchiveCreator(archive.toString()).createArchive()
+      val actual = EduUtilsKt.getLocalCourse(archive.toString()) ?: error("Failed to read course archive")
+
+      assertEquals(course.name, actual.name)
+      assertEquals(course.items.map { it.name to it.javaClass }, actual.items.map { it.name to it.javaClass })
+      assertEquals(course.allTasks.map { it.getPathInCourse() to it.javaClass }, actual.allTasks.map { it.getPathInCourse() to it.javaClass })
+
+      for ((expectedTask, actualTask) in course.allTasks.zip(actual.allTasks)) {
+        assertEquals(expectedTask.taskFiles.keys, actualTask.taskFiles.keys)
+        for ((path, expectedFile) in expectedTask.taskFiles) {
+          val actualFile = actualTask.taskFiles.getValue(path)
+          assertEquals(expectedFile.contents.textualRepresentation, actualFile.contents.textualRepresentation)
+          assertEquals(expectedFile.isVisible, actualFile.isVisible)
+          assertEquals(
+            expectedFile.answerPlaceholders.map { Triple(it.offset, it.length, it.possibleAnswer) },
+            actualFile.answerPlaceholders.map { Triple(it.offset, it.length, it.possibleAnswer) }
+          )
+        }
+      }
+
+      val choiceTask = actual.allTasks.filterIsInstance<ChoiceTask>().single()
+      assertTrue(choiceTask.isMultipleChoice)
+      assertEquals(listOf("1" to ChoiceOptionStatus.CORRECT, "2" to ChoiceOptionStatus.INCORRECT),
+                   choiceTask.choiceOptions.map { it.text to it.status })
+      assertEquals(1, actual.allTasks.filterIsInstance<OutputTask>().size)
+      assertEquals(1, actual.allTasks.filterIsInstance<TheoryTask>().size)
+    }
+    finally {
+      Files.deleteIfExists(archive)
+    }
+  }
+
+  @Test
+  fun `test course with file without text is not read`() {
+    val courseJson = """
+      {
+        "title" : "Test Course",
+        "programming_language_id" : "TEXT",
+        "language" : "en",
+        "course_type" : "PyCharm",
+        "items" : [
+          {
+            "title" : "lesson1",
+            "task_list" : [
+              {
+                "name" : "task1",
+                "files" : {
+                  "taskFile1.txt" : {
+                    "name" : "taskFile1.txt",
+                    "placeholders" : [ ],
+                    "is_visible" : true,
+                    "is_binary" : false
+                  }
+                },
+                "description_text" : "solve task",
+                "description_format" : "MD",
+                "task_type" : "edu"
+              }
+            ],
+            "type" : "lesson"
+          }
+        ],
+        "version" : 18
+      }
+    """.trimIndent()
+
+    assertNull(readCourseJson { StringReader(courseJson) })
+  }
+}
@@ -0,0 +1,98 @@
+package com.jetbrains.edu.learning.marketplace
+
+import com.intellij.openapi.util.io.FileUtil
+import com.jetbrains.edu.coursecreator.actions.CourseArchiveTestBase
+import com.jetbrains.edu.learning.courseFormat.CourseMode
+import org.junit.Test
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import kotlin.io.path.createTempDirectory
+import kotlin.io.path.createTempFile
+import kotlin.io.path.fileSize
+import kotlin.io.path.listDirectoryEntries
+import kotlin.io.path.writeText
+
+class CourseArchiveCacheTest : CourseArchiveTestBase() {
+
+  private lateinit var archive: Path
+  private lateinit var cacheDir: Path
+  private var downloads = 0
+
+  override fun setUp() {
+    super.setUp()
+    courseWithFiles(courseMode = CourseMode.EDUCATOR) {
+      lesson("lesson1") {
+        eduTask("task1") {
+          taskFile("task.txt", "task text")
+        }
+      }
+    }
+    archive = createTempFile("course", ".zip")
+    getArchiveCreator(archive.toString()).createArchive()
+    cacheDir = createTempDirectory("course-archives")
+  }
+
+  override fun tearDown() {
+    try {
+      Files.deleteIfExists(archive)
+      FileUtil.delete(cacheDir)
+    }
+    catch (e: Throwable) {
+      addSuppressedException(e)
+    }
+    finally {
+      super.tearDown()
+    }
+  }
+
+  @Test
+  fun `test archive is downloaded once`() {
+    val cache = createCache()
+    val course1 = getCourse(cache, 1)
+    val course2 = getCourse(cache, 1)
+
+    assertEquals(1, downloads)
+    assertNotSame(course1, course2)
+    assertEquals("task text", course2.lessons.single().taskList.single().taskFiles.getValue("task.txt").contents.textualRepresentation)
+  }
+
+  @Test
+  fun `test damaged archive is downloaded again`() {
+    getCourse(createCache(), 1)
+    cacheDir.listDirectoryEntries().single().writeText("damaged")
+
+    getCourse(createCache(), 1)
+    assertEquals(2, downloads)
+  }
+
+  @Test
+  fun `test least recently used archive is evicted`() {
+    val cache = createCache(maxSize = archive.fileSize() * 3 / 2)
+    getCourse(cache, 1)
+    getCourse(cache, 2)
+    assertEquals(1, cacheDir.listDirectoryEntries().size)
+
+    getCourse(cache, 2)
+    assertEquals(2, downloads)
+    getCourse(cache, 1)
+    assertEquals(3, downloads)
+  }
+
+  @Test
+  fun `test returned course can be read after its archive is evicted`() {
+    val cache = createCache(maxSize = archive.fileSize() * 3 / 2)
+    val course = getCourse(cache, 1)
+    getCourse(cache, 2)
+    assertEquals(1, cacheDir.listDirectoryEntries().size)
+
+    assertEquals("task text", course.lessons.single().taskList.single().taskFiles.getValue("task.txt").contents.textualRepresentation)
+  }
+
+  private fun createCache(maxSize: Long = Long.MAX_VALUE): CourseArchiveCache = CourseArchiveCache(cacheDir) { maxSize }
+
+  private fun getCourse(cache: CourseArchiveCache, updateId: Int) = cache.getCourse(updateId) { file ->
+    downloads++
+    Files.copy(archive, file, StandardCopyOption.REPLACE_EXISTING)
+  } ?: error("Failed to read course from cache")
+}
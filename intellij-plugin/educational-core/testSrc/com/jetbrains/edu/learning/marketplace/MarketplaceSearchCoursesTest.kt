@@ -91,6 +91,26 @@ class MarketplaceSearchCoursesTest : EduTestCase() {
     doTestCoursesLoaded(13)
   }
 
+  @Test
+  fun `test all courses passed to consumer while loading`() {
+    mockConnector.withResponseHandler(testRootDisposable) { request, path ->
+      COURSES_REQUEST_RE.matchEntire(path) ?: return@withResponseHandler null
+      val requestBody = request.body.readUtf8()
+      when {
+        requestBody.isPluginsRequest() && (requestBody.getOffset() == 0) -> mockResponse("courses_10.json")
+        requestBody.isPluginsRequest() && (requestBody.getOffset() == 10) -> mockResponse("courses.json")
+        requestBody.isUpdatesRequest() ->  mockResponse("updates_10.json")
+        else -> null
+      }
+    }
+
+    val consumedCourses = mutableListOf<EduCourse>()
+    val courses = MarketplaceConnector.getInstance().searchCourses { consumedCourses += it }
+    assertEquals(13, courses.size)
+    assertSameElements(consumedCourses, courses)
+    assertEquals("Introduction to Python", courses[10].name)
+  }
+
   @Test
   fun `test course found by id`() {
     mockConnector.withResponseHandler(testRootDisposable) { request, path ->
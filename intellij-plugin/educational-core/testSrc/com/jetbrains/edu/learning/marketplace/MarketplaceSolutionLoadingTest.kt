@@ -1,5 +1,6 @@
 package com.jetbrains.edu.learning.marketplace
 
+import com.intellij.openapi.application.ApplicationManager
 import com.jetbrains.edu.learning.SolutionLoadingTestBase
 import com.jetbrains.edu.learning.configurators.FakeGradleBasedLanguage
 import com.jetbrains.edu.learning.courseFormat.CheckStatus
@@ -11,8 +12,15 @@ import com.jetbrains.edu.learning.fileTree
 import com.jetbrains.edu.learning.marketplace.MarketplaceSubmissionsTest.Companion.FIRST_TASK_SUBMISSION_AWS_KEY
 import com.jetbrains.edu.learning.marketplace.MarketplaceSubmissionsTest.Companion.SECOND_TASK_SUBMISSION_AWS_KEY
 import com.jetbrains.edu.learning.marketplace.MarketplaceSubmissionsTest.Companion.configureSubmissionsResponses
+import com.jetbrains.edu.learning.marketplace.api.MarketplaceSubmission
+import com.jetbrains.edu.learning.marketplace.api.MarketplaceSubmissionsConnector
+import com.jetbrains.edu.learning.submissions.SolutionFilesPrefetcher
+import io.mockk.every
+import io.mockk.verify
 import org.intellij.lang.annotations.Language
 import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
 
 class MarketplaceSolutionLoadingTest : SolutionLoadingTestBase() {
 
@@ -349,6 +357,35 @@ class MarketplaceSolutionLoadingTest : SolutionLoadingTestBase() {
     checkTaskStatuses(course.allTasks, listOf(CheckStatus.Solved, CheckStatus.Solved))
   }
 
+  @Test
+  fun `test concurrent loads of the same solution share a download`() {
+    configureSubmissionsResponses(getConfiguredSubmissionsList(), mapOf(FIRST_TASK_SUBMISSION_AWS_KEY to solutionCorrect))
+    createMarketplaceCourse()
+    val submissions = List(4) { MarketplaceSubmission().apply { solutionKey = FIRST_TASK_SUBMISSION_AWS_KEY } }
+    val downloadStarted = CountDownLatch(1)
+    val loadsRequested = CountDownLatch(submissions.size)
+    every { MarketplaceSubmissionsConnector.loadSolutionByLink(any()) } answers {
+      downloadStarted.countDown()
+      // the download isn't finished until all the loads are requested
+      assertTrue(loadsRequested.await(10, TimeUnit.SECONDS))
+      solutionCorrect
+    }
+
+    val prefetcher = SolutionFilesPrefetcher.getInstance(project)
+    prefetcher.prefetch(submissions.take(1))
+    assertTrue(downloadStarted.await(10, TimeUnit.SECONDS))
+    val futures = submissions.map { submission ->
+      ApplicationManager.getApplication().executeOnPooledThread {
+        loadsRequested.countDown()
+        prefetcher.loadSolutionFiles(submission)
+      }
+    }
+    futures.forEach { it.get(10, TimeUnit.SECONDS) }
+
+    verify(exactly = 1) { MarketplaceSubmissionsConnector.loadSolutionByLink(any()) }
+    assertTrue(submissions.all { !it.solutionFiles.isNullOrEmpty() })
+  }
+
   private fun createMarketplaceCourse(courseVersion: Int = 1) = courseWithFiles(language = FakeGradleBasedLanguage,
                                                                                 courseProducer = ::EduCourse, id = 1) {
     lesson("lesson1") {
@@ -0,0 +1,124 @@
+package com.jetbrains.edu.learning.storage
+
+import com.intellij.openapi.util.Disposer
+import com.jetbrains.edu.learning.EduTestCase
+import com.jetbrains.edu.learning.courseFormat.InMemoryTextualContents
+import com.jetbrains.edu.learning.courseFormat.TaskFile
+import com.jetbrains.edu.learning.courseFormat.tasks.Task
+import org.junit.Test
+import java.util.*
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+class LearningObjectsStorageManagerTest : EduTestCase() {
+
+  override fun setUp() {
+    super.setUp()
+    courseWithFiles {
+      lesson("lesson1") {
+        eduTask("task1")
+      }
+    }
+  }
+
+  @Test
+  fun `test files are persisted in batches in order`() {
+    val task = findTask(0, 0)
+    val fileCount = LearningObjectsStorageManager.PERSISTING_BATCH_SIZE * 2 + 10
+    addTaskFiles(task, fileCount)
+    val storage = RecordingStorage()
+    val manager = LearningObjectsStorageManager(project, storage)
+
+    try {
+      manager.persistTaskEduFiles(task)
+      assertTrue(manager.flush())
+
+      val batchSize = LearningObjectsStorageManager.PERSISTING_BATCH_SIZE
+      assertEquals(listOf(batchSize, batchSize, fileCount - 2 * batchSize), storage.batches.map { it.size })
+      assertEquals(task.taskFiles.values.map { it.pathInStorage }, storage.batches.flatten())
+      for (taskFile in task.taskFiles.values) {
+        assertTrue(taskFile.contents is ContentsFromLearningObjectsStorage)
+      }
+      assertEquals("text 42", task.taskFiles.getValue("file42.txt").contents.textualRepresentation)
+    }
+    finally {
+      Disposer.dispose(manager)
+    }
+  }
+
+  @Test
+  fun `test queued files are persisted before storage is disposed`() {
+    val task = findTask(0, 0)
+    addTaskFiles(task, LearningObjectsStorageManager.PERSISTING_BATCH_SIZE * 3)
+    val storage = RecordingStorage(storeDelayMs = 50)
+    val manager = LearningObjectsStorageManager(project, storage)
+
+    manager.persistTaskEduFiles(task)
+    Disposer.dispose(manager)
+
+    assertTrue(storage.disposed.await(10, TimeUnit.SECONDS))
+    assertEquals(task.taskFiles.size, storage.batches.sumOf { it.size })
+    assertEquals(task.taskFiles.size, storage.keysStoredBeforeDispose)
+  }
+
+  @Test
+  fun `test persisting doesn't wait for storage`() {
+    val task = findTask(0, 0)
+    addTaskFiles(task, LearningObjectsStorageManager.PERSISTING_BATCH_SIZE * 10)
+    val storage = RecordingStorage()
+    val manager = LearningObjectsStorageManager(project, storage)
+
+    try {
+      storage.storeLock.lock()
+      try {
+        // all the files are queued while the storage can't write anything
+        manager.persistTaskEduFiles(task)
+      }
+      finally {
+        storage.storeLock.unlock()
+      }
+      assertTrue(manager.flush())
+
+      assertEquals(task.taskFiles.size, storage.batches.sumOf { it.size })
+      assertEquals("text 42", task.taskFiles.getValue("file42.txt").contents.textualRepresentation)
+    }
+    finally {
+      Disposer.dispose(manager)
+    }
+  }
+
+  private fun addTaskFiles(task: Task, count: Int) {
+    for (i in 0 until count) {
+      task.addTaskFile(TaskFile("file$i.txt", InMemoryTextualContents("text $i")))
+    }
+  }
+
+  private class RecordingStorage(private val storeDelayMs: Long = 0) : InMemoryLearningObjectsStorage() {
+    val batches: MutableList<List<String>> = Collections.synchronizedList(mutableListOf())
+
+    val disposed = CountDownLatch(1)
+
+    /**
+     * Holding the lock blocks [storeAll]
+     */
+    val storeLock = ReentrantLock()
+
+    @Volatile
+    var keysStoredBeforeDispose: Int = -1
+
+    override fun storeAll(values: Map<String, ByteArray>) {
+      Thread.sleep(storeDelayMs)
+      storeLock.withLock {
+        super.storeAll(values)
+        batches += values.keys.toList()
+      }
+    }
+
+    override fun dispose() {
+      keysStoredBeforeDispose = batches.sumOf { it.size }
+      disposed.countDown()
+    }
+  }
+}
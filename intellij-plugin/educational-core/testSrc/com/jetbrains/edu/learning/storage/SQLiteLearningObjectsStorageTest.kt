@@ -0,0 +1,148 @@
+package com.jetbrains.edu.learning.storage
+
+import com.intellij.openapi.util.io.FileUtil
+import com.jetbrains.edu.learning.EduTestCase
+import org.jetbrains.sqlite.ObjectBinder
+import org.jetbrains.sqlite.SqliteConnection
+import org.junit.Test
+import java.nio.file.Path
+import kotlin.io.path.createTempDirectory
+
+@Suppress("SqlNoDataSourceInspection", "SqlResolve")
+class SQLiteLearningObjectsStorageTest : EduTestCase() {
+
+  private lateinit var dbDir: Path
+  private val dbPath: Path get() = dbDir.resolve("storage.db")
+  private var storage: SQLiteLearningObjectsStorage? = null
+
+  override fun setUp() {
+    super.setUp()
+    dbDir = createTempDirectory("learning-objects")
+  }
+
+  override fun tearDown() {
+    try {
+      storage?.dispose()
+      FileUtil.delete(dbDir)
+    }
+    catch (e: Throwable) {
+      addSuppressedException(e)
+    }
+    finally {
+      super.tearDown()
+    }
+  }
+
+  @Test
+  fun `test identical contents are stored once`() {
+    val storage = openStorage()
+    storage.store("task1/Main.kt", "fun main() {}")
+    storage.storeAll(mapOf("task2/Main.kt" to "fun main() {}".toByteArray(), "task2/Util.kt" to "fun util() {}".toByteArray()))
+
+    assertEquals("fun main() {}", storage.load("task1/Main.kt").decodeToString())
+    assertEquals("fun main() {}", storage.load("task2/Main.kt").decodeToString())
+    assertEquals("fun util() {}", storage.load("task2/Util.kt").decodeToString())
+    assertEquals(mapOf("fun main() {}" to 2, "fun util() {}" to 1), blobs())
+  }
+
+  @Test
+  fun `test overwrite releases previous contents`() {
+    val storage = openStorage()
+    storage.store("task1/Main.kt", "old")
+    storage.store("task2/Main.kt", "old")
+
+    storage.store("task1/Main.kt", "new")
+    assertEquals("new", storage.load("task1/Main.kt").decodeToString())
+    assertEquals("old", storage.load("task2/Main.kt").decodeToString())
+    assertEquals(mapOf("old" to 1, "new" to 1), blobs())
+  }
+
+  @Test
+  fun `test contents are removed when references reach zero`() {
+    val storage = openStorage()
+    storage.store("task1/Main.kt", "old")
+    storage.store("task2/Main.kt", "old")
+
+    storage.storeAll(mapOf("task1/Main.kt" to "new".toByteArray(), "task2/Main.kt" to "new".toByteArray()))
+    assertEquals(mapOf("new" to 2), blobs())
+  }
+
+  @Test
+  fun `test storing the same contents again keeps references`() {
+    val storage = openStorage()
+    storage.store("task1/Main.kt", "text")
+    storage.store("task1/Main.kt", "text")
+    storage.storeAll(mapOf("task1/Main.kt" to "text".toByteArray()))
+
+    assertEquals(mapOf("text" to 1), blobs())
+  }
+
+  @Test
+  fun `test existing database is migrated`() {
+    withConnection { connection ->
+      connection.execute("CREATE TABLE `Contents` (`key` TEXT PRIMARY KEY, `value` BLOB)")
+      connection.execute("INSERT INTO `Contents`(`key`, `value`) VALUES ('task1/Main.kt', x'6d61696e'), ('task2/Main.kt', x'6d61696e'), ('task2/Empty.kt', NULL)")
+    }
+
+    val storage = openStorage()
+
+    assertEquals("main", storage.load("task1/Main.kt").decodeToString())
+    assertEquals("main", storage.load("task2/Main.kt").decodeToString())
+    assertEquals("", storage.load("task2/Empty.kt").decodeToString())
+    assertEquals(mapOf("main" to 2, "" to 1), blobs())
+    assertFalse(hasTable("Contents"))
+  }
+
+  @Test
+  fun `test migrated database is opened again`() {
+    withConnection { connection ->
+      connection.execute("CREATE TABLE `Contents` (`key` TEXT PRIMARY KEY, `value` BLOB)")
+      connection.execute("INSERT INTO `Contents`(`key`, `value`) VALUES ('task1/Main.kt', x'6d61696e')")
+    }
+    openStorage().dispose()
+    storage = null
+
+    val storage = openStorage()
+    assertEquals("main", storage.load("task1/Main.kt").decodeToString())
+    assertEquals(mapOf("main" to 1), blobs())
+  }
+
+  private fun openStorage(): SQLiteLearningObjectsStorage {
+    val storage = SQLiteLearningObjectsStorage.openOrCreateDB(dbPath)
+    this.storage = storage
+    return storage
+  }
+
+  /**
+   * @return reference counters of stored contents by the contents
+   */
+  private fun blobs(): Map<String, Int> = withConnection { connection ->
+    connection.statementPool(sql = "SELECT `value`, `refs` FROM `Blobs`") { ObjectBinder(0) }.use { statement, _ ->
+      val resultSet = statement.executeQuery()
+      val blobs = mutableMapOf<String, Int>()
+      while (resultSet.next()) {
+        blobs[(resultSet.getBytes(0) ?: byteArrayOf()).decodeToString()] = resultSet.getInt(1)
+      }
+      blobs
+    }
+  }
+
+  private fun hasTable(name: String): Boolean = withConnection { connection ->
+    connection.statementPool(sql = "SELECT COUNT(*) FROM `sqlite_master` WHERE `type`='table' AND `name`=?") { ObjectBinder(1) }
+      .use { statement, binder ->
+        binder.bind(name)
+        val resultSet = statement.executeQuery()
+        resultSet.next() && resultSet.getInt(0) > 0
+      }
+  }
+
+  private fun <T> withConnection(action: (SqliteConnection) -> T): T {
+    val connection = SqliteConnection(dbPath)
+    try {
+      return action(connection)
+    }
+    finally {
+      connection.close()
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.jetbrains.edu.learning.submissions
+
+import com.intellij.openapi.util.io.FileUtil
+import com.jetbrains.edu.learning.EduTestCase
+import com.jetbrains.edu.learning.marketplace.api.MarketplaceSubmission
+import org.junit.Test
+import java.nio.file.Path
+import java.util.*
+import java.util.concurrent.TimeUnit
+import kotlin.io.path.createTempDirectory
+
+class SubmissionsStorageTest : EduTestCase() {
+
+  private lateinit var dbDir: Path
+  private var storage: SubmissionsStorage? = null
+
+  override fun setUp() {
+    super.setUp()
+    dbDir = createTempDirectory("submissions")
+  }
+
+  override fun tearDown() {
+    try {
+      storage?.dispose()
+      FileUtil.delete(dbDir)
+    }
+    catch (e: Throwable) {
+      addSuppressedException(e)
+    }
+    finally {
+      super.tearDown()
+    }
+  }
+
+  @Test
+  fun `test stored submissions are loaded grouped by task`() {
+    val storage = openStorage()
+    storage.storeSubmissions(OWNER, listOf(submission(1, taskId = 10, time = 100), submission(2, taskId = 10, time = 200), submission(3, taskId = 20, time = 300)))
+
+    val submissions = storage.loadSubmissions(OWNER)
+    assertEquals(listOf(2, 1), submissions.getValue(10).map { it.id })
+    assertEquals(listOf(3), submissions.getValue(20).map { it.id })
+  }
+
+  @Test
+  fun `test submissions are kept after reopening`() {
+    openStorage().storeSubmissions(OWNER, listOf(submission(1, taskId = 10, time = 100)))
+    storage?.dispose()
+
+    val storage = openStorage()
+    assertEquals(listOf(1), storage.loadSubmissions(OWNER).getValue(10).map { it.id })
+    assertEquals(Date(100), storage.getWatermark(OWNER))
+  }
+
+  @Test
+  fun `test submissions with the same id are merged`() {
+    val storage = openStorage()
+    storage.storeSubmissions(OWNER, listOf(submission(1, taskId = 10, time = 100)))
+    storage.storeSubmissions(OWNER, listOf(submission(1, taskId = 10, time = 100, status = "correct")))
+
+    val submissions = storage.loadSubmissions(OWNER).getValue(10)
+    assertEquals(1, submissions.size)
+    assertEquals("correct", submissions.single().status)
+  }
+
+  @Test
+  fun `test watermark only moves forward`() {
+    val storage = openStorage()
+    assertNull(storage.getWatermark(OWNER))
+
+    storage.storeSubmissions(OWNER, listOf(submission(1, taskId = 10, time = 200)))
+    assertEquals(Date(200), storage.getWatermark(OWNER))
+
+    storage.storeSubmissions(OWNER, listOf(submission(2, taskId = 10, time = 100)))
+    assertEquals(Date(200), storage.getWatermark(OWNER))
+
+    storage.storeSubmissions(OWNER, listOf(submission(3, taskId = 10, time = 300)))
+    assertEquals(Date(300), storage.getWatermark(OWNER))
+  }
+
+  @Test
+  fun `test data of another owner is dropped`() {
+    val storage = openStorage()
+    storage.storeSubmissions(OWNER, listOf(submission(1, taskId = 10, time = 100)))
+    storage.storeSolutionFiles(1, listOf(SolutionFile("Main.kt", "text", true)))
+
+    assertEmpty(storage.loadSubmissions(ANOTHER_OWNER).entries)
+    assertNull(storage.getWatermark(ANOTHER_OWNER))
+
+    storage.storeSubmissions(ANOTHER_OWNER, listOf(submission(2, taskId = 10, time = 50)))
+    assertEquals(listOf(2), storage.loadSubmissions(ANOTHER_OWNER).getValue(10).map { it.id })
+    assertEquals(Date(50), storage.getWatermark(ANOTHER_OWNER))
+    assertNull(storage.loadSolutionFiles(1))
+    assertEmpty(storage.loadSubmissions(OWNER).entries)
+  }
+
+  @Test
+  fun `test full refresh is needed until submissions are replaced`() {
+    val storage = openStorage()
+    assertTrue(storage.isFullRefreshNeeded(OWNER, now = 1000))
+
+    storage.storeSubmissions(OWNER, listOf(submission(1, taskId = 10, time = 100)))
+    assertTrue(storage.isFullRefreshNeeded(OWNER, now = 1000))
+
+    storage.replaceSubmissions(OWNER, listOf(submission(1, taskId = 10, time = 100)), now = 1000)
+    assertFalse(storage.isFullRefreshNeeded(OWNER, now = 1000))
+    assertFalse(storage.isFullRefreshNeeded(OWNER, now = 1000 + TimeUnit.HOURS.toMillis(1)))
+    assertTrue(storage.isFullRefreshNeeded(OWNER, now = 1000 + TimeUnit.DAYS.toMillis(1)))
+    // clock moved back
+    assertTrue(storage.isFullRefreshNeeded(OWNER, now = 0))
+    assertTrue(storage.isFullRefreshNeeded(ANOTHER_OWNER, now = 1000))
+  }
+
+  @Test
+  fun `test replaced submissions remove deleted ones`() {
+    val storage = openStorage()
+    storage.storeSubmissions(OWNER, listOf(submission(1, taskId = 10, time = 100), submission(2, taskId = 10, time = 300)))
+    storage.storeSolutionFiles(1, listOf(SolutionFile("Main.kt", "first", true)))
+    storage.storeSolutionFiles(2, listOf(SolutionFile("Main.kt", "second", true)))
+
+    storage.replaceSubmissions(OWNER, listOf(submission(1, taskId = 10, time = 100), submission(3, taskId = 20, time = 200)))
+
+    val submissions = storage.loadSubmissions(OWNER)
+    assertEquals(listOf(1), submissions.getValue(10).map { it.id })
+    assertEquals(listOf(3), submissions.getValue(20).map { it.id })
+    assertEquals("first", storage.loadSolutionFiles(1)?.single()?.text)
+    assertNull(storage.loadSolutionFiles(2))
+    // the watermark of the deleted submission is dropped as well
+    assertEquals(Date(200), storage.getWatermark(OWNER))
+  }
+
+  @Test
+  fun `test replacing with no submissions clears the watermark`() {
+    val storage = openStorage()
+    storage.storeSubmissions(OWNER, listOf(submission(1, taskId = 10, time = 100)))
+
+    storage.replaceSubmissions(OWNER, emptyList())
+    assertEmpty(storage.loadSubmissions(OWNER).entries)
+    assertNull(storage.getWatermark(OWNER))
+  }
+
+  private fun openStorage(): SubmissionsStorage {
+    val storage = SubmissionsStorage(project, dbDir.resolve("submissions.db"))
+    this.storage = storage
+    return storage
+  }
+
+  private fun submission(id: Int, taskId: Int, time: Long, status: String = "wrong"): MarketplaceSubmission {
+    return MarketplaceSubmission().apply {
+      this.id = id
+      this.taskId = taskId
+      this.time = Date(time)
+      this.status = status
+    }
+  }
+
+  companion object {
+    private const val OWNER = "course:1:user"
+    private const val ANOTHER_OWNER = "course:1:another user"
+  }
+}
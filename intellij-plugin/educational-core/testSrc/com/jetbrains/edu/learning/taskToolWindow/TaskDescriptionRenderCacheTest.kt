@@ -0,0 +1,65 @@
+package com.jetbrains.edu.learning.taskToolWindow
+
+import com.intellij.openapi.application.runWriteAction
+import com.intellij.openapi.vfs.VfsUtil
+import com.jetbrains.edu.learning.EduTestCase
+import com.jetbrains.edu.learning.JavaUILibrary
+import com.jetbrains.edu.learning.courseFormat.CourseMode
+import com.jetbrains.edu.learning.courseFormat.DescriptionFormat
+import com.jetbrains.edu.learning.taskToolWindow.ui.TaskToolWindow
+import org.junit.Test
+
+class TaskDescriptionRenderCacheTest : EduTestCase() {
+
+  @Test
+  fun `test rendered description is reused`() {
+    createCourse(CourseMode.STUDENT)
+    val task = findTask(0, 0)
+
+    val description = TaskToolWindow.getTaskDescription(project, task, JavaUILibrary.JCEF)
+    assertSame(description, TaskToolWindow.getTaskDescription(project, task, JavaUILibrary.JCEF))
+  }
+
+  @Test
+  fun `test description is rendered again for another ui library`() {
+    createCourse(CourseMode.STUDENT)
+    val task = findTask(0, 0)
+
+    val jcefDescription = TaskToolWindow.getTaskDescription(project, task, JavaUILibrary.JCEF)
+    val swingDescription = TaskToolWindow.getTaskDescription(project, task, JavaUILibrary.SWING)
+    assertNotSame(jcefDescription, swingDescription)
+    assertEquals(swingDescription, TaskToolWindow.getTaskDescription(project, task, JavaUILibrary.SWING))
+  }
+
+  @Test
+  fun `test description is rendered again after text change`() {
+    createCourse(CourseMode.STUDENT)
+    val task = findTask(0, 0)
+
+    val description = TaskToolWindow.getTaskDescription(project, task, JavaUILibrary.JCEF)
+    runWriteAction { VfsUtil.saveText(findFile("lesson1/task1/task.html"), "<p>changed text</p>") }
+    val newDescription = TaskToolWindow.getTaskDescription(project, task, JavaUILibrary.JCEF)
+
+    assertFalse(description.contains("changed text"))
+    assertTrue(newDescription.contains("changed text"))
+  }
+
+  @Test
+  fun `test description is not cached in educator mode`() {
+    createCourse(CourseMode.EDUCATOR)
+    val task = findTask(0, 0)
+
+    val description = TaskToolWindow.getTaskDescription(project, task, JavaUILibrary.JCEF)
+    val newDescription = TaskToolWindow.getTaskDescription(project, task, JavaUILibrary.JCEF)
+    assertNotSame(description, newDescription)
+    assertEquals(description, newDescription)
+  }
+
+  private fun createCourse(courseMode: CourseMode) {
+    courseWithFiles(courseMode = courseMode) {
+      lesson("lesson1") {
+        eduTask("task1", taskDescription = "<p>task text</p>", taskDescriptionFormat = DescriptionFormat.HTML)
+      }
+    }
+  }
+}
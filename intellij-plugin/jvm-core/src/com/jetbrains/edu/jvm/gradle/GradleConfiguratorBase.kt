@@ -21,6 +21,7 @@ import com.jetbrains.edu.learning.gradle.GradleConstants.GRADLE_WRAPPER_UNIX
 import com.jetbrains.edu.learning.gradle.GradleConstants.GRADLE_WRAPPER_WIN
 import com.jetbrains.edu.learning.gradle.GradleConstants.LOCAL_PROPERTIES
 import com.jetbrains.edu.learning.gradle.GradleConstants.SETTINGS_GRADLE
+import com.jetbrains.edu.learning.gradle.GradleConstants.TASK_MODULES_MANIFEST
 import java.io.File
 import java.io.IOException
 
@@ -61,7 +62,7 @@ abstract class GradleConfiguratorBase : EduConfigurator<JdkProjectSettings> {
   companion object {
     private val NAMES_TO_EXCLUDE = ContainerUtil.newHashSet(
       "EduTestRunner.java", GRADLE_WRAPPER_UNIX, GRADLE_WRAPPER_WIN, LOCAL_PROPERTIES,
-      SETTINGS_GRADLE, GRADLE_WRAPPER_JAR, GRADLE_WRAPPER_PROPERTIES
+      SETTINGS_GRADLE, GRADLE_WRAPPER_JAR, GRADLE_WRAPPER_PROPERTIES, TASK_MODULES_MANIFEST
     )
 
     private val FOLDERS_TO_EXCLUDE = ContainerUtil.newHashSet(EduNames.OUT, EduNames.BUILD, GRADLE)
@@ -3,6 +3,7 @@ package com.jetbrains.edu.jvm.gradle
 import com.intellij.openapi.project.Project
 import com.jetbrains.edu.jvm.JdkLanguageSettings
 import com.jetbrains.edu.jvm.JdkProjectSettings
+import com.jetbrains.edu.jvm.gradle.generation.EduGradleUtils
 import com.jetbrains.edu.jvm.gradle.generation.GradleCourseProjectGenerator
 import com.jetbrains.edu.learning.*
 import com.jetbrains.edu.learning.EduNames.PROJECT_NAME
@@ -30,6 +31,12 @@ abstract class GradleCourseBuilderBase : EduCourseBuilder<JdkProjectSettings> {
   }
 
   override fun refreshProject(project: Project, cause: RefreshCause) {
+    if (cause != RefreshCause.DEPENDENCIES_UPDATED) {
+      val course = project.course
+      if (course != null) {
+        EduGradleUtils.updateTaskModulesManifest(CourseInfoHolder.fromCourse(course, project.courseDir))
+      }
+    }
     GradleCourseRefresher.firstAvailable()?.refresh(project, cause)
   }
 
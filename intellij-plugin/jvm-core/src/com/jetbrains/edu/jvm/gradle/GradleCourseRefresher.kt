@@ -6,7 +6,11 @@ import com.jetbrains.edu.learning.RefreshCause
 
 interface GradleCourseRefresher {
   fun isAvailable(): Boolean
-  fun refresh(project: Project, cause: RefreshCause)
+
+  /**
+   * @param force whether the project should be refreshed even if the refresher considers it up to date
+   */
+  fun refresh(project: Project, cause: RefreshCause, force: Boolean = false)
 
   companion object {
     val EP_NAME: ExtensionPointName<GradleCourseRefresher> = ExtensionPointName.create("Educational.gradleRefresher")
@@ -0,0 +1,207 @@
+package com.jetbrains.edu.jvm.gradle
+
+import com.intellij.ide.projectView.ProjectView
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.ModalityState
+import com.intellij.openapi.application.runReadAction
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.components.service
+import com.intellij.openapi.diagnostic.logger
+import com.intellij.openapi.externalSystem.importing.ImportSpecBuilder
+import com.intellij.openapi.externalSystem.model.ExternalSystemDataKeys
+import com.intellij.openapi.externalSystem.service.execution.ProgressExecutionMode
+import com.intellij.openapi.externalSystem.service.project.manage.ProjectDataImportListener
+import com.intellij.openapi.externalSystem.util.ExternalSystemUtil
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.io.FileUtil
+import com.intellij.openapi.vfs.VfsUtilCore
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.openapi.vfs.VirtualFileFilter
+import com.intellij.util.ui.update.MergingUpdateQueue
+import com.intellij.util.ui.update.Update
+import com.jetbrains.edu.jvm.gradle.generation.EduGradleUtils
+import com.jetbrains.edu.learning.*
+import com.jetbrains.edu.learning.gradle.GradleConstants.GRADLE_PROPERTIES
+import com.jetbrains.edu.learning.projectView.CourseViewPane
+import org.jetbrains.annotations.TestOnly
+import org.jetbrains.plugins.gradle.util.GradleConstants
+
+/**
+ * Coalesces Gradle sync requests of a course project and skips the ones which can't change the imported project.
+ *
+ * Structure modifications coming in a burst are merged into a single request,
+ * and the sync is started only if the set of task modules or build scripts have changed since the previous successful sync.
+ * Build scripts include root ones and all `*.gradle(.kts)` files of tasks and the `util` module,
+ * since navigation in framework lessons may replace build scripts of the task module.
+ * Build scripts are compared by their VFS modification stamps, so their texts are not read.
+ * Project creation, dependency updates and forced requests always sync the project.
+ */
+@Service(Service.Level.PROJECT)
+class GradleCourseSyncQueue @TestOnly internal constructor(
+  private val project: Project,
+  private val mergeRequests: Boolean,
+  private val refreshProject: (projectBasePath: String) -> Unit
+) : Disposable {
+
+  @Suppress("unused") // used by the service container
+  constructor(project: Project) : this(project, !isUnitTestMode, { projectBasePath -> refreshGradleProject(project, projectBasePath) })
+
+  private val queue = MergingUpdateQueue(SYNC_REQUEST, MERGING_TIME_SPAN_MS, true, null, this).apply {
+    setRestartTimerOnAdd(true)
+    isPassThrough = false
+  }
+
+  /**
+   * State of the project during the last successful sync
+   */
+  @Volatile
+  private var lastSyncedState: SyncState? = null
+
+  /**
+   * State of the project during the running sync, it becomes [lastSyncedState] only when the sync succeeds
+   */
+  @Volatile
+  private var pendingState: SyncState? = null
+
+  init {
+    project.messageBus.connect(this).subscribe(ProjectDataImportListener.TOPIC, object : ProjectDataImportListener {
+      override fun onImportFinished(projectPath: String?) {
+        if (!isCourseProjectPath(projectPath)) return
+        lastSyncedState = pendingState
+        pendingState = null
+      }
+
+      override fun onImportFailed(projectPath: String?, t: Throwable) {
+        if (!isCourseProjectPath(projectPath)) return
+        lastSyncedState = null
+        pendingState = null
+      }
+    })
+  }
+
+  /**
+   * @param force whether the project should be synced even if nothing has changed since the last sync,
+   * e.g. if the user explicitly asked to reload the project
+   */
+  fun requestSync(cause: RefreshCause, force: Boolean = false) {
+    when {
+      force || cause != RefreshCause.STRUCTURE_MODIFIED -> {
+        // the full sync covers all the pending requests
+        queue.cancelAllUpdates()
+        sync(computeState())
+      }
+      !mergeRequests -> syncIfChanged()
+      else -> queue.queue(Update.create(SYNC_REQUEST) { syncIfChanged() })
+    }
+  }
+
+  @TestOnly
+  internal fun flush() {
+    queue.flush()
+  }
+
+  private fun syncIfChanged() {
+    if (project.isDisposed) return
+    val state = computeState()
+    if (state != null && state == lastSyncedState) {
+      LOG.info("Gradle sync is skipped since task modules and build scripts haven't changed")
+      return
+    }
+    sync(state)
+  }
+
+  private fun sync(state: SyncState?) {
+    val projectBasePath = project.basePath ?: return
+    // the project doesn't match any synced state until the sync succeeds
+    lastSyncedState = null
+    pendingState = state
+    refreshProject(projectBasePath)
+  }
+
+  private fun isCourseProjectPath(projectPath: String?): Boolean {
+    val projectBasePath = project.basePath ?: return false
+    return projectPath == null || FileUtil.pathsEqual(projectPath, projectBasePath)
+  }
+
+  /**
+   * @return the state of the project which affects Gradle sync, or `null` if it can't be computed
+   */
+  private fun computeState(): SyncState? {
+    val course = project.course ?: return null
+    val courseDir = project.courseDir
+    val taskDirs = EduGradleUtils.collectTaskDirPaths(CourseInfoHolder.fromCourse(course, courseDir))
+    val buildScripts = runReadAction {
+      val buildScripts = HashMap<String, Long?>()
+      for (name in ROOT_BUILD_SCRIPTS) {
+        buildScripts[name] = courseDir.findChild(name)?.modificationStamp
+      }
+      for (path in taskDirs + UTIL_DIR) {
+        val dir = courseDir.findFileByRelativePath(path) ?: continue
+        collectBuildScripts(courseDir, dir, buildScripts)
+      }
+      buildScripts
+    }
+    return SyncState(taskDirs, buildScripts)
+  }
+
+  /**
+   * Puts modification stamps of all Gradle build scripts in [dir] to [buildScripts] by their paths relative to [courseDir].
+   * Build outputs are skipped
+   */
+  private fun collectBuildScripts(courseDir: VirtualFile, dir: VirtualFile, buildScripts: MutableMap<String, Long?>) {
+    val filter = VirtualFileFilter { file -> !file.isDirectory || file.name !in SKIPPED_DIRS }
+    VfsUtilCore.iterateChildrenRecursively(dir, filter) { file ->
+      if (!file.isDirectory && (file.name.endsWith(GRADLE_SCRIPT_EXTENSION) || file.name.endsWith(KOTLIN_DSL_SCRIPT_EXTENSION))) {
+        val path = VfsUtilCore.getRelativePath(file, courseDir)
+        if (path != null) {
+          buildScripts[path] = file.modificationStamp
+        }
+      }
+      true
+    }
+  }
+
+  override fun dispose() {}
+
+  private data class SyncState(val taskDirs: Set<String>, val buildScripts: Map<String, Long?>)
+
+  companion object {
+    private val LOG = logger<GradleCourseSyncQueue>()
+
+    private const val SYNC_REQUEST: String = "Gradle course sync request"
+
+    private const val MERGING_TIME_SPAN_MS = 300
+
+    private val ROOT_BUILD_SCRIPTS = listOf(
+      GradleConstants.DEFAULT_SCRIPT_NAME,
+      GradleConstants.KOTLIN_DSL_SCRIPT_NAME,
+      GradleConstants.SETTINGS_FILE_NAME,
+      GradleConstants.KOTLIN_DSL_SETTINGS_FILE_NAME,
+      GRADLE_PROPERTIES
+    )
+
+    private const val UTIL_DIR = "util"
+
+    private const val GRADLE_SCRIPT_EXTENSION = ".gradle"
+    private const val KOTLIN_DSL_SCRIPT_EXTENSION = ".gradle.kts"
+
+    private val SKIPPED_DIRS = setOf("build", ".gradle")
+
+    fun getInstance(project: Project): GradleCourseSyncQueue = project.service()
+
+    private fun refreshGradleProject(project: Project, projectBasePath: String) {
+      val builder = ImportSpecBuilder(project, GradleConstants.SYSTEM_ID)
+        .use(ProgressExecutionMode.IN_BACKGROUND_ASYNC)
+        .dontReportRefreshErrors()
+
+      // Build toolwindow will be opened if `ExternalSystemDataKeys.NEWLY_IMPORTED_PROJECT` is true while sync
+      project.putUserData(ExternalSystemDataKeys.NEWLY_IMPORTED_PROJECT, null)
+      ExternalSystemUtil.refreshProject(projectBasePath, builder.build())
+      if (!isUnitTestMode) {
+        ExternalSystemUtil.invokeLater(project, ModalityState.NON_MODAL) {
+          ProjectView.getInstance(project).changeViewCB(CourseViewPane.ID, null)
+        }
+      }
+    }
+  }
+}
@@ -35,7 +35,7 @@ class GradleEnvironmentChecker : EnvironmentChecker() {
       EduGradleUtils.updateGradleSettings(project)
       EduGradleUtils.setupGradleProject(project)
       val refresher = GradleCourseRefresher.firstAvailable() ?: error("Can not find Gradle course refresher")
-      refresher.refresh(project, RefreshCause.STRUCTURE_MODIFIED)
+      refresher.refresh(project, RefreshCause.STRUCTURE_MODIFIED, force = true)
     }
 
     private const val RELOAD_GRADLE_LINK: String = "reload_gradle"
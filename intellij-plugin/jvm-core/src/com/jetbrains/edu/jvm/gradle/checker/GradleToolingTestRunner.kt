@@ -0,0 +1,201 @@
+package com.jetbrains.edu.jvm.gradle.checker
+
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.components.Service
+import com.intellij.openapi.components.service
+import com.intellij.openapi.diagnostic.logger
+import com.intellij.openapi.progress.ProcessCanceledException
+import com.intellij.openapi.progress.ProgressIndicator
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.roots.ProjectRootManager
+import com.intellij.openapi.util.registry.Registry
+import com.jetbrains.edu.learning.checker.CheckUtils
+import com.jetbrains.edu.learning.checker.CheckUtils.fillWithIncorrect
+import com.jetbrains.edu.learning.courseFormat.CheckResult
+import com.jetbrains.edu.learning.courseFormat.CheckResultDiff
+import com.jetbrains.edu.learning.courseFormat.CheckStatus
+import com.jetbrains.edu.learning.courseFormat.EduTestInfo
+import com.jetbrains.edu.learning.courseFormat.EduTestInfo.PresentableStatus
+import com.jetbrains.edu.learning.messages.EduFormatBundle
+import com.jetbrains.edu.learning.xmlEscaped
+import org.gradle.tooling.*
+import org.gradle.tooling.events.OperationType
+import org.gradle.tooling.events.ProgressEvent
+import org.gradle.tooling.events.ProgressListener
+import org.gradle.tooling.events.test.*
+import org.jetbrains.annotations.NonNls
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.util.concurrent.CompletableFuture
+
+/**
+ * Runs tests of Gradle tasks through a long-lived Tooling API connection,
+ * so checking reuses a warm Gradle daemon with its incremental compilation state
+ * instead of starting a new `gradlew` process every time.
+ *
+ * Test results are collected from Tooling API test events rather than parsed from the output.
+ *
+ * @see NewGradleEduTaskChecker
+ */
+@Service(Service.Level.PROJECT)
+class GradleToolingTestRunner(private val project: Project) : Disposable {
+
+  private val connectionLock = Any()
+
+  /**
+   * Guarded by [connectionLock]
+   */
+  private var connection: ProjectConnection? = null
+
+  /**
+   * Runs [gradleTask] with [arguments] and collects results of its tests
+   *
+   * @return check result built from test events, or `null` if Gradle can't be launched with Tooling API
+   */
+  fun runTests(gradleTask: String, arguments: List<String>, indicator: ProgressIndicator): CheckResult? {
+    val javaHome = ProjectRootManager.getInstance(project).projectSdk?.homePath ?: return null
+    val connection = getOrCreateConnection() ?: return null
+
+    val testEvents = TestEventsCollector()
+    val stderr = ByteArrayOutputStream()
+    val tokenSource = GradleConnector.newCancellationTokenSource()
+    val buildFailure = CompletableFuture<GradleConnectionException?>()
+
+    try {
+      connection.newBuild()
+        .forTasks(gradleTask)
+        .withArguments(arguments)
+        .setJavaHome(File(javaHome))
+        .setJvmArguments(UTF_8_ENCODING_PARAM)
+        .setStandardError(stderr)
+        .addProgressListener(testEvents, OperationType.TEST)
+        .withCancellationToken(tokenSource.token())
+        .run(object : ResultHandler<Void?> {
+          override fun onComplete(result: Void?) {
+            buildFailure.complete(null)
+          }
+
+          override fun onFailure(failure: GradleConnectionException) {
+            buildFailure.complete(failure)
+          }
+        })
+    }
+    catch (e: GradleConnectionException) {
+      LOG.info("Failed to launch $gradleTask with Gradle Tooling API", e)
+      closeConnection(connection)
+      return null
+    }
+
+    val failure = try {
+      ProgressIndicatorUtils.awaitWithCheckCanceled(buildFailure, indicator)
+    }
+    catch (e: ProcessCanceledException) {
+      tokenSource.cancel()
+      throw e
+    }
+
+    val tests = testEvents.tests
+    return when {
+      tests.any { it.status == PresentableStatus.FAILED.value } -> CheckResult(CheckStatus.Failed, executedTestsInfo = tests)
+      failure == null && tests.isNotEmpty() -> CheckResult(CheckStatus.Solved, CheckUtils.CONGRATULATIONS, executedTestsInfo = tests)
+      failure == null -> CheckResult.noTestsRun
+      failure is BuildException -> {
+        val output = stderr.toString(Charsets.UTF_8)
+        GradleStderrAnalyzer.tryToGetCheckResult(output)
+        ?: CheckResult(CheckStatus.Failed, EduFormatBundle.message("error.failed.to.launch.checking"), output)
+      }
+      else -> {
+        // the daemon or the connection is broken, a new connection is created next time
+        LOG.info("Failed to run $gradleTask with Gradle Tooling API", failure)
+        closeConnection(connection)
+        null
+      }
+    }
+  }
+
+  private fun getOrCreateConnection(): ProjectConnection? {
+    val basePath = project.basePath ?: return null
+    synchronized(connectionLock) {
+      connection?.let { return it }
+      val newConnection = try {
+        GradleConnector.newConnector().forProjectDirectory(File(basePath)).connect()
+      }
+      catch (e: GradleConnectionException) {
+        LOG.info("Failed to connect to Gradle project in $basePath", e)
+        return null
+      }
+      connection = newConnection
+      return newConnection
+    }
+  }
+
+  private fun closeConnection(connection: ProjectConnection) {
+    synchronized(connectionLock) {
+      if (this.connection === connection) {
+        this.connection = null
+      }
+    }
+    connection.close()
+  }
+
+  override fun dispose() {
+    val lastConnection = synchronized(connectionLock) {
+      connection.also { connection = null }
+    }
+    lastConnection?.close()
+  }
+
+  /**
+   * Collects results of test methods in the order they are finished
+   */
+  private class TestEventsCollector : ProgressListener {
+    private val _tests = mutableListOf<EduTestInfo>()
+    val tests: List<EduTestInfo> get() = synchronized(_tests) { _tests.toList() }
+
+    override fun statusChanged(event: ProgressEvent) {
+      if (event !is TestFinishEvent) return
+      val descriptor = event.descriptor as? JvmTestOperationDescriptor ?: return
+      if (descriptor.jvmTestKind != JvmTestKind.ATOMIC) return
+
+      // Submission Service stores a test name with a maximum length of 255 characters, see `EduTaskCheckerBase`
+      val name = listOfNotNull(descriptor.className, descriptor.displayName).joinToString(":").take(245)
+      val testInfo = when (val result = event.result) {
+        is TestFailureResult -> {
+          val failure = result.failures.firstOrNull()
+          EduTestInfo(
+            name = name,
+            status = PresentableStatus.FAILED.value,
+            message = fillWithIncorrect(failure?.message.orEmpty()).xmlEscaped,
+            details = failure?.description,
+            isFinishedSuccessfully = false,
+            checkResultDiff = (failure as? TestAssertionFailure)?.toCheckResultDiff()
+          )
+        }
+        is TestSkippedResult -> EduTestInfo(name, PresentableStatus.SKIPPED.value)
+        else -> EduTestInfo(name, PresentableStatus.COMPLETED.value)
+      }
+      synchronized(_tests) {
+        val sameNameCount = _tests.count { it.name == testInfo.name }
+        _tests += if (sameNameCount > 0) testInfo.copy(name = "${testInfo.name}[$sameNameCount]") else testInfo
+      }
+    }
+
+    private fun TestAssertionFailure.toCheckResultDiff(): CheckResultDiff? {
+      val expected = expected ?: return null
+      val actual = actual ?: return null
+      return CheckResultDiff(expected, actual)
+    }
+  }
+
+  companion object {
+    private val LOG = logger<GradleToolingTestRunner>()
+
+    @NonNls
+    const val REGISTRY_KEY = "edu.gradle.checker.tooling.api"
+
+    fun isEnabled(): Boolean = Registry.`is`(REGISTRY_KEY, false)
+
+    fun getInstance(project: Project): GradleToolingTestRunner = project.service()
+  }
+}
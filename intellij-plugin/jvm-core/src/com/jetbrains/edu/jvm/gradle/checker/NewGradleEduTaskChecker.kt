@@ -2,27 +2,65 @@ package com.jetbrains.edu.jvm.gradle.checker
 
 import com.intellij.execution.RunnerAndConfigurationSettings
 import com.intellij.execution.testframework.sm.runner.SMTestProxy
+import com.intellij.openapi.application.runReadAction
 import com.intellij.openapi.progress.ProgressIndicator
 import com.intellij.openapi.project.Project
+import com.intellij.util.execution.ParametersListUtil
+import com.jetbrains.edu.learning.checker.CheckUtils
 import com.jetbrains.edu.learning.checker.EduTaskCheckerBase
 import com.jetbrains.edu.learning.checker.EnvironmentChecker
 import com.jetbrains.edu.learning.courseFormat.CheckResult
 import com.jetbrains.edu.learning.courseFormat.tasks.EduTask
 import com.jetbrains.edu.learning.messages.EduCoreBundle
 import com.jetbrains.edu.learning.xmlEscaped
+import org.jetbrains.plugins.gradle.service.execution.GradleRunConfiguration
 
 open class NewGradleEduTaskChecker(task: EduTask, envChecker: EnvironmentChecker, project: Project) :
   EduTaskCheckerBase(task, envChecker, project) {
 
+  override fun check(indicator: ProgressIndicator): CheckResult {
+    val toolingTestTask = if (GradleToolingTestRunner.isEnabled()) runReadAction { getToolingTestTask() } else null
+    if (toolingTestTask != null) {
+      val possibleError = envChecker.getEnvironmentError(project, task)
+      if (possibleError != null) {
+        return possibleError
+      }
+      val result = GradleToolingTestRunner.getInstance(project).runTests(toolingTestTask, task.getScopedBuildParams(project), indicator)
+      if (result != null) {
+        return result
+      }
+    }
+    return super.check(indicator)
+  }
+
+  /**
+   * @return Gradle task to run tests of the task with [GradleToolingTestRunner],
+   * or `null` if the tests should be run with run configurations
+   */
+  protected open fun getToolingTestTask(): String? {
+    if (CheckUtils.getCustomRunConfiguration(project, task) != null || !task.hasSeparateModule(project)) return null
+    return ":${getGradleProjectName(task)}:$TEST_TASK_NAME"
+  }
+
   override fun computePossibleErrorResult(indicator: ProgressIndicator, stderr: String): CheckResult {
-    return GradleCommandLine.create(project, ":${getGradleProjectName(task)}:testClasses")?.launchAndCheck(indicator)
+    val params = task.getScopedBuildParams(project).toTypedArray()
+    return GradleCommandLine.create(project, ":${getGradleProjectName(task)}:testClasses", *params)?.launchAndCheck(indicator)
            ?: CheckResult.failedToCheck
   }
 
   override fun createDefaultTestConfigurations(): List<RunnerAndConfigurationSettings> {
-    return withGradleTestRunner(project, task) {
+    val configurations = withGradleTestRunner(project, task) {
       createTestConfigurationsForTestDirectories()
     }.orEmpty()
+
+    val scopedBuildParams = task.getScopedBuildParams(project)
+    if (scopedBuildParams.isNotEmpty()) {
+      for (configuration in configurations) {
+        val settings = (configuration.configuration as? GradleRunConfiguration)?.settings ?: continue
+        settings.scriptParameters = "${settings.scriptParameters.orEmpty()} ${ParametersListUtil.join(scopedBuildParams)}".trim()
+      }
+    }
+    return configurations
   }
 
   override fun getErrorMessage(node: SMTestProxy): String {
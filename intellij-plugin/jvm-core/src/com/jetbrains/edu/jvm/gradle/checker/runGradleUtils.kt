@@ -3,15 +3,23 @@ package com.jetbrains.edu.jvm.gradle.checker
 import com.intellij.execution.ExecutionException
 import com.intellij.execution.configurations.GeneralCommandLine
 import com.intellij.execution.process.CapturingProcessHandler
+import com.intellij.execution.process.ProcessAdapter
+import com.intellij.execution.process.ProcessEvent
 import com.intellij.execution.process.ProcessOutput
+import com.intellij.execution.process.ProcessOutputType
+import com.intellij.openapi.application.runReadAction
 import com.intellij.openapi.diagnostic.Logger
 import com.intellij.openapi.externalSystem.util.ExternalSystemApiUtil
 import com.intellij.openapi.module.ModuleUtil
 import com.intellij.openapi.progress.ProgressIndicator
 import com.intellij.openapi.project.Project
 import com.intellij.openapi.roots.ProjectRootManager
+import com.intellij.openapi.util.Key
 import com.intellij.openapi.util.SystemInfo
 import com.intellij.openapi.util.io.FileUtil
+import com.intellij.openapi.util.registry.Registry
+import com.intellij.openapi.util.text.StringUtil
+import com.intellij.openapi.vfs.VfsUtilCore
 import com.jetbrains.edu.jvm.MainFileProvider
 import com.jetbrains.edu.jvm.messages.EduJVMBundle
 import com.jetbrains.edu.learning.*
@@ -50,28 +58,61 @@ const val CHECKER_VERSION = "#educational_plugin_checker_version "
 
 const val TEST_TASK_NAME = "test"
 
+// Should be passed to gradle command to include only the given task directory and `util` into the build.
+// See `settings.gradle.ft`
+const val EDUCATIONAL_TASK_DIR_PROPERTY_PREFIX = "-PeducationalTaskDir="
+
+const val SCOPED_BUILD_REGISTRY_KEY = "edu.gradle.scoped.build"
+
 fun getGradleProjectName(task: Task) =
   if (task.lesson.section != null)
     "${gradleSanitizeName(task.lesson.section!!.name)}-${gradleSanitizeName(task.lesson.name)}-${gradleSanitizeName(task.dirName)}"
   else
     "${gradleSanitizeName(task.lesson.name)}-${gradleSanitizeName(task.dirName)}"
 
+/**
+ * Parameters which make Gradle configure only the module of the task instead of modules of all tasks of the course.
+ *
+ * Learners work with a single task at a time (a framework lesson even has a single task directory for all its tasks),
+ * so there is no need to configure the others on every launch. Used only for courses with a module per task
+ */
+fun Task.getScopedBuildParams(project: Project): List<String> {
+  if (!course.isStudy || !Registry.`is`(SCOPED_BUILD_REGISTRY_KEY, true)) return emptyList()
+  return runReadAction {
+    if (!hasSeparateModule(project)) return@runReadAction emptyList()
+    val courseDir = project.courseDir
+    val taskDir = getDir(courseDir) ?: return@runReadAction emptyList()
+    val taskPath = VfsUtilCore.getRelativePath(taskDir, courseDir) ?: return@runReadAction emptyList()
+    listOf("$EDUCATIONAL_TASK_DIR_PROPERTY_PREFIX$taskPath")
+  }
+}
+
 class GradleCommandLine private constructor(
   private val cmd: GeneralCommandLine,
   private val taskName: String
 ) {
 
   fun launchAndCheck(indicator: ProgressIndicator): CheckResult {
-    val output = launch(indicator) ?: return CheckResult.failedToCheck
+    // TODO: do not use `TestsOutputParser` here
+    val parser = TestsOutputParser()
+    val output = launch(indicator) { message -> parser.accept(STUDY_PREFIX + postProcessOutput(message)) }
+                 ?: return CheckResult.failedToCheck
     if (!output.isSuccess) return CheckResult(CheckStatus.Failed, output.firstMessage.xmlEscaped, output.messages.joinToString("\n"))
 
-    // TODO: do not use `TestsOutputParser` here
-    return TestsOutputParser().getCheckResult(output.messages.map { STUDY_PREFIX + it }, needEscapeResult = true)
+    return parser.getCheckResult(needEscapeResult = true)
   }
 
-  fun launch(indicator: ProgressIndicator): GradleOutput? {
+  /**
+   * @param messageConsumer if passed, receives messages of the output while the process is running,
+   * and [GradleOutput.messages] of successful output are not collected.
+   * Too long messages are truncated, since they are supposed to be parsed with [TestsOutputParser]
+   */
+  fun launch(indicator: ProgressIndicator, messageConsumer: ((String) -> Unit)? = null): GradleOutput? {
     val output = try {
       val handler = CapturingProcessHandler(cmd)
+      if (messageConsumer != null) {
+        handler.addProcessListener(GradleMessagesListener(GradleMessagesCollector(MAX_STREAMED_MESSAGE_LENGTH, messageConsumer)))
+      }
       handler.runProcessWithProgressIndicator(indicator)
     }
     catch (e: ExecutionException) {
@@ -94,49 +135,27 @@ class GradleCommandLine private constructor(
       return GradleOutput(false, listOf(EduFormatBundle.message("error.failed.to.launch.checking"), stderr, output.stdout))
     }
 
+    if (messageConsumer != null) return GradleOutput(true, emptyList())
     return GradleOutput(true, collectMessages(output))
   }
 
   private fun collectMessages(output: ProcessOutput): List<String> {
-    val currentMessage = mutableListOf<String>()
     val allMessages = mutableListOf<String>()
-
-    var checkerVersion = 0
-
-    fun addCurrentMessageIfNeeded() {
-      if (currentMessage.isNotEmpty()) {
-        allMessages += currentMessage.joinToString("")
-      }
-    }
-
+    val collector = GradleMessagesCollector(Int.MAX_VALUE) { allMessages += it }
     for (line in output.stdoutLines) {
-      if (line.startsWith(CHECKER_VERSION)) {
-        checkerVersion = line.removePrefix(CHECKER_VERSION).toInt()
-        continue
-      }
-      if (line.startsWith(STUDY_PREFIX)) {
-        val messageLine = line.removePrefix(STUDY_PREFIX)
-        currentMessage.add(computeCurrentMessage(messageLine, checkerVersion))
-      }
-      else {
-        addCurrentMessageIfNeeded()
-        currentMessage.clear()
-      }
+      collector.acceptLine(line)
     }
-
-    addCurrentMessageIfNeeded()
+    collector.finish()
     return allMessages
   }
 
-  private fun computeCurrentMessage(messageLine: String, checkerVersion: Int): String {
-    if (checkerVersion == 0) return messageLine + "\n"
-    return messageLine.ifEmpty { "\n" }
-  }
-
   companion object {
 
     private val LOG: Logger = Logger.getInstance(GradleCommandLine::class.java)
 
+    // longer than `TestsOutputParser` keeps, so it knows that the message is truncated
+    private const val MAX_STREAMED_MESSAGE_LENGTH = TestsOutputParser.MAX_FAILED_MESSAGE_LENGTH + STUDY_PREFIX.length + 1
+
     fun create(project: Project, command: String, vararg additionalParams: String): GradleCommandLine? {
       val basePath = project.basePath ?: return null
       val projectJdkPath = ProjectRootManager.getInstance(project).projectSdk?.homePath ?: return null
@@ -166,6 +185,81 @@ class GradleCommandLine private constructor(
   }
 }
 
+/**
+ * Groups consecutive lines of gradle output printed with [STUDY_PREFIX] into messages
+ */
+private class GradleMessagesCollector(private val maxMessageLength: Int, private val consumer: (String) -> Unit) {
+  private val currentMessage = StringBuilder()
+  private var hasCurrentMessage = false
+  private var checkerVersion = 0
+
+  fun acceptLine(line: String) {
+    if (line.startsWith(CHECKER_VERSION)) {
+      checkerVersion = line.removePrefix(CHECKER_VERSION).toInt()
+      return
+    }
+    if (line.startsWith(STUDY_PREFIX)) {
+      val messageLine = line.removePrefix(STUDY_PREFIX)
+      appendToCurrentMessage(computeCurrentMessage(messageLine))
+      hasCurrentMessage = true
+    }
+    else {
+      finish()
+    }
+  }
+
+  fun finish() {
+    if (hasCurrentMessage) {
+      consumer(currentMessage.toString())
+    }
+    currentMessage.setLength(0)
+    hasCurrentMessage = false
+  }
+
+  private fun appendToCurrentMessage(text: String) {
+    val remaining = maxMessageLength - currentMessage.length
+    if (remaining <= 0) return
+    if (text.length > remaining) {
+      currentMessage.append(text, 0, remaining)
+    }
+    else {
+      currentMessage.append(text)
+    }
+  }
+
+  private fun computeCurrentMessage(messageLine: String): String {
+    if (checkerVersion == 0) return messageLine + "\n"
+    return messageLine.ifEmpty { "\n" }
+  }
+}
+
+/**
+ * Splits stdout of the process into lines and passes them to [collector] while the process is running
+ */
+private class GradleMessagesListener(private val collector: GradleMessagesCollector) : ProcessAdapter() {
+  private val pendingText = StringBuilder()
+
+  override fun onTextAvailable(event: ProcessEvent, outputType: Key<*>) {
+    if (!ProcessOutputType.isStdout(outputType)) return
+    pendingText.append(event.text)
+    val lastLineEnd = maxOf(pendingText.lastIndexOf("\n"), pendingText.lastIndexOf("\r"))
+    if (lastLineEnd < 0) return
+    val completeLines = pendingText.substring(0, lastLineEnd + 1)
+    pendingText.delete(0, lastLineEnd + 1)
+    for (line in StringUtil.splitByLines(completeLines, true)) {
+      collector.acceptLine(line)
+    }
+  }
+
+  override fun processTerminated(event: ProcessEvent) {
+    for (line in StringUtil.splitByLines(pendingText.toString(), true)) {
+      collector.acceptLine(line)
+    }
+    pendingText.setLength(0)
+    collector.finish()
+  }
+}
+
 class GradleOutput(val isSuccess: Boolean, _messages: List<String>) {
   val messages = _messages.map { postProcessOutput(it) }
 
@@ -185,7 +279,8 @@ fun runGradleRunTask(project: Project, task: Task, indicator: ProgressIndicator)
     project,
     taskName,
     "$MAIN_CLASS_PROPERTY_PREFIX$mainClassName",
-    EDUCATIONAL_RUN_PROPERTY
+    EDUCATIONAL_RUN_PROPERTY,
+    *task.getScopedBuildParams(project).toTypedArray()
   )
                        ?.launch(indicator)
                      ?: return Err(GradleEnvironmentChecker.getFailedToLaunchCheckingResult(project))
@@ -1,6 +1,8 @@
 package com.jetbrains.edu.jvm.gradle.generation
 
 import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.application.runReadAction
+import com.intellij.openapi.diagnostic.logger
 import com.intellij.openapi.externalSystem.service.execution.ExternalSystemJdkUtil
 import com.intellij.openapi.externalSystem.service.execution.ExternalSystemJdkUtil.USE_INTERNAL_JAVA
 import com.intellij.openapi.externalSystem.service.execution.ExternalSystemJdkUtil.USE_PROJECT_JDK
@@ -11,6 +13,7 @@ import com.intellij.openapi.projectRoots.JavaSdkVersion
 import com.intellij.openapi.projectRoots.Sdk
 import com.intellij.openapi.roots.ProjectRootManager
 import com.intellij.openapi.util.io.FileUtil
+import com.intellij.openapi.vfs.VfsUtilCore
 import com.intellij.openapi.vfs.VirtualFileManager
 import com.jetbrains.edu.jvm.gradle.GradleWrapperListener
 import com.jetbrains.edu.jvm.messages.EduJVMBundle
@@ -18,8 +21,11 @@ import com.jetbrains.edu.learning.CourseInfoHolder
 import com.jetbrains.edu.learning.StudyTaskManager
 import com.jetbrains.edu.learning.computeUnderProgress
 import com.jetbrains.edu.learning.courseFormat.Course
+import com.jetbrains.edu.learning.courseFormat.ext.getDir
 import com.jetbrains.edu.learning.courseGeneration.GeneratorUtils.createFileFromTemplate
+import com.jetbrains.edu.learning.courseGeneration.GeneratorUtils.createTextChildFile
 import com.jetbrains.edu.learning.gradle.GradleConstants.GRADLE_WRAPPER_UNIX
+import com.jetbrains.edu.learning.gradle.GradleConstants.TASK_MODULES_MANIFEST
 import org.jetbrains.plugins.gradle.settings.DistributionType
 import org.jetbrains.plugins.gradle.settings.GradleProjectSettings
 import org.jetbrains.plugins.gradle.util.GradleConstants
@@ -54,6 +60,42 @@ object EduGradleUtils {
     }
   }
 
+  /**
+   * Writes [TASK_MODULES_MANIFEST] with directories of all tasks of the course if `settings.gradle` of the project reads it.
+   * The file is rewritten only if the list of directories has changed
+   */
+  fun updateTaskModulesManifest(holder: CourseInfoHolder<Course>) {
+    val courseDir = holder.courseDir
+    val settingsFile = courseDir.findChild(GradleConstants.SETTINGS_FILE_NAME) ?: return
+    try {
+      if (!VfsUtilCore.loadText(settingsFile).contains(TASK_MODULES_MANIFEST)) return
+
+      val text = collectTaskDirPaths(holder).joinToString("") { "$it\n" }
+
+      val manifest = courseDir.findChild(TASK_MODULES_MANIFEST)
+      if (manifest != null && VfsUtilCore.loadText(manifest) == text) return
+      createTextChildFile(holder, courseDir, TASK_MODULES_MANIFEST, text)
+    }
+    catch (e: IOException) {
+      LOG.warn("Failed to update $TASK_MODULES_MANIFEST", e)
+    }
+  }
+
+  /**
+   * @return paths of directories of all tasks of the course relative to the course directory, in the course order
+   */
+  fun collectTaskDirPaths(holder: CourseInfoHolder<Course>): Set<String> {
+    val courseDir = holder.courseDir
+    val taskDirs = linkedSetOf<String>()
+    runReadAction {
+      holder.course.visitTasks { task ->
+        val taskDir = task.getDir(courseDir) ?: return@visitTasks
+        taskDirs += VfsUtilCore.getRelativePath(taskDir, courseDir) ?: return@visitTasks
+      }
+    }
+    return taskDirs
+  }
+
   fun setGradleSettings(project: Project, sdk: Sdk?, location: String, distributionType: DistributionType = DistributionType.WRAPPED) {
     val systemSettings = ExternalSystemApiUtil.getSettings(project, GradleConstants.SYSTEM_ID)
     val existingProject = ExternalSystemApiUtil.getSettings(project, GradleConstants.SYSTEM_ID).getLinkedProjectSettings(location)
@@ -119,4 +161,6 @@ object EduGradleUtils {
       }
     }
   }
+
+  private val LOG = logger<EduGradleUtils>()
 }
@@ -37,6 +37,7 @@ open class GradleCourseProjectGenerator(
       gradleCourseBuilder.templates(holder.course),
       gradleCourseBuilder.templateVariables(holder.courseDir.name)
     )
+    EduGradleUtils.updateTaskModulesManifest(holder)
   }
 
   protected open fun getJdk(settings: JdkProjectSettings): Sdk? {
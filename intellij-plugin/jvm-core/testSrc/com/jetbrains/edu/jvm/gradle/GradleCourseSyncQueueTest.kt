@@ -0,0 +1,112 @@
+package com.jetbrains.edu.jvm.gradle
+
+import com.intellij.openapi.application.runWriteAction
+import com.intellij.openapi.externalSystem.service.project.manage.ProjectDataImportListener
+import com.intellij.openapi.util.Disposer
+import com.intellij.openapi.vfs.VfsUtil
+import com.jetbrains.edu.learning.EduTestCase
+import com.jetbrains.edu.learning.RefreshCause
+import com.jetbrains.edu.learning.configurators.FakeGradleBasedLanguage
+import com.jetbrains.edu.learning.courseDir
+import com.jetbrains.edu.learning.courseGeneration.GeneratorUtils
+import org.junit.Test
+
+class GradleCourseSyncQueueTest : EduTestCase() {
+
+  private lateinit var queue: GradleCourseSyncQueue
+  private var syncs = 0
+
+  override fun setUp() {
+    super.setUp()
+    courseWithFiles(language = FakeGradleBasedLanguage) {
+      lesson("lesson1") {
+        eduTask("task1") {
+          taskFile("src/Task.kt", "fun foo() {}")
+          taskFile("build.gradle", "apply plugin: 'java'")
+        }
+      }
+    }
+    queue = GradleCourseSyncQueue(project, mergeRequests = true) { syncs++ }
+    Disposer.register(testRootDisposable, queue)
+  }
+
+  @Test
+  fun `test requests are merged`() {
+    repeat(3) { queue.requestSync(RefreshCause.STRUCTURE_MODIFIED) }
+    queue.flush()
+    assertEquals(1, syncs)
+  }
+
+  @Test
+  fun `test unchanged project is not synced again`() {
+    requestStructureSync()
+    finishImport()
+
+    requestStructureSync()
+    assertEquals(1, syncs)
+  }
+
+  @Test
+  fun `test project is synced again until sync succeeds`() {
+    requestStructureSync()
+    // the first sync is still running
+    requestStructureSync()
+    assertEquals(2, syncs)
+
+    project.messageBus.syncPublisher(ProjectDataImportListener.TOPIC).onImportFailed(project.basePath, RuntimeException())
+    requestStructureSync()
+    assertEquals(3, syncs)
+
+    finishImport()
+    requestStructureSync()
+    assertEquals(3, syncs)
+  }
+
+  @Test
+  fun `test changed task build script causes sync`() {
+    requestStructureSync()
+    finishImport()
+
+    val buildScript = project.courseDir.findFileByRelativePath("lesson1/task1/build.gradle")!!
+    runWriteAction { VfsUtil.saveText(buildScript, "apply plugin: 'application'") }
+    requestStructureSync()
+    assertEquals(2, syncs)
+  }
+
+  @Test
+  fun `test new util build script causes sync`() {
+    requestStructureSync()
+    finishImport()
+
+    GeneratorUtils.createTextChildFile(project, project.courseDir, "util/build.gradle", "apply plugin: 'java'")
+    requestStructureSync()
+    assertEquals(2, syncs)
+  }
+
+  @Test
+  fun `test dependencies update always causes sync`() {
+    requestStructureSync()
+    finishImport()
+
+    queue.requestSync(RefreshCause.DEPENDENCIES_UPDATED)
+    assertEquals(2, syncs)
+  }
+
+  @Test
+  fun `test forced request syncs unchanged project`() {
+    requestStructureSync()
+    finishImport()
+
+    queue.requestSync(RefreshCause.STRUCTURE_MODIFIED, force = true)
+    assertEquals(2, syncs)
+  }
+
+  private fun requestStructureSync() {
+    queue.requestSync(RefreshCause.STRUCTURE_MODIFIED)
+    queue.flush()
+  }
+
+  private fun finishImport() {
+    project.messageBus.syncPublisher(ProjectDataImportListener.TOPIC).onImportFinished(project.basePath)
+  }
+}
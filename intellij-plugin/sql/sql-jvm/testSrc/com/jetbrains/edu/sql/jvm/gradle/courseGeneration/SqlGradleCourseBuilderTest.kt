@@ -37,6 +37,7 @@ class SqlGradleCourseBuilderTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt")
     }.assertEquals(rootDir)
   }
 
@@ -59,6 +60,7 @@ class SqlGradleCourseBuilderTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt")
     }.assertEquals(rootDir)
   }
 
@@ -92,6 +94,7 @@ class SqlGradleCourseBuilderTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt")
     }.assertEquals(rootDir)
   }
 
@@ -125,6 +128,7 @@ class SqlGradleCourseBuilderTest : JvmCourseGenerationTestBase() {
       }
       file("build.gradle")
       file("settings.gradle")
+      file("task-modules.txt")
     }.assertEquals(rootDir)
   }
 }